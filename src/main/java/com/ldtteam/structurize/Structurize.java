@@ -20,6 +20,7 @@ import com.ldtteam.structurize.storage.ClientFutureProcessor;
 import com.ldtteam.structurize.storage.ServerFutureProcessor;
 import com.ldtteam.structurize.storage.ClientStructurePackLoader;
 import com.ldtteam.structurize.storage.ServerStructurePackLoader;
+import com.ldtteam.structurize.storage.rendering.ClientPreviewSync;
 import com.ldtteam.structurize.storage.rendering.ServerPreviewDistributor;
 import net.minecraft.util.datafix.DataFixers;
 import net.minecraftforge.api.distmarker.Dist;
@@ -68,6 +69,7 @@ public class Structurize
             ClientStructurePackLoader.onClientLoading();
             Mod.EventBusSubscriber.Bus.FORGE.bus().get().register(ClientStructurePackLoader.class);
             Mod.EventBusSubscriber.Bus.FORGE.bus().get().register(ClientFutureProcessor.class);
+            Mod.EventBusSubscriber.Bus.FORGE.bus().get().register(ClientPreviewSync.class);
             Mod.EventBusSubscriber.Bus.MOD.bus().get().register(ClientLifecycleSubscriber.class);
             Mod.EventBusSubscriber.Bus.FORGE.bus().get().register(ClientEventSubscriber.class);
         });
@@ -339,7 +339,7 @@ public class BlockEntityTagSubstitution extends BlockEntity implements IBlueprin
         {
             final Blueprint blueprint = new Blueprint((short) 1, (short) 1, (short) 1);
             blueprint.addBlockState(BlockPos.ZERO, getBlockState());
-            blueprint.getTileEntities()[0][0][0] = getBlockEntityTag().isEmpty() ? null : getBlockEntityTag().copy();
+            blueprint.setTileEntityData(BlockPos.ZERO, getBlockEntityTag().isEmpty() ? null : getBlockEntityTag().copy());
             return blueprint;
         }
 
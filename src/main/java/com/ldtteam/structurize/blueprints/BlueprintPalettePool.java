@@ -0,0 +1,181 @@
+package com.ldtteam.structurize.blueprints;
+
+import com.ldtteam.structurize.util.RotationMirror;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Global interned palette shared by all blueprints.
+ * Every distinct blockstate gets a stable int id for the lifetime of the game, blueprint palettes only store these ids.
+ * The rotated/mirrored variant of every id is computed once (using {@link FacingFixer}) and memoized,
+ * so transforming a palette entry is a table lookup.
+ */
+public final class BlueprintPalettePool
+{
+    /**
+     * Marks a not yet computed transform.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Amount of possible transforms.
+     */
+    private static final int TRANSFORMS = RotationMirror.values().length;
+
+    /**
+     * State to id lookup, guarded by the class lock.
+     */
+    private static final Object2IntMap<BlockState> IDS = new Object2IntOpenHashMap<>();
+    static
+    {
+        IDS.defaultReturnValue(UNKNOWN);
+    }
+
+    /**
+     * Id to state lookup. Written under the class lock, the volatile reference publishes new entries to lock free readers.
+     */
+    private static volatile BlockState[] states = new BlockState[1024];
+
+    /**
+     * Memoized transforms, id * TRANSFORMS + rotationMirror ordinal to transformed id. Same publishing as {@link #states}.
+     */
+    private static volatile int[] transforms = newTransforms(1024, 0);
+
+    /**
+     * Amount of interned states.
+     */
+    private static int size = 0;
+
+    /**
+     * Private constructor to hide implicit one.
+     */
+    private BlueprintPalettePool()
+    {
+        /*
+         * Intentionally left empty.
+         */
+    }
+
+    /**
+     * Get the id of a state, registers the state if it is new.
+     *
+     * @param state the state.
+     * @return the stable id.
+     */
+    public static synchronized int intern(final BlockState state)
+    {
+        final int existing = IDS.getInt(state);
+        if (existing != UNKNOWN)
+        {
+            return existing;
+        }
+
+        BlockState[] currentStates = states;
+        int[] currentTransforms = transforms;
+        if (size == currentStates.length)
+        {
+            currentStates = Arrays.copyOf(currentStates, size * 2);
+            currentTransforms = newTransforms(size * 2, size);
+            System.arraycopy(transforms, 0, currentTransforms, 0, size * TRANSFORMS);
+        }
+
+        final int id = size++;
+        currentStates[id] = state;
+        currentTransforms[id * TRANSFORMS + RotationMirror.NONE.ordinal()] = id;
+        IDS.put(state, id);
+
+        transforms = currentTransforms;
+        states = currentStates;
+        return id;
+    }
+
+    /**
+     * Intern a whole palette.
+     *
+     * @param palette the blueprint palette.
+     * @return the ids in palette order.
+     */
+    public static int[] intern(final List<BlockState> palette)
+    {
+        final int[] ids = new int[palette.size()];
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = intern(palette.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Get the state of an id.
+     *
+     * @param id an id returned by {@link #intern(BlockState)}.
+     * @return the state.
+     */
+    public static BlockState get(final int id)
+    {
+        return states[id];
+    }
+
+    /**
+     * Get the id of the rotated/mirrored variant of an id.
+     *
+     * @param id             the id.
+     * @param rotationMirror the transform.
+     * @return the id of the transformed state.
+     */
+    public static int transform(final int id, final RotationMirror rotationMirror)
+    {
+        final int cached = transforms[id * TRANSFORMS + rotationMirror.ordinal()];
+        if (cached != UNKNOWN)
+        {
+            return cached;
+        }
+
+        final BlockState state = get(id);
+        BlockState bs = state;
+        if (rotationMirror.isMirrored())
+        {
+            bs = FacingFixer.fixMirroredFacing(bs.mirror(rotationMirror.mirror()), bs);
+        }
+
+        final int result = intern(bs.rotate(rotationMirror.rotation()));
+        synchronized (BlueprintPalettePool.class)
+        {
+            final int[] current = transforms;
+            current[id * TRANSFORMS + rotationMirror.ordinal()] = result;
+            transforms = current;
+        }
+        return result;
+    }
+
+    /**
+     * Get the rotated/mirrored variant of a state.
+     *
+     * @param state          the state.
+     * @param rotationMirror the transform.
+     * @return the transformed state.
+     */
+    public static BlockState transform(final BlockState state, final RotationMirror rotationMirror)
+    {
+        return get(transform(intern(state), rotationMirror));
+    }
+
+    /**
+     * @return the amount of interned states.
+     */
+    public static synchronized int size()
+    {
+        return size;
+    }
+
+    private static int[] newTransforms(final int capacity, final int from)
+    {
+        final int[] result = new int[capacity * TRANSFORMS];
+        Arrays.fill(result, from * TRANSFORMS, result.length, UNKNOWN);
+        return result;
+    }
+}
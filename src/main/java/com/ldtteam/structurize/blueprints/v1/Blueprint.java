@@ -7,13 +7,16 @@ import com.ldtteam.structurize.blockentities.BlockEntityTagSubstitution;
 import com.ldtteam.structurize.blockentities.ModBlockEntities;
 import com.ldtteam.structurize.blocks.ModBlocks;
 import com.ldtteam.structurize.blocks.interfaces.IAnchorBlock;
-import com.ldtteam.structurize.blueprints.FacingFixer;
+import com.ldtteam.structurize.blueprints.BlueprintPalettePool;
 import com.ldtteam.structurize.client.fakelevel.IFakeLevelBlockGetter;
 import com.ldtteam.structurize.blockentities.interfaces.IBlueprintDataProviderBE;
 import com.ldtteam.structurize.util.BlockInfo;
 import com.ldtteam.structurize.util.BlockUtils;
 import com.ldtteam.structurize.util.BlueprintPositionInfo;
 import com.ldtteam.structurize.util.RotationMirror;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.CrashReportCategory;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
@@ -50,6 +53,11 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     private static final String ENTITY_POS = "Pos";
 
+    /**
+     * Shared result for positions without entities.
+     */
+    private static final CompoundTag[] NO_ENTITIES = new CompoundTag[0];
+
     /**
      * The list of required mods.
      */
@@ -81,9 +89,9 @@ public class Blueprint implements IFakeLevelBlockGetter
     private String packName;
 
     /**
-     * The palette of different blocks.
+     * The palette of different blocks, as ids of the {@link BlueprintPalettePool}.
      */
-    private List<BlockState> palette;
+    private int[] palette;
 
     /**
      * The name of the blueprint.
@@ -101,14 +109,14 @@ public class Blueprint implements IFakeLevelBlockGetter
     private String[] missingMods;
 
     /**
-     * The Schematic Data, each short represents an entry in the {@link Blueprint#palette}
+     * The Schematic Data, each entry represents an index in the {@link Blueprint#palette}
      */
-    private short[][][] structure;
+    private BlueprintBlockStorage structure;
 
     /**
-     * The tileentities.
+     * The tileentities of the occupied positions, keyed by packed local position, see {@link BlockPos#asLong(int, int, int)}
      */
-    private CompoundTag[][][] tileEntities;
+    private Long2ObjectMap<CompoundTag> tileEntities;
 
     /**
      * The entities.
@@ -120,7 +128,11 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     private List<BlockInfo>              cacheBlockInfo    = null;
     private Map<BlockPos, BlockInfo>     cacheBlockInfoMap = null;
-    private Map<BlockPos, CompoundTag[]> cacheEntitiesMap  = null;
+
+    /**
+     * Entities bucketed by their packed local block position, see {@link BlockPos#asLong(int, int, int)}
+     */
+    private Long2ObjectMap<CompoundTag[]> cacheEntityIndex = null;
 
     /**
      * Cache for storing rotate/mirror anchor
@@ -132,6 +144,33 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     private RotationMirror rotationMirror = RotationMirror.NONE;
 
+    /**
+     * Virtual rotation/mirror from the stored data to the current view, null if the stored data is the view.
+     */
+    @Nullable
+    private BlueprintTransform viewTransform = null;
+
+    /**
+     * The level the current view was rotated/mirrored in, handed to rotatable block entities.
+     */
+    @Nullable
+    private Level viewLevel = null;
+
+    /**
+     * Block entity data transformed for the current view, keyed by packed view position.
+     */
+    private Long2ObjectMap<CompoundTag> cacheViewTileEntities = null;
+
+    /**
+     * True if the block storage and the block entities are shared with another blueprint (see {@link #copy()}) and have to be copied before they are modified.
+     */
+    private boolean sharedData = false;
+
+    /**
+     * Rough heap size of a single serialized (block) entity, used for the byte size estimation.
+     */
+    private static final int ESTIMATED_TAG_BYTES = 256;
+
     /**
      * Constructor of a new Blueprint.
      *
@@ -153,25 +192,80 @@ public class Blueprint implements IFakeLevelBlockGetter
       short[][][] structure,
       CompoundTag[] tileEntities,
       List<String> requiredMods)
+    {
+        this(sizeX, sizeY, sizeZ, palleteSize, pallete, BlueprintBlockStorage.fromStructure(structure, sizeX, sizeY, sizeZ, palleteSize), tileEntities, requiredMods);
+    }
+
+    /**
+     * Constructor of a new Blueprint.
+     *
+     * @param sizeX        the x size.
+     * @param sizeY        the y size.
+     * @param sizeZ        the z size.
+     * @param palleteSize  the size of the pallete.
+     * @param pallete      the palette.
+     * @param structure    the packed structure data.
+     * @param tileEntities the tileEntities.
+     * @param requiredMods the required mods.
+     */
+    public Blueprint(
+      short sizeX,
+      short sizeY,
+      short sizeZ,
+      short palleteSize,
+      List<BlockState> pallete,
+      BlueprintBlockStorage structure,
+      CompoundTag[] tileEntities,
+      List<String> requiredMods)
     {
         this.sizeX = sizeX;
         this.sizeY = sizeY;
         this.sizeZ = sizeZ;
         this.palleteSize = palleteSize;
-        this.palette = pallete;
+        this.palette = BlueprintPalettePool.intern(pallete);
         this.structure = structure;
-        this.tileEntities = new CompoundTag[sizeY][sizeZ][sizeX];
+        this.tileEntities = new Long2ObjectOpenHashMap<>(tileEntities.length);
 
         for (final CompoundTag te : tileEntities)
         {
             if (te != null)
             {
-                this.tileEntities[te.getShort("y")][te.getShort("z")][te.getShort("x")] = te;
+                this.tileEntities.put(BlockPos.asLong(te.getShort("x"), te.getShort("y"), te.getShort("z")), te);
             }
         }
         this.requiredMods = requiredMods;
     }
 
+    /**
+     * Copy constructor, shares the block storage and the block entities until either blueprint modifies them.
+     *
+     * @param other the blueprint to copy.
+     */
+    private Blueprint(final Blueprint other)
+    {
+        this.requiredMods = other.requiredMods;
+        this.sizeX = other.sizeX;
+        this.sizeY = other.sizeY;
+        this.sizeZ = other.sizeZ;
+        this.palleteSize = other.palleteSize;
+        this.fileName = other.fileName;
+        this.filePath = other.filePath;
+        this.packName = other.packName;
+        this.palette = other.palette;
+        this.name = other.name;
+        this.architects = other.architects;
+        this.missingMods = other.missingMods;
+        this.structure = other.structure;
+        this.tileEntities = other.tileEntities;
+        this.entities = other.entities;
+        this.cachePrimaryOffset = other.cachePrimaryOffset;
+        this.rotationMirror = other.rotationMirror;
+        this.viewTransform = other.viewTransform;
+        this.viewLevel = other.viewLevel;
+        this.sharedData = true;
+        other.sharedData = true;
+    }
+
     /**
      * Constructor of a new Blueprint.
      *
@@ -184,12 +278,11 @@ public class Blueprint implements IFakeLevelBlockGetter
         this.sizeX = sizeX;
         this.sizeY = sizeY;
         this.sizeZ = sizeZ;
-        this.structure = new short[sizeY][sizeZ][sizeX];
-        this.tileEntities = new CompoundTag[sizeY][sizeZ][sizeX];
+        this.structure = new BlueprintBlockStorage(sizeX, sizeY, sizeZ, 1);
+        this.tileEntities = new Long2ObjectOpenHashMap<>();
 
         this.requiredMods = new ArrayList<>();
-        this.palette = new ArrayList<>();
-        this.palette.add(0, ModBlocks.blockSubstitution.get().defaultBlockState());
+        this.palette = new int[] {BlueprintPalettePool.intern(ModBlocks.blockSubstitution.get().defaultBlockState())};
         this.palleteSize = 1;
     }
 
@@ -230,7 +323,13 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     public BlockState[] getPalette()
     {
-        return this.palette.toArray(new BlockState[0]);
+        materialize();
+        final BlockState[] states = new BlockState[this.palette.length];
+        for (int i = 0; i < states.length; i++)
+        {
+            states[i] = BlueprintPalettePool.get(this.palette[i]);
+        }
+        return states;
     }
 
     /**
@@ -241,10 +340,14 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     public void addBlockState(final BlockPos pos, final BlockState state)
     {
+        materialize();
+        ensureOwnData();
+
+        final int id = BlueprintPalettePool.intern(state);
         int index = -1;
-        for (int i = 0; i < this.palette.size(); i++)
+        for (int i = 0; i < this.palette.length; i++)
         {
-            if (this.palette.get(i).equals(state))
+            if (this.palette[i] == id)
             {
                 index = i;
                 break;
@@ -255,27 +358,102 @@ public class Blueprint implements IFakeLevelBlockGetter
         {
             index = this.palleteSize;
             this.palleteSize++;
-            this.palette.add(state);
+            this.palette = Arrays.copyOf(this.palette, this.palette.length + 1);
+            this.palette[this.palette.length - 1] = id;
         }
 
-        this.structure[pos.getY()][pos.getZ()][pos.getX()] = (short) index;
+        this.structure.set(pos.getX(), pos.getY(), pos.getZ(), index);
         cacheReset(true);
     }
 
     /**
+     * Compatibility view of the block storage, prefer {@link #getBlockStorage()} or {@link #getPaletteIndex(int, int, int)}.
+     * This is a copy, changes to the returned array are not written back into the blueprint.
+     *
      * @return the structure (without rotation and/or mirroring) The Coordinate order is: y, z, x
      */
     public short[][][] getStructure()
     {
+        materialize();
+        return this.structure.toStructure();
+    }
+
+    /**
+     * @return the packed block storage, each entry is an index into the palette.
+     */
+    public BlueprintBlockStorage getBlockStorage()
+    {
+        materialize();
+        ensureOwnData();
         return this.structure;
     }
 
     /**
+     * Get the palette index at a local position.
+     *
+     * @param x the x coord.
+     * @param y the y coord.
+     * @param z the z coord.
+     * @return the palette index.
+     */
+    public int getPaletteIndex(final int x, final int y, final int z)
+    {
+        if (viewTransform == null)
+        {
+            return this.structure.get(x, y, z);
+        }
+        return this.structure.get(viewTransform.toSourceX(x, z), y, viewTransform.toSourceZ(x, z));
+    }
+
+    /**
+     * Compatibility view of the block entities, prefer {@link #getTileEntitiesByPos()} or {@link #getTileEntityData(int, int, int)}.
+     * This is a dense copy, changes to the returned array are not written back into the blueprint, use {@link #setTileEntityData(BlockPos, CompoundTag)}.
+     *
      * @return an array of serialized TileEntities (posX, posY and posZ tags have been localized to coordinates within the structure)
      */
     public CompoundTag[][][] getTileEntities()
     {
-        return this.tileEntities;
+        materialize();
+        final CompoundTag[][][] result = new CompoundTag[sizeY][sizeZ][sizeX];
+        for (final Long2ObjectMap.Entry<CompoundTag> entry : this.tileEntities.long2ObjectEntrySet())
+        {
+            final long key = entry.getLongKey();
+            result[BlockPos.getY(key)][BlockPos.getZ(key)][BlockPos.getX(key)] = entry.getValue();
+        }
+        return result;
+    }
+
+    /**
+     * Get the block entities of all occupied positions.
+     *
+     * @return unmodifiable map of packed local pos (see {@link BlockPos#of(long)}) to serialized TileEntities.
+     */
+    public Long2ObjectMap<CompoundTag> getTileEntitiesByPos()
+    {
+        materialize();
+        return Long2ObjectMaps.unmodifiable(this.tileEntities);
+    }
+
+    /**
+     * Set or remove the block entity data at a local position.
+     *
+     * @param pos  the local pos.
+     * @param data the serialized TileEntity, null to remove.
+     */
+    public void setTileEntityData(final BlockPos pos, @Nullable final CompoundTag data)
+    {
+        materialize();
+        ensureOwnData();
+
+        if (data == null)
+        {
+            this.tileEntities.remove(pos.asLong());
+        }
+        else
+        {
+            this.tileEntities.put(pos.asLong(), data);
+        }
+        cacheReset(true);
     }
 
     /**
@@ -292,6 +470,7 @@ public class Blueprint implements IFakeLevelBlockGetter
     public void setEntities(CompoundTag[] entities)
     {
         this.entities = entities;
+        this.cacheEntityIndex = null;
     }
 
     /**
@@ -442,6 +621,7 @@ public class Blueprint implements IFakeLevelBlockGetter
 
     /**
      * Get a list of all blockInfo objects in the blueprint.
+     * This allocates an object per block on first use, prefer the direct lookups like {@link #getBlockState(int, int, int)}.
      *
      * @return a list of all blockinfo (position, blockState, tileEntityData).
      */
@@ -456,6 +636,7 @@ public class Blueprint implements IFakeLevelBlockGetter
 
     /**
      * Get a map of all blockpos->blockInfo objects in the blueprint.
+     * This allocates an object per block on first use, prefer the direct lookups like {@link #getBlockInfo(BlockPos)}.
      *
      * @return a map of all blockpos->blockInfo (position, blockState, tileEntityData).
      */
@@ -469,17 +650,47 @@ public class Blueprint implements IFakeLevelBlockGetter
     }
 
     /**
-     * Get a map of all entities by approx position.
+     * Get a map of all entities by approx position, only positions which contain entities are present.
      *
-     * @return the cached map of these.
+     * @return a new map of these.
      */
     public final Map<BlockPos, CompoundTag[]> getCachedEntitiesAsMap()
     {
-        if (cacheEntitiesMap == null)
+        final Long2ObjectMap<CompoundTag[]> index = getEntityIndex();
+        final Map<BlockPos, CompoundTag[]> result = new HashMap<>(index.size());
+        for (final Long2ObjectMap.Entry<CompoundTag[]> entry : index.long2ObjectEntrySet())
         {
-            buildBlockInfoCaches();
+            result.put(BlockPos.of(entry.getLongKey()), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Get all entities at a local position.
+     *
+     * @param x the x coord.
+     * @param y the y coord.
+     * @param z the z coord.
+     * @return the entities at the pos, empty array if none (shared instance, do not modify).
+     */
+    public CompoundTag[] getEntitiesAt(final int x, final int y, final int z)
+    {
+        final CompoundTag[] result = getEntityIndex().get(BlockPos.asLong(x, y, z));
+        return result == null ? NO_ENTITIES : result;
+    }
+
+    /**
+     * Get the entity index, builds it if needed.
+     *
+     * @return the index of packed local pos to entities.
+     */
+    private Long2ObjectMap<CompoundTag[]> getEntityIndex()
+    {
+        if (cacheEntityIndex == null)
+        {
+            buildEntityIndex();
         }
-        return cacheEntitiesMap;
+        return cacheEntityIndex;
     }
 
     /**
@@ -492,12 +703,13 @@ public class Blueprint implements IFakeLevelBlockGetter
     @Nullable
     public CompoundTag getTileEntityData(final BlockPos worldPos, final BlockPos structurePos)
     {
-        if (!getBlockInfoAsMap().containsKey(structurePos) || !getBlockInfoAsMap().get(structurePos).hasTileEntityData())
+        final CompoundTag rawTe = getTileEntityData(structurePos.getX(), structurePos.getY(), structurePos.getZ());
+        if (rawTe == null)
         {
             return null;
         }
 
-        final CompoundTag te = getBlockInfoAsMap().get(structurePos).getTileEntityData().copy();
+        final CompoundTag te = rawTe.copy();
         final BlockPos tePos = structurePos.offset(worldPos);
         te.putInt("x", tePos.getX());
         te.putInt("y", tePos.getY());
@@ -515,14 +727,13 @@ public class Blueprint implements IFakeLevelBlockGetter
     public Item getItem(final BlockPos pos)
     {
         @Nullable
-        final BlockInfo info = this.getBlockInfoAsMap().getOrDefault(pos, null);
-        if (info == null || info.getState() == null || info.getState().isAir()
-            || BlockUtils.isLiquidOnlyBlock(info.getState().getBlock()))
+        final BlockState state = getBlockState(pos.getX(), pos.getY(), pos.getZ());
+        if (state == null || state.isAir() || BlockUtils.isLiquidOnlyBlock(state.getBlock()))
         {
             return null;
         }
 
-        final ItemStack stack = BlockUtils.getItemStackFromBlockState(info.getState());
+        final ItemStack stack = BlockUtils.getItemStackFromBlockState(state);
 
         if (!ItemStackUtils.isEmpty(stack))
         {
@@ -533,13 +744,12 @@ public class Blueprint implements IFakeLevelBlockGetter
     }
 
     /**
-     * Build the caches.
+     * Build the block info caches.
      */
     private void buildBlockInfoCaches()
     {
         cacheBlockInfo = new ArrayList<>(getVolume());
         cacheBlockInfoMap = new HashMap<>(getVolume());
-        cacheEntitiesMap = new HashMap<>(getEntities().length);
         for (short y = 0; y < this.sizeY; y++)
         {
             for (short z = 0; z < this.sizeZ; z++)
@@ -547,18 +757,43 @@ public class Blueprint implements IFakeLevelBlockGetter
                 for (short x = 0; x < this.sizeX; x++)
                 {
                     final BlockPos tempPos = new BlockPos(x, y, z);
-                    final BlockInfo blockInfo = new BlockInfo(tempPos, palette.get(structure[y][z][x] & 0xFFFF), tileEntities[y][z][x]);
+                    final BlockInfo blockInfo = new BlockInfo(tempPos, getBlockState(x, y, z), getTileEntityData(x, y, z));
                     cacheBlockInfo.add(blockInfo);
                     cacheBlockInfoMap.put(tempPos, blockInfo);
-                    cacheEntitiesMap.put(tempPos,
-                        Arrays.stream(this.getEntities())
-                            .filter(data -> data != null && isAtPos(data, tempPos))
-                            .toArray(CompoundTag[]::new));
                 }
             }
         }
     }
 
+    /**
+     * Build the entity index in a single pass over all entities.
+     */
+    private void buildEntityIndex()
+    {
+        final Long2ObjectMap<CompoundTag[]> index = new Long2ObjectOpenHashMap<>(entities.length);
+        for (final CompoundTag data : entities)
+        {
+            if (data == null)
+            {
+                continue;
+            }
+
+            final long key = getPackedEntityPos(data);
+            final CompoundTag[] existing = index.get(key);
+            if (existing == null)
+            {
+                index.put(key, new CompoundTag[] {data});
+            }
+            else
+            {
+                final CompoundTag[] extended = Arrays.copyOf(existing, existing.length + 1);
+                extended[existing.length] = data;
+                index.put(key, extended);
+            }
+        }
+        cacheEntityIndex = index;
+    }
+
     /**
      * Sets the primary offset for the blueprint
      *
@@ -590,16 +825,27 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     private BlockPos findPrimaryBlockOffset()
     {
-        final List<BlockInfo> list = getBlockInfoAsList().stream()
-            .filter(blockInfo -> blockInfo.getState().getBlock() instanceof IAnchorBlock ||
-                (blockInfo.hasTileEntityData() && blockInfo.getTileEntityData().contains(TAG_BLUEPRINTDATA)))
-            .toList();
-
-        if (list.size() != 1)
+        BlockPos found = null;
+        for (int y = 0; y < this.sizeY; y++)
         {
-            return new BlockPos(getSizeX() / 2, 0, getSizeZ() / 2);
+            for (int z = 0; z < this.sizeZ; z++)
+            {
+                for (int x = 0; x < this.sizeX; x++)
+                {
+                    final CompoundTag te = getTileEntityData(x, y, z);
+                    if (getBlockState(x, y, z).getBlock() instanceof IAnchorBlock || (te != null && te.contains(TAG_BLUEPRINTDATA)))
+                    {
+                        if (found != null)
+                        {
+                            return new BlockPos(getSizeX() / 2, 0, getSizeZ() / 2);
+                        }
+                        found = new BlockPos(x, y, z);
+                    }
+                }
+            }
         }
-        return list.get(0).getPos();
+
+        return found == null ? new BlockPos(getSizeX() / 2, 0, getSizeZ() / 2) : found;
     }
 
     /**
@@ -615,7 +861,8 @@ public class Blueprint implements IFakeLevelBlockGetter
             cachePrimaryOffset = null;
         }
         cacheBlockInfoMap = null;
-        cacheEntitiesMap = null;
+        cacheEntityIndex = null;
+        cacheViewTileEntities = null;
     }
 
     /**
@@ -646,127 +893,189 @@ public class Blueprint implements IFakeLevelBlockGetter
         }
 
         final BlockPos primaryOffset = getPrimaryBlockOffset();
-        final short newSizeX, newSizeZ, newSizeY = sizeY;
+        final BlueprintTransform relative = new BlueprintTransform(transformBy, sizeX, sizeY, sizeZ);
 
-        switch (transformBy.rotation())
-        {
-            case COUNTERCLOCKWISE_90:
-            case CLOCKWISE_90:
-                newSizeX = sizeZ;
-                newSizeZ = sizeX;
-                break;
-
-            default:
-                newSizeX = sizeX;
-                newSizeZ = sizeZ;
-                break;
-        }
+        final BlockPos extremes = transformBy.applyToPos(new BlockPos(sizeX, sizeY, sizeZ));
+        int minX = extremes.getX() < 0 ? -extremes.getX() - 1 : 0;
+        int minY = extremes.getY() < 0 ? -extremes.getY() - 1 : 0;
+        int minZ = extremes.getZ() < 0 ? -extremes.getZ() - 1 : 0;
 
-        final short[][][] newStructure = new short[newSizeY][newSizeZ][newSizeX];
         final CompoundTag[] newEntities = new CompoundTag[entities.length];
-        final CompoundTag[][][] newTileEntities = new CompoundTag[newSizeY][newSizeZ][newSizeX];
-
-        final List<BlockState> palette = new ArrayList<>();
-        for (int i = 0; i < this.palette.size(); i++)
+        for (int i = 0; i < entities.length; i++)
         {
-            BlockState bs = this.palette.get(i);
-
-            if (transformBy.isMirrored())
+            final CompoundTag entitiesCompound = entities[i];
+            if (entitiesCompound != null)
             {
-                bs = FacingFixer.fixMirroredFacing(bs.mirror(transformBy.mirror()), bs);
+                newEntities[i] = transformEntityInfoWithSettings(entitiesCompound, level, new BlockPos(minX, minY, minZ), transformBy);
             }
-
-            palette.add(i, bs.rotate(transformBy.rotation()));
         }
 
-        final BlockPos extremes = transformBy.applyToPos(new BlockPos(sizeX, sizeY, sizeZ));
-        int minX = extremes.getX() < 0 ? -extremes.getX() - 1 : 0;
-        int minY = extremes.getY() < 0 ? -extremes.getY() - 1 : 0;
-        int minZ = extremes.getZ() < 0 ? -extremes.getZ() - 1 : 0;
+        setCachePrimaryOffset(relative.toView(primaryOffset));
 
-        this.palette = palette;
+        // blocks and block entities are only remapped on access, see #materialize() for the physical rewrite
+        final RotationMirror viewRotationMirror = (viewTransform == null ? RotationMirror.NONE : viewTransform.getRotationMirror()).add(transformBy);
+        viewTransform = viewRotationMirror == RotationMirror.NONE
+                          ? null
+                          : new BlueprintTransform(viewRotationMirror, structure.getSizeX(), structure.getSizeY(), structure.getSizeZ());
 
-        for (short x = 0; x < this.sizeX; x++)
-        {
-            for (short y = 0; y < this.sizeY; y++)
-            {
-                for (short z = 0; z < this.sizeZ; z++)
-                {
-                    final short value = structure[y][z][x];
-                    final BlockState state = palette.get(value & 0xFFFF);
-                    if (state.getBlock() == Blocks.STRUCTURE_VOID)
-                    {
-                        continue;
-                    }
-                    final BlockPos tempPos = transformBy.applyToPos(new BlockPos(x, y, z)).offset(minX, minY, minZ);
-                    newStructure[tempPos.getY()][tempPos.getZ()][tempPos.getX()] = value;
+        viewLevel = viewTransform == null ? null : level;
 
-                    final CompoundTag compound = tileEntities[y][z][x];
-                    if (compound != null)
-                    {
-                        compound.putInt("x", tempPos.getX());
-                        compound.putInt("y", tempPos.getY());
-                        compound.putInt("z", tempPos.getZ());
-
-                        // TODO: ideally this would be generalised to any IRotatableBlockEntity or we would instead
-                        //       reinflate the entity and use the Forge rotation method, but the latter requires a
-                        //       Level with blockstate and entity and the former requires reinflating everything
-                        //       before we can test whether it's rotatable or not, neither of which is ideal.  So
-                        //       for now this is the minimal requirement.
-                        if (compound.getString("id").equals(ModBlockEntities.TAG_SUBSTITUTION.getId().toString()))
-                        {
-                            BlockEntityTagSubstitution.ReplacementBlock replacement =
-                                    new BlockEntityTagSubstitution.ReplacementBlock(compound);
-                            replacement = replacement.rotateWithMirror(tempPos, transformBy, level);
-                            replacement.write(compound);
-                        }
+        sizeX = (short) relative.getSizeX();
+        sizeZ = (short) relative.getSizeZ();
 
-                        if (compound.contains(TAG_BLUEPRINTDATA))
-                        {
-                            CompoundTag dataCompound = compound.getCompound(TAG_BLUEPRINTDATA);
+        this.entities = newEntities;
+        this.rotationMirror = this.rotationMirror.add(transformBy);
 
-                            // Rotate tag map
-                            final Map<BlockPos, List<String>> tagPosMap = IBlueprintDataProviderBE.readTagPosMapFrom(dataCompound);
-                            final Map<BlockPos, List<String>> newTagPosMap = new HashMap<>();
+        cacheReset(false);
+    }
 
-                            for (Map.Entry<BlockPos, List<String>> entry : tagPosMap.entrySet())
-                            {
-                                newTagPosMap.put(transformBy.applyToPos(entry.getKey()), entry.getValue());
-                            }
+    /**
+     * Bakes the virtual rotation/mirror into the stored data.
+     * Needed before the raw arrays are handed out, mainly for serialization.
+     */
+    private void materialize()
+    {
+        if (viewTransform == null)
+        {
+            return;
+        }
 
-                            IBlueprintDataProviderBE.writeMapToCompound(dataCompound, newTagPosMap);
+        final int[] viewPalette = new int[palette.length];
+        for (int i = 0; i < viewPalette.length; i++)
+        {
+            viewPalette[i] = BlueprintPalettePool.transform(palette[i], viewTransform.getRotationMirror());
+        }
+        final BlueprintBlockStorage newStructure = new BlueprintBlockStorage(sizeX, sizeY, sizeZ, palleteSize);
+        final Long2ObjectMap<CompoundTag> newTileEntities = new Long2ObjectOpenHashMap<>(tileEntities.size());
 
-                            // Rotate corners
-                            BlockPosUtil.writeToNBT(dataCompound, TAG_CORNER_ONE, transformBy.applyToPos(BlockPosUtil.readFromNBT(dataCompound, TAG_CORNER_ONE)));
-                            BlockPosUtil.writeToNBT(dataCompound, TAG_CORNER_TWO, transformBy.applyToPos(BlockPosUtil.readFromNBT(dataCompound, TAG_CORNER_TWO)));
-                        }
+        for (int y = 0; y < sizeY; y++)
+        {
+            for (int z = 0; z < sizeZ; z++)
+            {
+                for (int x = 0; x < sizeX; x++)
+                {
+                    final int value = structure.get(viewTransform.toSourceX(x, z), y, viewTransform.toSourceZ(x, z));
+                    if (isStructureVoid(value))
+                    {
+                        continue;
                     }
-                    newTileEntities[tempPos.getY()][tempPos.getZ()][tempPos.getX()] = compound;
+                    newStructure.set(x, y, z, value);
                 }
             }
         }
 
-        for (int i = 0; i < entities.length; i++)
+        for (final long sourceKey : tileEntities.keySet())
         {
-            final CompoundTag entitiesCompound = entities[i];
-            if (entitiesCompound != null)
+            final int sourceX = BlockPos.getX(sourceKey);
+            final int sourceZ = BlockPos.getZ(sourceKey);
+            final int y = BlockPos.getY(sourceKey);
+            final CompoundTag data = getTileEntityData(viewTransform.toViewX(sourceX, sourceZ), y, viewTransform.toViewZ(sourceX, sourceZ));
+            if (data != null)
             {
-                newEntities[i] = transformEntityInfoWithSettings(entitiesCompound, level, new BlockPos(minX, minY, minZ), transformBy);
+                newTileEntities.put(BlockPos.asLong(viewTransform.toViewX(sourceX, sourceZ), y, viewTransform.toViewZ(sourceX, sourceZ)), data);
             }
         }
 
-        setCachePrimaryOffset(transformBy.applyToPos(primaryOffset).offset(minX, minY, minZ));
-
-        sizeX = newSizeX;
-        sizeY = newSizeY;
-        sizeZ = newSizeZ;
-
+        this.palette = viewPalette;
         this.structure = newStructure;
-        this.entities = newEntities;
         this.tileEntities = newTileEntities;
-        this.rotationMirror = this.rotationMirror.add(transformBy);
+        this.viewTransform = null;
+        this.viewLevel = null;
+        this.cacheViewTileEntities = null;
+        this.sharedData = false;
+    }
 
-        cacheReset(false);
+    /**
+     * Copies the shared block storage and block entities, so they can be modified.
+     */
+    private void ensureOwnData()
+    {
+        if (sharedData)
+        {
+            this.structure = this.structure.copy();
+            this.tileEntities = new Long2ObjectOpenHashMap<>(this.tileEntities);
+            this.sharedData = false;
+        }
+    }
+
+    /**
+     * Create a cheap copy of this blueprint with the same rotation/mirror and file data.
+     * The block data is shared and only copied once either blueprint modifies it, rotating/mirroring never does.
+     *
+     * @return the copy.
+     */
+    public Blueprint copy()
+    {
+        return new Blueprint(this);
+    }
+
+    /**
+     * @return the approximate heap size of the decoded blueprint in bytes.
+     */
+    public long getByteSize()
+    {
+        return structure.getByteSize() + (long) palette.length * Integer.BYTES + (long) (tileEntities.size() + entities.length) * ESTIMATED_TAG_BYTES;
+    }
+
+    /**
+     * Check if a palette entry is a structure void.
+     *
+     * @param value the palette index.
+     * @return true if it is structure void.
+     */
+    private boolean isStructureVoid(final int value)
+    {
+        return BlueprintPalettePool.get(palette[value]).getBlock() == Blocks.STRUCTURE_VOID;
+    }
+
+    /**
+     * Transform block entity data to the given rotation/mirror, the compound is modified.
+     *
+     * @param compound  the block entity data.
+     * @param viewPos   the new local position.
+     * @param transform the rotation/mirror.
+     * @param level     the level the blueprint is rotated in.
+     * @return the same compound.
+     */
+    private static CompoundTag transformTileEntity(final CompoundTag compound, final BlockPos viewPos, final RotationMirror transform, @Nullable final Level level)
+    {
+        compound.putInt("x", viewPos.getX());
+        compound.putInt("y", viewPos.getY());
+        compound.putInt("z", viewPos.getZ());
+
+        // TODO: ideally this would be generalised to any IRotatableBlockEntity or we would instead
+        //       reinflate the entity and use the Forge rotation method, but the latter requires a
+        //       Level with blockstate and entity and the former requires reinflating everything
+        //       before we can test whether it's rotatable or not, neither of which is ideal.  So
+        //       for now this is the minimal requirement.
+        if (compound.getString("id").equals(ModBlockEntities.TAG_SUBSTITUTION.getId().toString()))
+        {
+            BlockEntityTagSubstitution.ReplacementBlock replacement =
+                    new BlockEntityTagSubstitution.ReplacementBlock(compound);
+            replacement = replacement.rotateWithMirror(viewPos, transform, level);
+            replacement.write(compound);
+        }
+
+        if (compound.contains(TAG_BLUEPRINTDATA))
+        {
+            CompoundTag dataCompound = compound.getCompound(TAG_BLUEPRINTDATA);
+
+            // Rotate tag map
+            final Map<BlockPos, List<String>> tagPosMap = IBlueprintDataProviderBE.readTagPosMapFrom(dataCompound);
+            final Map<BlockPos, List<String>> newTagPosMap = new HashMap<>();
+
+            for (Map.Entry<BlockPos, List<String>> entry : tagPosMap.entrySet())
+            {
+                newTagPosMap.put(transform.applyToPos(entry.getKey()), entry.getValue());
+            }
+
+            IBlueprintDataProviderBE.writeMapToCompound(dataCompound, newTagPosMap);
+
+            // Rotate corners
+            BlockPosUtil.writeToNBT(dataCompound, TAG_CORNER_ONE, transform.applyToPos(BlockPosUtil.readFromNBT(dataCompound, TAG_CORNER_ONE)));
+            BlockPosUtil.writeToNBT(dataCompound, TAG_CORNER_TWO, transform.applyToPos(BlockPosUtil.readFromNBT(dataCompound, TAG_CORNER_TWO)));
+        }
+        return compound;
     }
 
     /**
@@ -844,7 +1153,7 @@ public class Blueprint implements IFakeLevelBlockGetter
         result = prime * result + ((packName == null) ? 0 : packName.hashCode());
         result = prime * result + palleteSize;
         result = prime * result + entities.length;
-        result = prime * result + tileEntities.length;
+        result = prime * result + sizeY;
         result = prime * result + getVolume();
         // rot/mir intentionally not incluced
         return result;
@@ -867,7 +1176,7 @@ public class Blueprint implements IFakeLevelBlockGetter
                  && Objects.equals(packName, other.packName)
                  && palleteSize == other.palleteSize
                  && entities.length == other.entities.length
-                 && tileEntities.length == other.tileEntities.length
+                 && sizeY == other.sizeY
                  && getVolume() == other.getVolume();
         // rot/mir intentionally not incluced
     }
@@ -894,24 +1203,23 @@ public class Blueprint implements IFakeLevelBlockGetter
     public BlueprintPositionInfo getBluePrintPositionInfo(final BlockPos pos, final boolean includeEntities)
     {
         return new BlueprintPositionInfo(pos,
-            getBlockInfoAsMap().get(pos),
-            includeEntities ? getCachedEntitiesAsMap().getOrDefault(pos, new CompoundTag[0]) : new CompoundTag[0]);
+            getBlockInfo(pos),
+            includeEntities ? getEntitiesAt(pos.getX(), pos.getY(), pos.getZ()) : NO_ENTITIES);
     }
 
     /**
-     * Check if an entityData object is at the local position.
+     * Get the packed local block position of an entityData object.
      * 
      * @param entityData the data object to check.
-     * @param pos        the pos to check.
-     * @return true if so.
+     * @return the packed pos.
      */
-    private static boolean isAtPos(final CompoundTag entityData, final BlockPos pos)
+    private static long getPackedEntityPos(final CompoundTag entityData)
     {
         final ListTag list = entityData.getList(ENTITY_POS, 6);
         final int x = (int) list.getDouble(0);
         final int y = (int) list.getDouble(1);
         final int z = (int) list.getDouble(2);
-        return new BlockPos(x, y, z).equals(pos);
+        return BlockPos.asLong(x, y, z);
     }
 
     /**
@@ -922,7 +1230,109 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     public BlockState getBlockState(final BlockPos pos)
     {
-        return getBlockInfoAsMap().get(pos).getState();
+        return getBlockState(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    /**
+     * Get the blockstate at a local position without any lookup allocation.
+     *
+     * @param x the x coord.
+     * @param y the y coord.
+     * @param z the z coord.
+     * @return the blockstate or null if outside of the blueprint.
+     */
+    @Override
+    @Nullable
+    public BlockState getBlockState(final int x, final int y, final int z)
+    {
+        if (!isInView(x, y, z))
+        {
+            return null;
+        }
+        if (viewTransform == null)
+        {
+            return BlueprintPalettePool.get(palette[structure.get(x, y, z)]);
+        }
+
+        int value = structure.get(viewTransform.toSourceX(x, z), y, viewTransform.toSourceZ(x, z));
+        if (isStructureVoid(value))
+        {
+            // structure void is dropped when the blueprint gets rotated/mirrored
+            value = 0;
+        }
+        return BlueprintPalettePool.get(BlueprintPalettePool.transform(palette[value], viewTransform.getRotationMirror()));
+    }
+
+    /**
+     * Get the raw block entity data at a local position, the returned tag is not a copy.
+     *
+     * @param x the x coord.
+     * @param y the y coord.
+     * @param z the z coord.
+     * @return the block entity compound or null if none or outside of the blueprint.
+     */
+    @Nullable
+    public CompoundTag getTileEntityData(final int x, final int y, final int z)
+    {
+        if (!isInView(x, y, z))
+        {
+            return null;
+        }
+        if (viewTransform == null)
+        {
+            return tileEntities.get(BlockPos.asLong(x, y, z));
+        }
+
+        final int sourceX = viewTransform.toSourceX(x, z);
+        final int sourceZ = viewTransform.toSourceZ(x, z);
+        final CompoundTag source = tileEntities.get(BlockPos.asLong(sourceX, y, sourceZ));
+        if (source == null || isStructureVoid(structure.get(sourceX, y, sourceZ)))
+        {
+            return null;
+        }
+
+        if (cacheViewTileEntities == null)
+        {
+            cacheViewTileEntities = new Long2ObjectOpenHashMap<>();
+        }
+        final long key = BlockPos.asLong(x, y, z);
+        CompoundTag transformed = cacheViewTileEntities.get(key);
+        if (transformed == null)
+        {
+            transformed = transformTileEntity(source.copy(), new BlockPos(x, y, z), viewTransform.getRotationMirror(), viewLevel);
+            cacheViewTileEntities.put(key, transformed);
+        }
+        return transformed;
+    }
+
+    /**
+     * Check if a local position is within the current (rotated/mirrored) bounds.
+     *
+     * @param x the x coord.
+     * @param y the y coord.
+     * @param z the z coord.
+     * @return true if inside.
+     */
+    private boolean isInView(final int x, final int y, final int z)
+    {
+        return x >= 0 && y >= 0 && z >= 0 && x < sizeX && y < sizeY && z < sizeZ;
+    }
+
+    /**
+     * Create a block info view for a local position, nothing is cached.
+     *
+     * @param pos the local pos.
+     * @return the block info or null if outside of the blueprint.
+     */
+    @Nullable
+    public BlockInfo getBlockInfo(final BlockPos pos)
+    {
+        final BlockState state = getBlockState(pos.getX(), pos.getY(), pos.getZ());
+        if (state == null)
+        {
+            return null;
+        }
+        return new BlockInfo(pos.immutable(), state, getTileEntityData(pos.getX(), pos.getY(), pos.getZ()));
     }
 
     @Override
@@ -953,7 +1363,7 @@ public class Blueprint implements IFakeLevelBlockGetter
     @javax.annotation.Nullable
     public BlockEntity getBlockEntity(final BlockPos pos)
     {
-        return BlueprintUtils.constructTileEntity(getBlockInfoAsMap().get(pos), null);
+        return BlueprintUtils.constructTileEntity(getBlockInfo(pos), null);
     }
 
     @Override
@@ -0,0 +1,369 @@
+package com.ldtteam.structurize.blueprints.v1;
+
+/**
+ * Flat, bit-packed storage of palette indices for a blueprint, similar to the vanilla paletted containers.
+ * Every entry uses just enough bits to address the current palette, the width grows when a bigger index is stored.
+ * Entries never span two longs, the index order is y, z, x (same order as the blueprint file format).
+ */
+public final class BlueprintBlockStorage
+{
+    /**
+     * Max bits needed to address a blueprint palette (palette indices are stored as shorts in the file format).
+     */
+    private static final int MAX_BITS = 16;
+
+    /**
+     * The size of the storage.
+     */
+    private final int sizeX, sizeY, sizeZ;
+
+    /**
+     * Bits per entry.
+     */
+    private int bits;
+
+    /**
+     * Mask of a single entry.
+     */
+    private long mask;
+
+    /**
+     * Amount of entries per long.
+     */
+    private int valuesPerLong;
+
+    /**
+     * The packed data.
+     */
+    private long[] data;
+
+    /**
+     * Create a new empty storage (all entries are palette index 0).
+     *
+     * @param sizeX       the x size.
+     * @param sizeY       the y size.
+     * @param sizeZ       the z size.
+     * @param paletteSize the expected palette size, used to pick the initial entry width.
+     */
+    public BlueprintBlockStorage(final int sizeX, final int sizeY, final int sizeZ, final int paletteSize)
+    {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        setBits(bitsFor(paletteSize));
+        this.data = new long[dataLength(getVolume(), valuesPerLong)];
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param other the storage to copy.
+     */
+    private BlueprintBlockStorage(final BlueprintBlockStorage other)
+    {
+        this.sizeX = other.sizeX;
+        this.sizeY = other.sizeY;
+        this.sizeZ = other.sizeZ;
+        setBits(other.bits);
+        this.data = other.data.clone();
+    }
+
+    /**
+     * Constructor reusing existing packed data.
+     *
+     * @param sizeX the x size.
+     * @param sizeY the y size.
+     * @param sizeZ the z size.
+     * @param bits  the bits per entry of the data.
+     * @param data  the packed data.
+     */
+    private BlueprintBlockStorage(final int sizeX, final int sizeY, final int sizeZ, final int bits, final long[] data)
+    {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        setBits(bits);
+        this.data = data;
+    }
+
+    /**
+     * Create a storage from the legacy y, z, x ordered array.
+     *
+     * @param structure   the legacy structure array.
+     * @param sizeX       the x size.
+     * @param sizeY       the y size.
+     * @param sizeZ       the z size.
+     * @param paletteSize the size of the palette.
+     * @return the new storage.
+     */
+    public static BlueprintBlockStorage fromStructure(final short[][][] structure, final int sizeX, final int sizeY, final int sizeZ, final int paletteSize)
+    {
+        final BlueprintBlockStorage storage = new BlueprintBlockStorage(sizeX, sizeY, sizeZ, paletteSize);
+        int i = 0;
+        for (int y = 0; y < sizeY; y++)
+        {
+            for (int z = 0; z < sizeZ; z++)
+            {
+                for (int x = 0; x < sizeX; x++)
+                {
+                    storage.set(i++, structure[y][z][x] & 0xFFFF);
+                }
+            }
+        }
+        return storage;
+    }
+
+    /**
+     * Creates the legacy y, z, x ordered array. This is a copy, changes to it are not reflected in the storage.
+     *
+     * @return a new structure array.
+     */
+    public short[][][] toStructure()
+    {
+        final short[][][] structure = new short[sizeY][sizeZ][sizeX];
+        int i = 0;
+        for (int y = 0; y < sizeY; y++)
+        {
+            for (int z = 0; z < sizeZ; z++)
+            {
+                for (int x = 0; x < sizeX; x++)
+                {
+                    structure[y][z][x] = (short) get(i++);
+                }
+            }
+        }
+        return structure;
+    }
+
+    /**
+     * Creates a storage with the given dimensions over the first entries of this one (the flat order is kept).
+     * Used when the entries are decoded before the dimensions are known. The entry width is shrunk to the palette size if possible,
+     * otherwise the packed data is shared with this storage.
+     *
+     * @param newSizeX    the new x size.
+     * @param newSizeY    the new y size.
+     * @param newSizeZ    the new z size.
+     * @param paletteSize the size of the palette.
+     * @return the reshaped storage.
+     */
+    public BlueprintBlockStorage reshape(final int newSizeX, final int newSizeY, final int newSizeZ, final int paletteSize)
+    {
+        if ((long) newSizeX * newSizeY * newSizeZ > getVolume())
+        {
+            throw new IllegalArgumentException("Reshaped storage is bigger than the data: " + newSizeX + "x" + newSizeY + "x" + newSizeZ + " > " + getVolume());
+        }
+
+        final int newBits = bitsFor(paletteSize);
+        if (newBits >= bits)
+        {
+            return new BlueprintBlockStorage(newSizeX, newSizeY, newSizeZ, bits, data);
+        }
+
+        final BlueprintBlockStorage result = new BlueprintBlockStorage(newSizeX, newSizeY, newSizeZ, paletteSize);
+        for (int i = 0; i < result.getVolume(); i++)
+        {
+            result.set(i, get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return a deep copy of this storage.
+     */
+    public BlueprintBlockStorage copy()
+    {
+        return new BlueprintBlockStorage(this);
+    }
+
+    /**
+     * Calculate the flat index of a position.
+     *
+     * @param x the x coord.
+     * @param y the y coord.
+     * @param z the z coord.
+     * @return the flat index.
+     */
+    public int index(final int x, final int y, final int z)
+    {
+        return (y * sizeZ + z) * sizeX + x;
+    }
+
+    /**
+     * Check if a position is within the storage bounds.
+     *
+     * @param x the x coord.
+     * @param y the y coord.
+     * @param z the z coord.
+     * @return true if inside.
+     */
+    public boolean isInBounds(final int x, final int y, final int z)
+    {
+        return x >= 0 && y >= 0 && z >= 0 && x < sizeX && y < sizeY && z < sizeZ;
+    }
+
+    /**
+     * Get the palette index at a position.
+     *
+     * @param x the x coord.
+     * @param y the y coord.
+     * @param z the z coord.
+     * @return the palette index.
+     */
+    public int get(final int x, final int y, final int z)
+    {
+        return get(index(x, y, z));
+    }
+
+    /**
+     * Get the palette index at a flat index.
+     *
+     * @param index the flat index.
+     * @return the palette index.
+     */
+    public int get(final int index)
+    {
+        final int cell = index / valuesPerLong;
+        final int shift = (index - cell * valuesPerLong) * bits;
+        return (int) (data[cell] >>> shift & mask);
+    }
+
+    /**
+     * Set the palette index at a position.
+     *
+     * @param x     the x coord.
+     * @param y     the y coord.
+     * @param z     the z coord.
+     * @param value the palette index.
+     */
+    public void set(final int x, final int y, final int z, final int value)
+    {
+        set(index(x, y, z), value);
+    }
+
+    /**
+     * Set the palette index at a flat index, widens the entries if needed.
+     *
+     * @param index the flat index.
+     * @param value the palette index.
+     */
+    public void set(final int index, final int value)
+    {
+        if (value < 0 || value > 0xFFFF)
+        {
+            throw new IllegalArgumentException("Palette index out of range: " + value);
+        }
+        if (value > mask)
+        {
+            resize(bitsFor(value + 1));
+        }
+        final int cell = index / valuesPerLong;
+        final int shift = (index - cell * valuesPerLong) * bits;
+        data[cell] = data[cell] & ~(mask << shift) | ((long) value & mask) << shift;
+    }
+
+    /**
+     * Makes sure the entries are wide enough for the given palette size.
+     *
+     * @param paletteSize the palette size.
+     */
+    public void ensurePaletteSize(final int paletteSize)
+    {
+        final int newBits = bitsFor(paletteSize);
+        if (newBits > bits)
+        {
+            resize(newBits);
+        }
+    }
+
+    /**
+     * Repack all entries with a new width.
+     *
+     * @param newBits the new amount of bits per entry.
+     */
+    private void resize(final int newBits)
+    {
+        final BlueprintBlockStorage old = new BlueprintBlockStorage(this);
+        setBits(newBits);
+        this.data = new long[dataLength(getVolume(), valuesPerLong)];
+        for (int i = 0; i < getVolume(); i++)
+        {
+            final int value = old.get(i);
+            if (value != 0)
+            {
+                final int cell = i / valuesPerLong;
+                data[cell] |= (long) value << (i - cell * valuesPerLong) * bits;
+            }
+        }
+    }
+
+    private void setBits(final int bits)
+    {
+        this.bits = bits;
+        this.mask = (1L << bits) - 1L;
+        this.valuesPerLong = 64 / bits;
+    }
+
+    /**
+     * Calculate the amount of bits needed to store all indices of a palette.
+     *
+     * @param paletteSize the palette size.
+     * @return the amount of bits, at least one.
+     */
+    private static int bitsFor(final int paletteSize)
+    {
+        return Math.min(MAX_BITS, Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(1, paletteSize) - 1)));
+    }
+
+    private static int dataLength(final int volume, final int valuesPerLong)
+    {
+        return (volume + valuesPerLong - 1) / valuesPerLong;
+    }
+
+    /**
+     * @return the amount of bits each entry uses.
+     */
+    public int getBits()
+    {
+        return bits;
+    }
+
+    /**
+     * @return the x size.
+     */
+    public int getSizeX()
+    {
+        return sizeX;
+    }
+
+    /**
+     * @return the y size.
+     */
+    public int getSizeY()
+    {
+        return sizeY;
+    }
+
+    /**
+     * @return the z size.
+     */
+    public int getSizeZ()
+    {
+        return sizeZ;
+    }
+
+    /**
+     * @return the amount of entries.
+     */
+    public int getVolume()
+    {
+        return sizeX * sizeY * sizeZ;
+    }
+
+    /**
+     * @return the approximate heap size of the packed data in bytes.
+     */
+    public long getByteSize()
+    {
+        return (long) data.length * Long.BYTES;
+    }
+}
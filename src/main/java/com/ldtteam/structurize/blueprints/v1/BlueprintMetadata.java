@@ -0,0 +1,357 @@
+package com.ldtteam.structurize.blueprints.v1;
+
+import com.ldtteam.structurize.api.util.BlockPosUtil;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.level.block.state.BlockState;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The header data of a blueprint file, readable without decoding the blocks, entities or the full palette.
+ * Used for listings where only names, sizes and the anchor are needed.
+ */
+public class BlueprintMetadata
+{
+    /**
+     * The size of the blueprint.
+     */
+    private final short sizeX, sizeY, sizeZ;
+
+    /**
+     * The name of the blueprint.
+     */
+    @Nullable
+    private final String name;
+
+    /**
+     * The name of the builders.
+     */
+    @Nullable
+    private final String[] architects;
+
+    /**
+     * The list of required mods.
+     */
+    private final List<String> requiredMods;
+
+    /**
+     * The primary offset (anchor position).
+     */
+    private final BlockPos primaryOffset;
+
+    /**
+     * The (data fixed) state of the anchor block.
+     */
+    @Nullable
+    private final BlockState anchorState;
+
+    /**
+     * The (data fixed) block entity data of the anchor block.
+     */
+    @Nullable
+    private final CompoundTag anchorData;
+
+    /**
+     * The file name of the blueprint.
+     */
+    private String fileName;
+
+    /**
+     * The full file path (without file name).
+     */
+    private Path filePath;
+
+    /**
+     * The pack name.
+     */
+    private String packName;
+
+    /**
+     * Create the metadata.
+     *
+     * @param sizeX         the x size.
+     * @param sizeY         the y size.
+     * @param sizeZ         the z size.
+     * @param name          the name.
+     * @param architects    the architects.
+     * @param requiredMods  the required mods.
+     * @param primaryOffset the anchor position.
+     * @param anchorState   the anchor state.
+     * @param anchorData    the anchor block entity data.
+     */
+    public BlueprintMetadata(
+      final short sizeX,
+      final short sizeY,
+      final short sizeZ,
+      @Nullable final String name,
+      @Nullable final String[] architects,
+      final List<String> requiredMods,
+      final BlockPos primaryOffset,
+      @Nullable final BlockState anchorState,
+      @Nullable final CompoundTag anchorData)
+    {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.name = name;
+        this.architects = architects;
+        this.requiredMods = requiredMods;
+        this.primaryOffset = primaryOffset;
+        this.anchorState = anchorState;
+        this.anchorData = anchorData;
+    }
+
+    /**
+     * Create the metadata of an already decoded blueprint.
+     *
+     * @param blueprint the blueprint.
+     * @return the metadata.
+     */
+    public static BlueprintMetadata of(final Blueprint blueprint)
+    {
+        final BlockPos offset = blueprint.getPrimaryBlockOffset();
+        return new BlueprintMetadata(blueprint.getSizeX(),
+          blueprint.getSizeY(),
+          blueprint.getSizeZ(),
+          blueprint.getName(),
+          blueprint.getArchitects(),
+          blueprint.getRequiredMods(),
+          offset,
+          blueprint.getBlockState(offset),
+          blueprint.getTileEntityData(offset.getX(), offset.getY(), offset.getZ()))
+                 .setFileName(blueprint.getFileName())
+                 .setFilePath(blueprint.getFilePath())
+                 .setPackName(blueprint.getPackName());
+    }
+
+    /**
+     * Serialize the metadata (without file name, path and pack, those are known by whoever stores it).
+     *
+     * @return the compound.
+     */
+    public CompoundTag writeToNBT()
+    {
+        final CompoundTag tag = new CompoundTag();
+        tag.putShort("size_x", sizeX);
+        tag.putShort("size_y", sizeY);
+        tag.putShort("size_z", sizeZ);
+        if (name != null)
+        {
+            tag.putString("name", name);
+        }
+        if (architects != null)
+        {
+            final ListTag architectsTag = new ListTag();
+            for (final String architect : architects)
+            {
+                architectsTag.add(StringTag.valueOf(architect));
+            }
+            tag.put("architects", architectsTag);
+        }
+        final ListTag modsTag = new ListTag();
+        for (final String mod : requiredMods)
+        {
+            modsTag.add(StringTag.valueOf(mod));
+        }
+        tag.put("required_mods", modsTag);
+        BlockPosUtil.writeToNBT(tag, "primary_offset", primaryOffset);
+        if (anchorState != null)
+        {
+            tag.put("anchor_state", NbtUtils.writeBlockState(anchorState));
+        }
+        if (anchorData != null)
+        {
+            tag.put("anchor_data", anchorData);
+        }
+        return tag;
+    }
+
+    /**
+     * Deserialize metadata written by {@link #writeToNBT()} with the same game data version.
+     *
+     * @param tag the compound.
+     * @return the metadata.
+     */
+    public static BlueprintMetadata readFromNBT(final CompoundTag tag)
+    {
+        String[] architects = null;
+        if (tag.contains("architects"))
+        {
+            final ListTag architectsTag = tag.getList("architects", Tag.TAG_STRING);
+            architects = new String[architectsTag.size()];
+            for (int i = 0; i < architects.length; i++)
+            {
+                architects[i] = architectsTag.getString(i);
+            }
+        }
+
+        final List<String> requiredMods = new ArrayList<>();
+        final ListTag modsTag = tag.getList("required_mods", Tag.TAG_STRING);
+        for (int i = 0; i < modsTag.size(); i++)
+        {
+            requiredMods.add(modsTag.getString(i));
+        }
+
+        return new BlueprintMetadata(tag.getShort("size_x"),
+          tag.getShort("size_y"),
+          tag.getShort("size_z"),
+          tag.contains("name") ? tag.getString("name") : null,
+          architects,
+          requiredMods,
+          BlockPosUtil.readFromNBT(tag, "primary_offset"),
+          tag.contains("anchor_state") ? NbtUtils.readBlockState(BuiltInRegistries.BLOCK.asLookup(), tag.getCompound("anchor_state")) : null,
+          tag.contains("anchor_data") ? tag.getCompound("anchor_data") : null);
+    }
+
+    /**
+     * @return the Size of the Structure on the X-Axis
+     */
+    public short getSizeX()
+    {
+        return sizeX;
+    }
+
+    /**
+     * @return the Size of the Structure on the Y-Axis
+     */
+    public short getSizeY()
+    {
+        return sizeY;
+    }
+
+    /**
+     * @return the Size of the Structure on the Z-Axis
+     */
+    public short getSizeZ()
+    {
+        return sizeZ;
+    }
+
+    /**
+     * @return the Name of the Structure
+     */
+    @Nullable
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return an Array of all architects for this structure
+     */
+    @Nullable
+    public String[] getArchitects()
+    {
+        return architects;
+    }
+
+    /**
+     * @return a list of all required mods as modid's
+     */
+    public List<String> getRequiredMods()
+    {
+        return requiredMods;
+    }
+
+    /**
+     * @return the primary block offset.
+     */
+    public BlockPos getPrimaryBlockOffset()
+    {
+        return primaryOffset;
+    }
+
+    /**
+     * @return the state of the anchor block, null if it could not be read.
+     */
+    @Nullable
+    public BlockState getAnchorState()
+    {
+        return anchorState;
+    }
+
+    /**
+     * @return the raw block entity data of the anchor, null if none.
+     */
+    @Nullable
+    public CompoundTag getAnchorData()
+    {
+        return anchorData;
+    }
+
+    /**
+     * Sets the file name of the Structure
+     *
+     * @param name the file name to set.
+     * @return this object.
+     */
+    public BlueprintMetadata setFileName(final String name)
+    {
+        this.fileName = name;
+        return this;
+    }
+
+    /**
+     * @return the unique file name of the structure.
+     */
+    public String getFileName()
+    {
+        return fileName;
+    }
+
+    /**
+     * Sets the file path of the Structure
+     *
+     * @param path the file path to set.
+     * @return this object.
+     */
+    public BlueprintMetadata setFilePath(final Path path)
+    {
+        this.filePath = path;
+        return this;
+    }
+
+    /**
+     * @return the file path of the structure (does not contain the file name).
+     */
+    public Path getFilePath()
+    {
+        return filePath;
+    }
+
+    /**
+     * Set the pack this blueprint is in.
+     *
+     * @param packName the id of the pack.
+     * @return this object.
+     */
+    public BlueprintMetadata setPackName(final String packName)
+    {
+        this.packName = packName;
+        return this;
+    }
+
+    /**
+     * @return the name of the pack.
+     */
+    public String getPackName()
+    {
+        return packName;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BlueprintMetadata [size=[" + sizeX + ", " + sizeY + ", " + sizeZ + "], fileName=" + fileName + ", filePath=" + filePath + ", packName=" + packName
+                 + ", name=" + name + "]";
+    }
+}
@@ -32,7 +32,7 @@ public class BlueprintTagUtils
     public static Map<BlockPos, List<String>> getBlueprintTags(final Blueprint blueprint)
     {
         final BlockPos anchorPos = blueprint.getPrimaryBlockOffset();
-        final CompoundTag nbt = blueprint.getBlockInfoAsMap().get(anchorPos).getTileEntityData();
+        final CompoundTag nbt = blueprint.getTileEntityData(anchorPos.getX(), anchorPos.getY(), anchorPos.getZ());
 
         if (nbt != null)
         {
@@ -42,6 +42,23 @@ public class BlueprintTagUtils
         return new HashMap<>();
     }
 
+    /**
+     * Gets the tag map from the header of a blueprint.
+     *
+     * @param metadata the blueprint metadata
+     * @return         the tag map, relative to the anchor block
+     */
+    public static Map<BlockPos, List<String>> getBlueprintTags(final BlueprintMetadata metadata)
+    {
+        final CompoundTag nbt = metadata.getAnchorData();
+        if (nbt != null)
+        {
+            return IBlueprintDataProviderBE.readTagPosMapFrom(nbt.getCompound(TAG_BLUEPRINTDATA));
+        }
+
+        return new HashMap<>();
+    }
+
     /**
      * A blueprint may hide itself from the build tool list in one of two ways:
      * 1. the anchor block implements IInvisibleBlueprintAnchorBlock and returns true when asked
@@ -52,7 +69,7 @@ public class BlueprintTagUtils
      */
     public static boolean isInvisible(final Blueprint blueprint)
     {
-        final BlockInfo anchor = blueprint.getBlockInfoAsMap().get(blueprint.getPrimaryBlockOffset());
+        final BlockInfo anchor = blueprint.getBlockInfo(blueprint.getPrimaryBlockOffset());
         if (anchor.getState().getBlock() instanceof IInvisibleBlueprintAnchorBlock invis &&
                 !invis.isVisible(anchor.getTileEntityData()))
         {
@@ -63,6 +80,24 @@ public class BlueprintTagUtils
         return anchorTags.contains(INVISIBLE_TAG);
     }
 
+    /**
+     * Same as {@link #isInvisible(Blueprint)}, from the header of a blueprint.
+     *
+     * @param metadata the blueprint metadata
+     * @return true if this blueprint should be hidden from normal players
+     */
+    public static boolean isInvisible(final BlueprintMetadata metadata)
+    {
+        if (metadata.getAnchorState() != null && metadata.getAnchorState().getBlock() instanceof IInvisibleBlueprintAnchorBlock invis &&
+                !invis.isVisible(metadata.getAnchorData()))
+        {
+            return true;
+        }
+
+        final List<String> anchorTags = getBlueprintTags(metadata).computeIfAbsent(BlockPos.ZERO, k -> new ArrayList<>());
+        return anchorTags.contains(INVISIBLE_TAG);
+    }
+
     /**
      * Get the first pos for the given tag
      *
@@ -0,0 +1,150 @@
+package com.ldtteam.structurize.blueprints.v1;
+
+import com.ldtteam.structurize.util.RotationMirror;
+import net.minecraft.core.BlockPos;
+
+/**
+ * Virtual rotation/mirror view over the stored blueprint data.
+ * Maps coordinates between the stored (source) orientation and the viewed orientation without touching the data itself.
+ * The view is normalized so that it spans [0, size) on every axis, the same as a physically rotated blueprint.
+ */
+public final class BlueprintTransform
+{
+    /**
+     * The transform from stored to viewed orientation.
+     */
+    private final RotationMirror rotationMirror;
+
+    /**
+     * Linear part of the transform on the xz plane, view = [a b; c d] * source + offset.
+     */
+    private final int a, b, c, d;
+
+    /**
+     * The offset applied after the linear transform.
+     */
+    private final int offsetX, offsetZ;
+
+    /**
+     * The viewed sizes.
+     */
+    private final int sizeX, sizeZ;
+
+    /**
+     * Create a new view transform.
+     *
+     * @param rotationMirror the rotation/mirror from stored to viewed orientation.
+     * @param sourceSizeX    the stored x size.
+     * @param sourceSizeY    the stored y size.
+     * @param sourceSizeZ    the stored z size.
+     */
+    public BlueprintTransform(final RotationMirror rotationMirror, final int sourceSizeX, final int sourceSizeY, final int sourceSizeZ)
+    {
+        this.rotationMirror = rotationMirror;
+
+        final BlockPos unitX = rotationMirror.applyToPos(new BlockPos(1, 0, 0));
+        final BlockPos unitZ = rotationMirror.applyToPos(new BlockPos(0, 0, 1));
+        this.a = unitX.getX();
+        this.b = unitZ.getX();
+        this.c = unitX.getZ();
+        this.d = unitZ.getZ();
+
+        final BlockPos extremes = rotationMirror.applyToPos(new BlockPos(sourceSizeX, sourceSizeY, sourceSizeZ));
+        this.offsetX = extremes.getX() < 0 ? -extremes.getX() - 1 : 0;
+        this.offsetZ = extremes.getZ() < 0 ? -extremes.getZ() - 1 : 0;
+
+        this.sizeX = a != 0 ? sourceSizeX : sourceSizeZ;
+        this.sizeZ = a != 0 ? sourceSizeZ : sourceSizeX;
+    }
+
+    /**
+     * @return the rotation/mirror from stored to viewed orientation.
+     */
+    public RotationMirror getRotationMirror()
+    {
+        return rotationMirror;
+    }
+
+    /**
+     * @return true if this transform does not change anything.
+     */
+    public boolean isIdentity()
+    {
+        return rotationMirror == RotationMirror.NONE;
+    }
+
+    /**
+     * @return the viewed x size.
+     */
+    public int getSizeX()
+    {
+        return sizeX;
+    }
+
+    /**
+     * @return the viewed z size.
+     */
+    public int getSizeZ()
+    {
+        return sizeZ;
+    }
+
+    /**
+     * Map a stored x/z pair to the viewed x coord.
+     *
+     * @param sourceX the stored x.
+     * @param sourceZ the stored z.
+     * @return the viewed x.
+     */
+    public int toViewX(final int sourceX, final int sourceZ)
+    {
+        return a * sourceX + b * sourceZ + offsetX;
+    }
+
+    /**
+     * Map a stored x/z pair to the viewed z coord.
+     *
+     * @param sourceX the stored x.
+     * @param sourceZ the stored z.
+     * @return the viewed z.
+     */
+    public int toViewZ(final int sourceX, final int sourceZ)
+    {
+        return c * sourceX + d * sourceZ + offsetZ;
+    }
+
+    /**
+     * Map a viewed x/z pair to the stored x coord (the linear part is orthogonal, so the inverse is the transpose).
+     *
+     * @param viewX the viewed x.
+     * @param viewZ the viewed z.
+     * @return the stored x.
+     */
+    public int toSourceX(final int viewX, final int viewZ)
+    {
+        return a * (viewX - offsetX) + c * (viewZ - offsetZ);
+    }
+
+    /**
+     * Map a viewed x/z pair to the stored z coord.
+     *
+     * @param viewX the viewed x.
+     * @param viewZ the viewed z.
+     * @return the stored z.
+     */
+    public int toSourceZ(final int viewX, final int viewZ)
+    {
+        return b * (viewX - offsetX) + d * (viewZ - offsetZ);
+    }
+
+    /**
+     * Map a stored position to the viewed position.
+     *
+     * @param sourcePos the stored pos.
+     * @return the viewed pos.
+     */
+    public BlockPos toView(final BlockPos sourcePos)
+    {
+        return new BlockPos(toViewX(sourcePos.getX(), sourcePos.getZ()), sourcePos.getY(), toViewZ(sourcePos.getX(), sourcePos.getZ()));
+    }
+}
@@ -24,11 +24,15 @@ import net.minecraftforge.fml.ModList;
 import net.minecraftforge.registries.ForgeRegistries;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.LogManager;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
-import java.io.OutputStream;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.zip.GZIPInputStream;
 
 import static com.ldtteam.structurize.blockentities.interfaces.IBlueprintDataProviderBE.*;
 
@@ -44,6 +48,11 @@ public class BlueprintUtil
 
     public static final String NBT_OPTIONAL_DATA_TAG = "optional_data";
 
+    /**
+     * Top level tags which are not needed to read the metadata of a blueprint.
+     */
+    private static final Set<String> METADATA_SKIPPED_TAGS = Set.of("blocks", "entities");
+
     /**
      * Generates a Blueprint objects from the world
      *
@@ -68,7 +77,7 @@ public class BlueprintUtil
         final List<BlockState> pallete = new ArrayList<>();
         // Allways add AIR to Pallete
         pallete.add(Blocks.AIR.defaultBlockState());
-        final short[][][] structure = new short[sizeY][sizeZ][sizeX];
+        final BlueprintBlockStorage structure = new BlueprintBlockStorage(sizeX, sizeY, sizeZ, 1);
         final List<CompoundTag> tileEntities = new ArrayList<>();
 
         final List<String> requiredMods = new ArrayList<>();
@@ -89,7 +98,7 @@ public class BlueprintUtil
             {
                 if (!ModList.get().getModContainerById(modName).isPresent())
                 {
-                    structure[y][z][x] = (short) pallete.indexOf(Blocks.AIR.defaultBlockState());
+                    structure.set(x, y, z, pallete.indexOf(Blocks.AIR.defaultBlockState()));
                     continue;
                 }
                 if (!requiredMods.contains(modName))
@@ -112,7 +121,7 @@ public class BlueprintUtil
             {
                 pallete.add(state);
             }
-            structure[y][z][x] = (short) pallete.indexOf(state);
+            structure.set(x, y, z, pallete.indexOf(state));
         }
 
         final CompoundTag[] tes = tileEntities.toArray(new CompoundTag[0]);
@@ -167,7 +176,8 @@ public class BlueprintUtil
         final BlockEntity tile = world.getBlockEntity(pos.offset(schem.getPrimaryBlockOffset()));
         if (tile instanceof IBlueprintDataProviderBE)
         {
-            final CompoundTag blueprintData = (CompoundTag) schem.getBlockInfoAsMap().get(schem.getPrimaryBlockOffset()).getTileEntityData().get(TAG_BLUEPRINTDATA);
+            final BlockPos primaryOffset = schem.getPrimaryBlockOffset();
+            final CompoundTag blueprintData = (CompoundTag) schem.getTileEntityData(primaryOffset.getX(), primaryOffset.getY(), primaryOffset.getZ()).get(TAG_BLUEPRINTDATA);
 
             if (name != null)
             {
@@ -204,6 +214,34 @@ public class BlueprintUtil
      * @return An CompoundNBT containing the Blueprint Data
      */
     public static CompoundTag writeBlueprintToNBT(final Blueprint schem)
+    {
+        final CompoundTag tag = writeBlueprintHeaderToNBT(schem);
+
+        // Adding blocks
+        final int[] blockInt = convertBlocksToSaveData(schem.getBlockStorage());
+        tag.putIntArray("blocks", blockInt);
+
+        // Adding Tile Entities
+        final ListTag finishedTes = new ListTag();
+        finishedTes.addAll(schem.getTileEntitiesByPos().values());
+        tag.put("tile_entities", finishedTes);
+
+        // Adding Entities
+        final ListTag finishedEntities = new ListTag();
+        final CompoundTag[] entities = schem.getEntities();
+        finishedEntities.addAll(Arrays.asList(entities));
+        tag.put("entities", finishedEntities);
+
+        return tag;
+    }
+
+    /**
+     * Serializes everything of a Blueprint except the blocks, tile entities and entities.
+     *
+     * @param schem The Blueprint to serialize
+     * @return An CompoundNBT containing the header data
+     */
+    static CompoundTag writeBlueprintHeaderToNBT(final Blueprint schem)
     {
         final CompoundTag tag = new CompoundTag();
         // Set Blueprint Version
@@ -222,26 +260,6 @@ public class BlueprintUtil
         }
         tag.put("palette", paletteTag);
 
-        // Adding blocks
-        final int[] blockInt = convertBlocksToSaveData(schem.getStructure(), schem.getSizeX(), schem.getSizeY(), schem.getSizeZ());
-        tag.putIntArray("blocks", blockInt);
-
-        // Adding Tile Entities
-        final ListTag finishedTes = new ListTag();
-        final CompoundTag[] tes = Arrays.stream(schem.getTileEntities())
-                                    .flatMap(Arrays::stream)
-                                    .flatMap(Arrays::stream)
-                                    .filter(Objects::nonNull)
-                                    .toArray(CompoundTag[]::new);
-        finishedTes.addAll(Arrays.asList(tes));
-        tag.put("tile_entities", finishedTes);
-
-        // Adding Entities
-        final ListTag finishedEntities = new ListTag();
-        final CompoundTag[] entities = schem.getEntities();
-        finishedEntities.addAll(Arrays.asList(entities));
-        tag.put("entities", finishedEntities);
-
         // Adding Required Mods
         final List<String> requiredMods = schem.getRequiredMods();
         final ListTag modsList = new ListTag();
@@ -422,19 +440,16 @@ public class BlueprintUtil
         return entities;
     }
 
-    private static List<BlockPos> searchForBlockIdInBlocks(final short idToCheck, final short[][][] blocks)
+    private static List<BlockPos> searchForBlockIdInBlocks(final int idToCheck, final BlueprintBlockStorage blocks)
     {
         final List<BlockPos> result = new ArrayList<>();
-        for (short y = 0; y < blocks.length; y++)
+        for (int y = 0; y < blocks.getSizeY(); y++)
         {
-            final short[][] temp = blocks[y];
-            for (short z = 0; z < temp.length; z++)
+            for (int z = 0; z < blocks.getSizeZ(); z++)
             {
-                final short[] temp2 = temp[z];
-                for (short x = 0; x < temp2.length; x++)
+                for (int x = 0; x < blocks.getSizeX(); x++)
                 {
-                    final short id = temp2[x];
-                    if (id == idToCheck)
+                    if (blocks.get(x, y, z) == idToCheck)
                     {
                         result.add(new BlockPos(x, y, z));
                     }
@@ -464,7 +479,7 @@ public class BlueprintUtil
 
     private static void teToBlockStateFix(
       final List<BlockState> palette,
-      final short[][][] blocks,
+      final BlueprintBlockStorage blocks,
       final CompoundTag[] tileEntities,
       final short paletteIndex,
       final Function<CompoundTag, CompoundTag> dataFixer)
@@ -492,7 +507,7 @@ public class BlueprintUtil
                 newBlocksToBlockId.put(newBlockState, newBlockId);
                 paletteFull = true;
             }
-            blocks[e.getValue().getY()][e.getValue().getZ()][e.getValue().getX()] = newBlockId;
+            blocks.set(e.getValue().getX(), e.getValue().getY(), e.getValue().getZ(), newBlockId);
         }
     }
 
@@ -501,6 +516,30 @@ public class BlueprintUtil
       final short[][][] blocks,
       final CompoundTag[] tileEntities,
       final CompoundTag[] entities)
+    {
+        if (blocks.length == 0 || blocks[0].length == 0)
+        {
+            return;
+        }
+
+        final BlueprintBlockStorage storage = BlueprintBlockStorage.fromStructure(blocks, blocks[0][0].length, blocks.length, blocks[0].length, palette.size());
+        fixCross1343(palette, storage, tileEntities, entities);
+
+        final short[][][] fixed = storage.toStructure();
+        for (int y = 0; y < blocks.length; y++)
+        {
+            for (int z = 0; z < blocks[y].length; z++)
+            {
+                System.arraycopy(fixed[y][z], 0, blocks[y][z], 0, blocks[y][z].length);
+            }
+        }
+    }
+
+    public static void fixCross1343(
+      final List<BlockState> palette,
+      final BlueprintBlockStorage blocks,
+      final CompoundTag[] tileEntities,
+      final CompoundTag[] entities)
     {
         final int oldSize = palette.size();
         for (short i = 0; i < oldSize; i++)
@@ -535,6 +574,291 @@ public class BlueprintUtil
      * @return A desserialized Blueprint
      */
     public static Blueprint readBlueprintFromNBT(final CompoundTag nbtTag)
+    {
+        return readBlueprintFromNBT(nbtTag, null);
+    }
+
+    /**
+     * Deserializes a Blueprint from a gzip compressed NBT stream.
+     * The blocks array is decoded straight from the stream into the block storage, it never exists as an NBT int array.
+     *
+     * @param compressed the compressed blueprint stream, not closed by this method
+     * @return A desserialized Blueprint or null if the version is not supported
+     * @throws IOException if the stream is not a valid NBT stream
+     */
+    public static Blueprint readBlueprintFromStream(final InputStream compressed) throws IOException
+    {
+        return readBlueprintFromStream(compressed, null);
+    }
+
+    /**
+     * Deserializes a Blueprint from a gzip compressed NBT stream.
+     *
+     * @param compressed        the compressed blueprint stream, not closed by this method
+     * @param sourceDataVersion receives the data version the blueprint was saved with (before any data fixing), may be null
+     * @return A desserialized Blueprint or null if the version is not supported
+     * @throws IOException if the stream is not a valid NBT stream
+     */
+    public static Blueprint readBlueprintFromStream(final InputStream compressed, @Nullable final IntConsumer sourceDataVersion) throws IOException
+    {
+        final DataInputStream input = openCompressedRoot(compressed);
+        final CompoundTag tag = new CompoundTag();
+        BlueprintBlockStorage blocks = null;
+
+        byte type;
+        while ((type = input.readByte()) != Tag.TAG_END)
+        {
+            final String key = input.readUTF();
+            if (type == Tag.TAG_INT_ARRAY && "blocks".equals(key))
+            {
+                blocks = readBlocksFromStream(input);
+            }
+            else
+            {
+                tag.put(key, TagTypes.getType(type).load(input, 1, NbtAccounter.UNLIMITED));
+            }
+        }
+
+        if (sourceDataVersion != null)
+        {
+            sourceDataVersion.accept(getDataVersion(tag));
+        }
+        return readBlueprintFromNBT(tag, blocks);
+    }
+
+    /**
+     * Get the data version a blueprint tag was saved with.
+     *
+     * @param tag the blueprint tag
+     * @return the data version, the 1.12.2 one for very old blueprints without it
+     */
+    public static int getDataVersion(final CompoundTag tag)
+    {
+        return tag.contains("mcversion") ? tag.getInt("mcversion") : DEFAULT_FIXER_IF_NOT_FOUND;
+    }
+
+    /**
+     * Reads only the header data of a blueprint file: size, name, architects, required mods, primary offset and the anchor.
+     * The file is read in a single pass. Entities are skipped and only the anchor palette entry and block entity are data fixed.
+     * Blocks are skipped as well if the header came first, else they are decoded on the way since the anchor is only known at the end.
+     *
+     * @param path the blueprint file
+     * @return the metadata or null if the version is not supported
+     * @throws IOException if reading fails
+     */
+    @Nullable
+    public static BlueprintMetadata readBlueprintMetadata(final Path path) throws IOException
+    {
+        final CompoundTag tag = new CompoundTag();
+        BlueprintBlockStorage blocks = null;
+        boolean anchorRead = false;
+        int paletteIndex = -1;
+        try (final InputStream compressed = Files.newInputStream(path))
+        {
+            final DataInputStream input = openCompressedRoot(compressed);
+            byte type;
+            while ((type = input.readByte()) != Tag.TAG_END)
+            {
+                final String key = input.readUTF();
+                if (type == Tag.TAG_INT_ARRAY && "blocks".equals(key))
+                {
+                    final BlockPos offset = readPrimaryOffset(tag);
+                    if (offset != null && tag.contains("size_x") && tag.contains("size_y") && tag.contains("size_z"))
+                    {
+                        anchorRead = true;
+                        paletteIndex = readPaletteIndex(input, getFlatIndex(tag, offset));
+                    }
+                    else
+                    {
+                        blocks = readBlocksFromStream(input);
+                    }
+                }
+                else if (METADATA_SKIPPED_TAGS.contains(key))
+                {
+                    TagTypes.getType(type).skip(input);
+                }
+                else
+                {
+                    tag.put(key, TagTypes.getType(type).load(input, 1, NbtAccounter.UNLIMITED));
+                }
+            }
+        }
+
+        if (tag.getByte("version") != 1)
+        {
+            return null;
+        }
+
+        final BlockPos offset = readPrimaryOffset(tag);
+        if (offset == null)
+        {
+            // the anchor has to be searched through all blocks, which were decoded on the way
+            tag.put("entities", new ListTag());
+            final Blueprint blueprint = readBlueprintFromNBT(tag, blocks);
+            return blueprint == null ? null : BlueprintMetadata.of(blueprint);
+        }
+
+        if (!anchorRead && blocks != null)
+        {
+            final int index = getFlatIndex(tag, offset);
+            paletteIndex = index >= 0 && index < blocks.getVolume() ? blocks.get(index) : -1;
+        }
+
+        final short sizeX = tag.getShort("size_x"), sizeY = tag.getShort("size_y"), sizeZ = tag.getShort("size_z");
+        final int oldDataVersion = tag.contains("mcversion") ? tag.getInt("mcversion") : DEFAULT_FIXER_IF_NOT_FOUND;
+
+        final List<String> requiredMods = new ArrayList<>();
+        final ListTag modsList = tag.getList("required_mods", Tag.TAG_STRING);
+        for (int i = 0; i < modsList.size(); i++)
+        {
+            requiredMods.add(modsList.getString(i));
+        }
+
+        String[] architects = null;
+        if (tag.contains("architects"))
+        {
+            final ListTag architectsTag = tag.getList("architects", Tag.TAG_STRING);
+            architects = new String[architectsTag.size()];
+            for (int i = 0; i < architectsTag.size(); i++)
+            {
+                architects[i] = architectsTag.getString(i);
+            }
+        }
+
+        CompoundTag anchorData = null;
+        final ListTag tileEntities = tag.getList("tile_entities", Tag.TAG_COMPOUND);
+        for (int i = 0; i < tileEntities.size(); i++)
+        {
+            final CompoundTag te = tileEntities.getCompound(i);
+            if (te.getInt("x") == offset.getX() && te.getInt("y") == offset.getY() && te.getInt("z") == offset.getZ())
+            {
+                final ListTag single = new ListTag();
+                single.add(te);
+                anchorData = fixTileEntities(oldDataVersion, single)[0];
+                break;
+            }
+        }
+
+        BlockState anchorState = null;
+        final ListTag paletteTag = tag.getList("palette", Tag.TAG_COMPOUND);
+        if (paletteIndex >= 0 && paletteIndex < paletteTag.size())
+        {
+            final ListTag single = new ListTag();
+            single.add(paletteTag.getCompound(paletteIndex));
+            anchorState = fixPalette(oldDataVersion, single).get(0);
+        }
+
+        return new BlueprintMetadata(sizeX,
+          sizeY,
+          sizeZ,
+          tag.contains("name") ? tag.getString("name") : null,
+          architects,
+          requiredMods,
+          offset,
+          anchorState,
+          anchorData);
+    }
+
+    /**
+     * Get the primary offset of a (partially read) blueprint tag.
+     *
+     * @param tag the blueprint tag
+     * @return the offset or null if not (yet) known
+     */
+    @Nullable
+    private static BlockPos readPrimaryOffset(final CompoundTag tag)
+    {
+        final CompoundTag structurizeTag = tag.getCompound(NBT_OPTIONAL_DATA_TAG).getCompound(MOD_ID);
+        return structurizeTag.contains("primary_offset") ? BlockPosUtil.readFromNBT(structurizeTag, "primary_offset") : null;
+    }
+
+    /**
+     * Get the flat block index (y, z, x order) of a position.
+     *
+     * @param tag the blueprint tag with the size
+     * @param pos the position
+     * @return the index or -1 if outside of the blueprint
+     */
+    private static int getFlatIndex(final CompoundTag tag, final BlockPos pos)
+    {
+        final short sizeX = tag.getShort("size_x"), sizeY = tag.getShort("size_y"), sizeZ = tag.getShort("size_z");
+        if (pos.getX() < 0 || pos.getY() < 0 || pos.getZ() < 0 || pos.getX() >= sizeX || pos.getY() >= sizeY || pos.getZ() >= sizeZ)
+        {
+            return -1;
+        }
+        return (pos.getY() * sizeZ + pos.getZ()) * sizeX + pos.getX();
+    }
+
+    /**
+     * Reads a single palette index from the payload of the blocks int array and skips the rest of it.
+     *
+     * @param input the stream positioned at the int array payload
+     * @param index the flat block index (y, z, x order), -1 to only skip
+     * @return the palette index or -1 if there is no such block
+     * @throws IOException if reading fails
+     */
+    private static int readPaletteIndex(final DataInputStream input, final int index) throws IOException
+    {
+        final int length = input.readInt();
+        if (index < 0 || index / 2 >= length)
+        {
+            input.skipNBytes((long) length * Integer.BYTES);
+            return -1;
+        }
+
+        input.skipNBytes((long) (index / 2) * Integer.BYTES);
+        final int packed = input.readInt();
+        input.skipNBytes((long) (length - index / 2 - 1) * Integer.BYTES);
+        return (index & 1) == 0 ? packed >>> 16 : packed & 0xFFFF;
+    }
+
+    /**
+     * Opens a compressed NBT stream and reads the header of the root compound.
+     *
+     * @param compressed the compressed stream
+     * @return the data stream positioned at the first entry of the root compound
+     * @throws IOException if it is not a compound NBT stream
+     */
+    private static DataInputStream openCompressedRoot(final InputStream compressed) throws IOException
+    {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(compressed, 1 << 16), 1 << 16));
+        if (input.readByte() != Tag.TAG_COMPOUND)
+        {
+            throw new IOException("Root tag must be a compound tag");
+        }
+        input.readUTF();
+        return input;
+    }
+
+    /**
+     * Decodes the payload of the blocks int array (two shorts per int) into a flat storage.
+     * The dimensions and the palette are not known yet at this point, so the storage is reshaped afterwards.
+     *
+     * @param input the stream positioned at the int array payload
+     * @return the flat storage
+     * @throws IOException if reading fails
+     */
+    private static BlueprintBlockStorage readBlocksFromStream(final DataInput input) throws IOException
+    {
+        final int length = input.readInt();
+        final BlueprintBlockStorage storage = new BlueprintBlockStorage(length * 2, 1, 1, 1 << 16);
+        for (int i = 0; i < length; i++)
+        {
+            final int packed = input.readInt();
+            storage.set(i * 2, packed >>> 16);
+            storage.set(i * 2 + 1, packed & 0xFFFF);
+        }
+        return storage;
+    }
+
+    /**
+     * Deserializes a Blueprint form the Given CompoundNBT
+     *
+     * @param nbtTag        The CompoundNBT containing the Blueprint Data
+     * @param decodedBlocks The already decoded flat block storage, null to read the blocks from the tag
+     * @return A desserialized Blueprint
+     */
+    static Blueprint readBlueprintFromNBT(final CompoundTag nbtTag, @Nullable final BlueprintBlockStorage decodedBlocks)
     {
         final CompoundTag tag = nbtTag;
         byte version = tag.getByte("version");
@@ -564,7 +888,9 @@ public class BlueprintUtil
             List<BlockState> palette = fixPalette(oldDataVersion, paletteTag);
 
             // Reading Blocks
-            short[][][] blocks = convertSaveDataToBlocks(tag.getIntArray("blocks"), sizeX, sizeY, sizeZ);
+            final BlueprintBlockStorage blocks = decodedBlocks != null
+                                                   ? decodedBlocks.reshape(sizeX, sizeY, sizeZ, palette.size())
+                                                   : convertSaveDataToStorage(tag.getIntArray("blocks"), sizeX, sizeY, sizeZ, palette.size());
 
             // Reading Tile Entities
             CompoundTag[] tileEntities = fixTileEntities(oldDataVersion, (ListTag) tag.get("tile_entities"));
@@ -632,45 +958,21 @@ public class BlueprintUtil
     }
 
     /**
-     * Converts a 3 Dimensional short Array to a one Dimensional int Array
+     * Converts the packed block storage to the one Dimensional int Array of the file format (two shorts per int)
      *
-     * @param multDimArray 3 Dimensional short Array
-     * @param sizeX        Sturcture size on the X-Axis
-     * @param sizeY        Sturcture size on the Y-Axis
-     * @param sizeZ        Sturcture size on the Z-Axis
+     * @param storage the block storage
      * @return An 1 Dimensional int array
      */
-    private static int[] convertBlocksToSaveData(short[][][] multDimArray, short sizeX, short sizeY, short sizeZ)
+    private static int[] convertBlocksToSaveData(final BlueprintBlockStorage storage)
     {
-        // Converting 3 Dimensional Array to One DImensional
-        short[] oneDimArray = new short[sizeX * sizeY * sizeZ];
+        final int volume = storage.getVolume();
+        final int[] ints = new int[(volume + 1) / 2];
 
-        int j = 0;
-        for (short y = 0; y < sizeY; y++)
+        for (int i = 0; i < volume; i += 2)
         {
-            for (short z = 0; z < sizeZ; z++)
-            {
-                for (short x = 0; x < sizeX; x++)
-                {
-                    oneDimArray[j++] = multDimArray[y][z][x];
-                }
-            }
-        }
-
-        // Converting short Array to int Array
-        int[] ints = new int[(int) Math.ceil(oneDimArray.length / 2f)];
-
-        int currentInt;
-        for (int i = 1; i < oneDimArray.length; i += 2)
-        {
-            currentInt = oneDimArray[i - 1];
-            currentInt = currentInt << 16 | oneDimArray[i];
-            ints[(int) Math.ceil(i / 2f) - 1] = currentInt;
-        }
-        if (oneDimArray.length % 2 == 1)
-        {
-            currentInt = oneDimArray[oneDimArray.length - 1] << 16;
-            ints[ints.length - 1] = currentInt;
+            final int high = storage.get(i);
+            final int low = i + 1 < volume ? storage.get(i + 1) : 0;
+            ints[i / 2] = high << 16 | low;
         }
         return ints;
     }
@@ -711,4 +1013,27 @@ public class BlueprintUtil
         }
         return multDimArray;
     }
+
+    /**
+     * Converts a 1 Dimensional int Array (two shorts per int) directly to the packed block storage
+     *
+     * @param ints        1 Dimensioanl int Array
+     * @param sizeX       Sturcture size on the X-Axis
+     * @param sizeY       Sturcture size on the Y-Axis
+     * @param sizeZ       Sturcture size on the Z-Axis
+     * @param paletteSize the size of the palette
+     * @return the block storage
+     */
+    public static BlueprintBlockStorage convertSaveDataToStorage(final int[] ints, final short sizeX, final short sizeY, final short sizeZ, final int paletteSize)
+    {
+        final BlueprintBlockStorage storage = new BlueprintBlockStorage(sizeX, sizeY, sizeZ, paletteSize);
+        final int volume = storage.getVolume();
+
+        for (int i = 0; i < volume; i++)
+        {
+            final int packed = ints[i / 2];
+            storage.set(i, (i & 1) == 0 ? packed >>> 16 : packed & 0xFFFF);
+        }
+        return storage;
+    }
 }
@@ -0,0 +1,672 @@
+package com.ldtteam.structurize.blueprints.v1;
+
+import com.ldtteam.structurize.api.util.BlockPosUtil;
+import com.ldtteam.structurize.api.util.Log;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.level.block.state.BlockState;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static com.ldtteam.structurize.api.util.constant.Constants.MOD_ID;
+import static com.ldtteam.structurize.blueprints.v1.BlueprintUtil.DEFAULT_FIXER_IF_NOT_FOUND;
+import static com.ldtteam.structurize.blueprints.v1.BlueprintUtil.NBT_OPTIONAL_DATA_TAG;
+
+/**
+ * Random access blueprint file (format version 2).
+ * <p>
+ * Layout (big endian): magic, format version, size x/y/z, entry count, index table, payloads.
+ * Every index entry is: type, section, offset, compressed length, raw length. Every payload is deflated on its own:
+ * <ul>
+ * <li>{@link #ENTRY_HEADER}: the NBT of the v1 format without blocks, tile entities and entities (palette, name, mods, offset...).</li>
+ * <li>{@link #ENTRY_BLOCKS}: the palette indices (shorts, y, z, x order) of one 16x16x16 section, clipped to the blueprint size.</li>
+ * <li>{@link #ENTRY_TILE_ENTITIES}: the tile entities of one section, empty sections have no entry.</li>
+ * <li>{@link #ENTRY_ENTITIES}: all entities, missing if there are none.</li>
+ * </ul>
+ * Readers only touch the entries they need, so the header or a single section can be read without inflating the whole file.
+ * The v1 gzip NBT format stays the format of pack files and the exchange format (see {@link #convert(Path, Path)}),
+ * chunked files are written by the upgraded blueprint cache, which serves data fixed blueprints from them.
+ */
+public final class ChunkedBlueprintFile implements Closeable
+{
+    /**
+     * Magic number at the start of every chunked file ("SBP2"), gzip files never start with it.
+     */
+    public static final int MAGIC = 0x53425032;
+
+    /**
+     * The current format version.
+     */
+    public static final short FORMAT_VERSION = 2;
+
+    /**
+     * Side length of a block section.
+     */
+    public static final int SECTION_SIZE = 16;
+
+    /**
+     * Entry types.
+     */
+    public static final byte ENTRY_HEADER = 0, ENTRY_BLOCKS = 1, ENTRY_TILE_ENTITIES = 2, ENTRY_ENTITIES = 3;
+
+    /**
+     * Byte size of the fixed file header and of a single index entry.
+     */
+    private static final int FILE_HEADER_BYTES = Integer.BYTES + Short.BYTES * 4 + Integer.BYTES;
+    private static final int INDEX_ENTRY_BYTES = Byte.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    /**
+     * NBT key used to wrap lists into a compound.
+     */
+    private static final String TAG_LIST = "list";
+
+    /**
+     * The open file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The size of the blueprint.
+     */
+    private final short sizeX, sizeY, sizeZ;
+
+    /**
+     * The amount of sections on every axis.
+     */
+    private final int sectionsX, sectionsY, sectionsZ;
+
+    /**
+     * Index entries, sections are keyed by section index.
+     */
+    private IndexEntry header;
+    private IndexEntry entities;
+    private final Int2ObjectMap<IndexEntry> blockSections = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectMap<IndexEntry> tileEntitySections = new Int2ObjectOpenHashMap<>();
+
+    /**
+     * The decoded header, lazily read.
+     */
+    private CompoundTag headerTag;
+
+    private ChunkedBlueprintFile(final FileChannel channel) throws IOException
+    {
+        this.channel = channel;
+
+        final ByteBuffer fileHeader = readFully(0, FILE_HEADER_BYTES);
+        if (fileHeader.getInt() != MAGIC)
+        {
+            throw new IOException("Not a chunked blueprint file");
+        }
+        final short version = fileHeader.getShort();
+        if (version != FORMAT_VERSION)
+        {
+            throw new IOException("Unsupported chunked blueprint version: " + version);
+        }
+        this.sizeX = fileHeader.getShort();
+        this.sizeY = fileHeader.getShort();
+        this.sizeZ = fileHeader.getShort();
+        this.sectionsX = sections(sizeX);
+        this.sectionsY = sections(sizeY);
+        this.sectionsZ = sections(sizeZ);
+
+        final int entryCount = fileHeader.getInt();
+        final ByteBuffer index = readFully(FILE_HEADER_BYTES, entryCount * INDEX_ENTRY_BYTES);
+        for (int i = 0; i < entryCount; i++)
+        {
+            final IndexEntry entry = new IndexEntry(index.get(), index.getInt(), index.getLong(), index.getInt(), index.getInt());
+            switch (entry.type)
+            {
+                case ENTRY_HEADER -> header = entry;
+                case ENTRY_BLOCKS -> blockSections.put(entry.section, entry);
+                case ENTRY_TILE_ENTITIES -> tileEntitySections.put(entry.section, entry);
+                case ENTRY_ENTITIES -> entities = entry;
+                default -> Log.getLogger().warn("Unknown chunked blueprint entry type: " + entry.type);
+            }
+        }
+
+        if (header == null)
+        {
+            throw new IOException("Chunked blueprint file without header");
+        }
+    }
+
+    /**
+     * Opens a chunked blueprint file, only the index is read.
+     *
+     * @param path the file.
+     * @return the opened file, has to be closed.
+     * @throws IOException if it is not a valid chunked blueprint file.
+     */
+    public static ChunkedBlueprintFile open(final Path path) throws IOException
+    {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try
+        {
+            return new ChunkedBlueprintFile(channel);
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the x size of the blueprint.
+     */
+    public short getSizeX()
+    {
+        return sizeX;
+    }
+
+    /**
+     * @return the y size of the blueprint.
+     */
+    public short getSizeY()
+    {
+        return sizeY;
+    }
+
+    /**
+     * @return the z size of the blueprint.
+     */
+    public short getSizeZ()
+    {
+        return sizeZ;
+    }
+
+    /**
+     * Reads the header NBT: palette, name, architects, required mods, data version and optional data. Not data fixed.
+     *
+     * @return the raw header tag.
+     * @throws IOException if reading fails.
+     */
+    public CompoundTag readHeader() throws IOException
+    {
+        if (headerTag == null)
+        {
+            headerTag = readTag(header);
+        }
+        return headerTag;
+    }
+
+    /**
+     * Decodes a single block section into the given storage (which has the full blueprint size).
+     * Missing sections are left untouched (palette index 0).
+     *
+     * @param sectionX the section x coord.
+     * @param sectionY the section y coord.
+     * @param sectionZ the section z coord.
+     * @param target   the storage to decode into.
+     * @throws IOException if reading fails.
+     */
+    public void readBlockSection(final int sectionX, final int sectionY, final int sectionZ, final BlueprintBlockStorage target) throws IOException
+    {
+        final IndexEntry entry = blockSections.get(sectionIndex(sectionX, sectionY, sectionZ));
+        if (entry == null)
+        {
+            return;
+        }
+
+        final ByteBuffer data = ByteBuffer.wrap(inflate(entry));
+        final int minX = sectionX * SECTION_SIZE, minY = sectionY * SECTION_SIZE, minZ = sectionZ * SECTION_SIZE;
+        final int maxX = Math.min(sizeX, minX + SECTION_SIZE), maxY = Math.min(sizeY, minY + SECTION_SIZE), maxZ = Math.min(sizeZ, minZ + SECTION_SIZE);
+        for (int y = minY; y < maxY; y++)
+        {
+            for (int z = minZ; z < maxZ; z++)
+            {
+                for (int x = minX; x < maxX; x++)
+                {
+                    final int value = data.getShort() & 0xFFFF;
+                    if (value != 0)
+                    {
+                        target.set(x, y, z, value);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the palette index of a single block, only its section is inflated.
+     *
+     * @param x the x coord.
+     * @param y the y coord.
+     * @param z the z coord.
+     * @return the raw palette index or -1 if out of bounds.
+     * @throws IOException if reading fails.
+     */
+    public int readPaletteIndex(final int x, final int y, final int z) throws IOException
+    {
+        if (x < 0 || y < 0 || z < 0 || x >= sizeX || y >= sizeY || z >= sizeZ)
+        {
+            return -1;
+        }
+
+        final IndexEntry entry = blockSections.get(sectionIndex(x / SECTION_SIZE, y / SECTION_SIZE, z / SECTION_SIZE));
+        if (entry == null)
+        {
+            return 0;
+        }
+
+        final int minX = x / SECTION_SIZE * SECTION_SIZE, minY = y / SECTION_SIZE * SECTION_SIZE, minZ = z / SECTION_SIZE * SECTION_SIZE;
+        final int width = Math.min(sizeX, minX + SECTION_SIZE) - minX, depth = Math.min(sizeZ, minZ + SECTION_SIZE) - minZ;
+        final int index = ((y - minY) * depth + z - minZ) * width + x - minX;
+        return ByteBuffer.wrap(inflate(entry)).getShort(index * Short.BYTES) & 0xFFFF;
+    }
+
+    /**
+     * Reads the raw (not data fixed) tile entities of a single section.
+     *
+     * @param sectionX the section x coord.
+     * @param sectionY the section y coord.
+     * @param sectionZ the section z coord.
+     * @return the tile entities, empty if there are none.
+     * @throws IOException if reading fails.
+     */
+    public ListTag readTileEntitySection(final int sectionX, final int sectionY, final int sectionZ) throws IOException
+    {
+        final IndexEntry entry = tileEntitySections.get(sectionIndex(sectionX, sectionY, sectionZ));
+        return entry == null ? new ListTag() : readTag(entry).getList(TAG_LIST, Tag.TAG_COMPOUND);
+    }
+
+    /**
+     * Reads the raw (not data fixed) entities.
+     *
+     * @return the entities, empty if there are none.
+     * @throws IOException if reading fails.
+     */
+    public ListTag readEntities() throws IOException
+    {
+        return entities == null ? new ListTag() : readTag(entities).getList(TAG_LIST, Tag.TAG_COMPOUND);
+    }
+
+    /**
+     * Reads and data fixes the whole blueprint.
+     *
+     * @return the blueprint or null if the header version is not supported.
+     * @throws IOException if reading fails.
+     */
+    @Nullable
+    public Blueprint readBlueprint() throws IOException
+    {
+        final CompoundTag tag = readHeader().copy();
+        final BlueprintBlockStorage blocks = new BlueprintBlockStorage(sizeX, sizeY, sizeZ, tag.getList("palette", Tag.TAG_COMPOUND).size());
+        final ListTag tileEntities = new ListTag();
+        for (int sy = 0; sy < sectionsY; sy++)
+        {
+            for (int sz = 0; sz < sectionsZ; sz++)
+            {
+                for (int sx = 0; sx < sectionsX; sx++)
+                {
+                    readBlockSection(sx, sy, sz, blocks);
+                    tileEntities.addAll(readTileEntitySection(sx, sy, sz));
+                }
+            }
+        }
+
+        tag.put("tile_entities", tileEntities);
+        tag.put("entities", readEntities());
+        return BlueprintUtil.readBlueprintFromNBT(tag, blocks);
+    }
+
+    /**
+     * Reads only the metadata: the header entry plus the anchor section and its tile entities.
+     *
+     * @return the metadata or null if the header version is not supported.
+     * @throws IOException if reading fails.
+     */
+    @Nullable
+    public BlueprintMetadata readMetadata() throws IOException
+    {
+        final CompoundTag tag = readHeader();
+        if (tag.getByte("version") != 1)
+        {
+            return null;
+        }
+
+        final CompoundTag structurizeTag = tag.getCompound(NBT_OPTIONAL_DATA_TAG).getCompound(MOD_ID);
+        if (!structurizeTag.contains("primary_offset"))
+        {
+            final Blueprint blueprint = readBlueprint();
+            return blueprint == null ? null : BlueprintMetadata.of(blueprint);
+        }
+
+        final BlockPos offset = BlockPosUtil.readFromNBT(structurizeTag, "primary_offset");
+        final int oldDataVersion = tag.contains("mcversion") ? tag.getInt("mcversion") : DEFAULT_FIXER_IF_NOT_FOUND;
+
+        final List<String> requiredMods = new ArrayList<>();
+        final ListTag modsList = tag.getList("required_mods", Tag.TAG_STRING);
+        for (int i = 0; i < modsList.size(); i++)
+        {
+            requiredMods.add(modsList.getString(i));
+        }
+
+        String[] architects = null;
+        if (tag.contains("architects"))
+        {
+            final ListTag architectsTag = tag.getList("architects", Tag.TAG_STRING);
+            architects = new String[architectsTag.size()];
+            for (int i = 0; i < architectsTag.size(); i++)
+            {
+                architects[i] = architectsTag.getString(i);
+            }
+        }
+
+        BlockState anchorState = null;
+        CompoundTag anchorData = null;
+        final int paletteIndex = readPaletteIndex(offset.getX(), offset.getY(), offset.getZ());
+        if (paletteIndex >= 0)
+        {
+            final ListTag paletteTag = tag.getList("palette", Tag.TAG_COMPOUND);
+            if (paletteIndex < paletteTag.size())
+            {
+                final ListTag single = new ListTag();
+                single.add(paletteTag.getCompound(paletteIndex));
+                anchorState = BlueprintUtil.fixPalette(oldDataVersion, single).get(0);
+            }
+
+            final ListTag tileEntities = readTileEntitySection(offset.getX() / SECTION_SIZE, offset.getY() / SECTION_SIZE, offset.getZ() / SECTION_SIZE);
+            for (int i = 0; i < tileEntities.size(); i++)
+            {
+                final CompoundTag te = tileEntities.getCompound(i);
+                if (te.getInt("x") == offset.getX() && te.getInt("y") == offset.getY() && te.getInt("z") == offset.getZ())
+                {
+                    final ListTag single = new ListTag();
+                    single.add(te);
+                    anchorData = BlueprintUtil.fixTileEntities(oldDataVersion, single)[0];
+                    break;
+                }
+            }
+        }
+
+        return new BlueprintMetadata(sizeX,
+          sizeY,
+          sizeZ,
+          tag.contains("name") ? tag.getString("name") : null,
+          architects,
+          requiredMods,
+          offset,
+          anchorState,
+          anchorData);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Writes a blueprint in the chunked format.
+     *
+     * @param blueprint the blueprint to write.
+     * @param path      the target file, replaced if it exists.
+     * @throws IOException if writing fails.
+     */
+    public static void write(final Blueprint blueprint, final Path path) throws IOException
+    {
+        final short sizeX = blueprint.getSizeX(), sizeY = blueprint.getSizeY(), sizeZ = blueprint.getSizeZ();
+        final int sectionsX = sections(sizeX), sectionsY = sections(sizeY), sectionsZ = sections(sizeZ);
+        final BlueprintBlockStorage blocks = blueprint.getBlockStorage();
+
+        final Int2ObjectMap<ListTag> tileEntitiesBySection = new Int2ObjectOpenHashMap<>();
+        for (final CompoundTag te : blueprint.getTileEntitiesByPos().values())
+        {
+            final int section = (te.getInt("y") / SECTION_SIZE * sectionsZ + te.getInt("z") / SECTION_SIZE) * sectionsX + te.getInt("x") / SECTION_SIZE;
+            tileEntitiesBySection.computeIfAbsent(section, s -> new ListTag()).add(te);
+        }
+
+        final List<IndexEntry> entries = new ArrayList<>();
+        final List<byte[]> payloads = new ArrayList<>();
+        final Deflater deflater = new Deflater();
+        try
+        {
+            addEntry(entries, payloads, deflater, ENTRY_HEADER, 0, writeTag(BlueprintUtil.writeBlueprintHeaderToNBT(blueprint)));
+
+            for (int sy = 0; sy < sectionsY; sy++)
+            {
+                for (int sz = 0; sz < sectionsZ; sz++)
+                {
+                    for (int sx = 0; sx < sectionsX; sx++)
+                    {
+                        final int section = (sy * sectionsZ + sz) * sectionsX + sx;
+                        final byte[] raw = writeBlockSection(blocks, sx, sy, sz);
+                        if (raw != null)
+                        {
+                            addEntry(entries, payloads, deflater, ENTRY_BLOCKS, section, raw);
+                        }
+
+                        final ListTag tileEntities = tileEntitiesBySection.get(section);
+                        if (tileEntities != null)
+                        {
+                            addEntry(entries, payloads, deflater, ENTRY_TILE_ENTITIES, section, writeList(tileEntities));
+                        }
+                    }
+                }
+            }
+
+            final CompoundTag[] entities = blueprint.getEntities();
+            if (entities.length > 0)
+            {
+                final ListTag entityList = new ListTag();
+                entityList.addAll(Arrays.asList(entities));
+                addEntry(entries, payloads, deflater, ENTRY_ENTITIES, 0, writeList(entityList));
+            }
+        }
+        finally
+        {
+            deflater.end();
+        }
+
+        long offset = FILE_HEADER_BYTES + (long) entries.size() * INDEX_ENTRY_BYTES;
+        try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)))
+        {
+            output.writeInt(MAGIC);
+            output.writeShort(FORMAT_VERSION);
+            output.writeShort(sizeX);
+            output.writeShort(sizeY);
+            output.writeShort(sizeZ);
+            output.writeInt(entries.size());
+            for (final IndexEntry entry : entries)
+            {
+                output.writeByte(entry.type);
+                output.writeInt(entry.section);
+                output.writeLong(offset);
+                output.writeInt(entry.length);
+                output.writeInt(entry.rawLength);
+                offset += entry.length;
+            }
+            for (final byte[] payload : payloads)
+            {
+                output.write(payload);
+            }
+        }
+    }
+
+    /**
+     * Converts a v1 (gzip NBT) blueprint file to the chunked format.
+     *
+     * @param source the v1 file.
+     * @param target the chunked file to write.
+     * @return false if the source could not be read.
+     * @throws IOException if reading or writing fails.
+     */
+    public static boolean convert(final Path source, final Path target) throws IOException
+    {
+        final Blueprint blueprint;
+        try (final InputStream input = Files.newInputStream(source))
+        {
+            blueprint = BlueprintUtil.readBlueprintFromStream(input);
+        }
+        if (blueprint == null)
+        {
+            return false;
+        }
+        write(blueprint, target);
+        return true;
+    }
+
+    /**
+     * Serializes the palette indices of a single section, null if the section is all palette index 0.
+     */
+    @Nullable
+    private static byte[] writeBlockSection(final BlueprintBlockStorage blocks, final int sectionX, final int sectionY, final int sectionZ)
+    {
+        final int minX = sectionX * SECTION_SIZE, minY = sectionY * SECTION_SIZE, minZ = sectionZ * SECTION_SIZE;
+        final int maxX = Math.min(blocks.getSizeX(), minX + SECTION_SIZE);
+        final int maxY = Math.min(blocks.getSizeY(), minY + SECTION_SIZE);
+        final int maxZ = Math.min(blocks.getSizeZ(), minZ + SECTION_SIZE);
+        final ByteBuffer data = ByteBuffer.allocate((maxX - minX) * (maxY - minY) * (maxZ - minZ) * Short.BYTES);
+        boolean empty = true;
+        for (int y = minY; y < maxY; y++)
+        {
+            for (int z = minZ; z < maxZ; z++)
+            {
+                for (int x = minX; x < maxX; x++)
+                {
+                    final int value = blocks.get(x, y, z);
+                    empty &= value == 0;
+                    data.putShort((short) value);
+                }
+            }
+        }
+        return empty ? null : data.array();
+    }
+
+    private static void addEntry(
+      final List<IndexEntry> entries,
+      final List<byte[]> payloads,
+      final Deflater deflater,
+      final byte type,
+      final int section,
+      final byte[] raw)
+    {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        final byte[] buffer = new byte[1 << 13];
+        while (!deflater.finished())
+        {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+
+        final byte[] payload = compressed.toByteArray();
+        entries.add(new IndexEntry(type, section, 0, payload.length, raw.length));
+        payloads.add(payload);
+    }
+
+    private static byte[] writeList(final ListTag list) throws IOException
+    {
+        final CompoundTag wrapper = new CompoundTag();
+        wrapper.put(TAG_LIST, list);
+        return writeTag(wrapper);
+    }
+
+    private static byte[] writeTag(final CompoundTag tag) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream output = new DataOutputStream(bytes))
+        {
+            NbtIo.write(tag, output);
+        }
+        return bytes.toByteArray();
+    }
+
+    private CompoundTag readTag(final IndexEntry entry) throws IOException
+    {
+        try (final DataInputStream input = new DataInputStream(new ByteArrayInputStream(inflate(entry))))
+        {
+            return NbtIo.read(input, NbtAccounter.UNLIMITED);
+        }
+    }
+
+    /**
+     * Reads and inflates the payload of an entry.
+     */
+    private byte[] inflate(final IndexEntry entry) throws IOException
+    {
+        final ByteBuffer compressed = readFully(entry.offset, entry.length);
+        final byte[] raw = new byte[entry.rawLength];
+        final Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(compressed);
+            int read = 0;
+            while (read < raw.length && !inflater.finished())
+            {
+                final int inflated = inflater.inflate(raw, read, raw.length - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    break;
+                }
+                read += inflated;
+            }
+            if (read != raw.length)
+            {
+                throw new IOException("Truncated chunked blueprint entry, type: " + entry.type + " section: " + entry.section);
+            }
+        }
+        catch (final DataFormatException e)
+        {
+            throw new IOException("Corrupt chunked blueprint entry, type: " + entry.type + " section: " + entry.section, e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    /**
+     * Positional read of the given range, does not move the channel position.
+     */
+    private ByteBuffer readFully(final long position, final int length) throws IOException
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new EOFException("Unexpected end of chunked blueprint file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private int sectionIndex(final int sectionX, final int sectionY, final int sectionZ)
+    {
+        return (sectionY * sectionsZ + sectionZ) * sectionsX + sectionX;
+    }
+
+    private static int sections(final int size)
+    {
+        return (size + SECTION_SIZE - 1) / SECTION_SIZE;
+    }
+
+    /**
+     * A single entry of the index table.
+     */
+    private record IndexEntry(byte type, int section, long offset, int length, int rawLength)
+    {
+    }
+}
@@ -213,7 +213,7 @@ public class FakeLevel extends Level
     @Override
     public BlockState getBlockState(final BlockPos pos)
     {
-        return levelSource.isPosInside(pos) ? levelSource.getBlockState(pos) : Blocks.AIR.defaultBlockState();
+        return levelSource.isPosInside(pos) ? levelSource.getBlockState(pos.getX(), pos.getY(), pos.getZ()) : Blocks.AIR.defaultBlockState();
     }
 
     @Override
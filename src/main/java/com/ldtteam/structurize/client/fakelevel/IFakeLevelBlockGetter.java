@@ -102,6 +102,17 @@ public interface IFakeLevelBlockGetter extends BlockGetter
     default void describeSelfInCrashReport(final CrashReportCategory category)
     {}
 
+    /**
+     * Coordinate based lookup, implementations backed by arrays should override this to avoid pos allocations and hashing.
+     *
+     * @return blockstate at given coords
+     * @see    #getBlockState(BlockPos)
+     */
+    default BlockState getBlockState(final int x, final int y, final int z)
+    {
+        return getBlockState(new BlockPos(x, y, z));
+    }
+
     /**
      * @return null if pos is outside of aabb
      */
@@ -14,16 +14,20 @@ import com.ldtteam.structurize.blocks.interfaces.ILeveledBlueprintAnchorBlock;
 import com.ldtteam.structurize.blocks.interfaces.INamedBlueprintAnchorBlock;
 import com.ldtteam.structurize.blocks.interfaces.IRequirementsBlueprintAnchorBlock;
 import com.ldtteam.structurize.blueprints.v1.Blueprint;
+import com.ldtteam.structurize.blueprints.v1.BlueprintMetadata;
 import com.ldtteam.structurize.blueprints.v1.BlueprintTagUtils;
 import com.ldtteam.structurize.network.messages.BuildToolPlacementMessage;
-import com.ldtteam.structurize.network.messages.SyncPreviewCacheToServer;
+import com.ldtteam.structurize.storage.BlueprintPrefetcher;
 import com.ldtteam.structurize.storage.StructurePackMeta;
 import com.ldtteam.structurize.storage.StructurePacks;
+import com.ldtteam.structurize.storage.rendering.ClientPreviewSync;
 import com.ldtteam.structurize.storage.rendering.RenderingCache;
 import com.ldtteam.structurize.storage.rendering.types.BlueprintPreviewData;
+import com.ldtteam.structurize.util.IOPool;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.Minecraft;
 import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.MutableComponent;
 import net.minecraft.network.chat.Style;
@@ -49,13 +53,13 @@ import static com.ldtteam.structurize.api.util.constant.WindowConstants.BUTTON_C
 public final class WindowExtendedBuildTool extends AbstractBlueprintManipulationWindow
 {
     /**
-     * Default block requirement check
+     * Default block requirement check, only needs the header of a blueprint.
      */
-    public static final Predicate<Blueprint> BLOCK_BLUEPRINT_REQUIREMENT = blueprint ->
+    public static final Predicate<BlueprintMetadata> BLOCK_BLUEPRINT_REQUIREMENT = metadata ->
     {
-        final BlockState anchor = blueprint.getBlockState(blueprint.getPrimaryBlockOffset());
+        final BlockState anchor = metadata.getAnchorState();
 
-        if (anchor.getBlock() instanceof final IRequirementsBlueprintAnchorBlock requirements)
+        if (anchor != null && anchor.getBlock() instanceof final IRequirementsBlueprintAnchorBlock requirements)
         {
             return requirements.areRequirementsMet(Minecraft.getInstance().level,
               RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getPos(),
@@ -113,15 +117,15 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
     private static final Map<String, Future<List<StructurePacks.Category>>> nextDepthMeta = new LinkedHashMap<>();
 
     /**
-     * Blueprints at depth.
+     * Headers of the blueprints at depth, the listing never decodes a full blueprint.
      */
-    private static final Map<String, Future<List<Blueprint>>> blueprintsAtDepth = new LinkedHashMap<>();
+    private static final Map<String, Future<List<BlueprintMetadata>>> blueprintsAtDepth = new LinkedHashMap<>();
 
     /**
      * Current blueprint mapping from depth to processed blueprints.
      * Depth -> Named -> Leveled.
      */
-    private static final Map<String, Map<String, Map<String, List<Blueprint>>>> currentBluePrintMappingAtDepthCache = new LinkedHashMap<>();
+    private static final Map<String, Map<String, Map<String, List<BlueprintMetadata>>>> currentBluePrintMappingAtDepthCache = new LinkedHashMap<>();
 
     /**
      * Current blueprint category.
@@ -138,10 +142,22 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
      */
     public Blueprint selectedBlueprint= null;
 
+    /**
+     * The full blueprint of the selected entry while it loads.
+     */
+    @Nullable
+    private Future<Blueprint> selectedBlueprintFuture = null;
+
+    /**
+     * Header of the selected entry while its full blueprint loads.
+     */
+    @Nullable
+    private BlueprintMetadata selectedMetadata = null;
+
     /**
      * Predicate dictating which blueprints are shown
      */
-    private final Predicate<Blueprint> availableBlueprintPredicate;
+    private final Predicate<BlueprintMetadata> availableBlueprintPredicate;
 
     /**
      * Type of button.
@@ -169,13 +185,13 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
      * @param pos                         coordinate.
      * @param groundstyle                 one of the GROUNDSTYLE_ values.
      * @param selectionCallback           callback which gets triggered on confirm clicked if a blueprint is selected
-     * @param availableBlueprintPredicate
+     * @param availableBlueprintPredicate which blueprints can be built, tested against their header only
      */
     public WindowExtendedBuildTool(
       final BlockPos pos,
       final int groundstyle,
       @Nullable final BiConsumer<WindowExtendedBuildTool, Blueprint> selectionCallback,
-      @Nullable final Predicate<Blueprint> availableBlueprintPredicate)
+      @Nullable final Predicate<BlueprintMetadata> availableBlueprintPredicate)
     {
         super(MOD_ID + BUILD_TOOL_RESOURCE_SUFFIX, pos, groundstyle, "blueprint");
         this.selectionCallback = selectionCallback;
@@ -217,6 +233,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         {
             depth = "";
             currentBluePrintMappingAtDepthCache.clear();
+            cancelPendingFutures();
             blueprintsAtDepth.clear();
             nextDepthMeta.clear();
             categoryFutures = null;
@@ -254,7 +271,9 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
                        : ("/" + RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getBlueprint().getFileName())))
               .setStyle(Style.EMPTY.withBold(true)));
         }
+        IOPool.cancel(categoryFutures);
         categoryFutures = StructurePacks.getCategoriesFuture(structurePack.getName(), "");
+        BlueprintPrefetcher.prefetch(structurePack, depth);
         findPaneOfTypeByID("manipulator", View.class).setVisible(RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getBlueprint() != null);
 
         if (!currentBlueprintCat.isEmpty())
@@ -295,7 +314,8 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         BlueprintPreviewData previewData = RenderingCache.removeBlueprint("blueprint");
         previewData.setBlueprint(null);
         previewData.setPos(BlockPos.ZERO);
-        Network.getNetwork().sendToServer(new SyncPreviewCacheToServer(previewData));
+        ClientPreviewSync.schedule(previewData);
+        ClientPreviewSync.flush();
 
 
         close();
@@ -383,11 +403,11 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
 
                     if (category.isTerminal)
                     {
-                        blueprintsAtDepth.put(id, StructurePacks.getBlueprintsFuture(structurePack.getName(), id));
+                        putFuture(blueprintsAtDepth, id, StructurePacks.getBlueprintsMetadataFuture(structurePack.getName(), id));
                     }
                     else
                     {
-                        nextDepthMeta.put(id, StructurePacks.getCategoriesFuture(structurePack.getName(), id));
+                        putFuture(nextDepthMeta, id, StructurePacks.getCategoriesFuture(structurePack.getName(), id));
                     }
 
                     index++;
@@ -411,7 +431,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
                     if (subCats.isEmpty())
                     {
                         nextDepthMeta.remove(nextDepth);
-                        blueprintsAtDepth.put(nextDepth, StructurePacks.getBlueprintsFuture(id, nextDepth));
+                        putFuture(blueprintsAtDepth, nextDepth, StructurePacks.getBlueprintsMetadataFuture(structurePack.getName(), nextDepth));
                     }
                     else
                     {
@@ -420,11 +440,11 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
                             final String id = subCat.subPath;
                             if (subCat.isTerminal)
                             {
-                                blueprintsAtDepth.put(id, StructurePacks.getBlueprintsFuture(structurePack.getName(), id));
+                                putFuture(blueprintsAtDepth, id, StructurePacks.getBlueprintsMetadataFuture(structurePack.getName(), id));
                             }
                             else
                             {
-                                nextDepthMeta.put(id, StructurePacks.getCategoriesFuture(structurePack.getName(), id));
+                                putFuture(nextDepthMeta, id, StructurePacks.getCategoriesFuture(structurePack.getName(), id));
                             }
                         }
                         updateFolders(subCats, null);
@@ -439,7 +459,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         }
         else if (!nextDepth.isEmpty() && blueprintsAtDepth.containsKey(nextDepth))
         {
-            final Future<List<Blueprint>> blueprints = blueprintsAtDepth.get(nextDepth);
+            final Future<List<BlueprintMetadata>> blueprints = blueprintsAtDepth.get(nextDepth);
             if (blueprints.isDone())
             {
                 try
@@ -453,6 +473,47 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
                 }
             }
         }
+
+        if (selectedBlueprintFuture != null && selectedBlueprintFuture.isDone())
+        {
+            final BlueprintMetadata metadata = selectedMetadata;
+            try
+            {
+                final Blueprint blueprint = selectedBlueprintFuture.get();
+                if (blueprint != null)
+                {
+                    applyBlueprint(blueprint, metadata);
+                }
+            }
+            catch (InterruptedException | ExecutionException e)
+            {
+                Log.getLogger().error("Unable to load blueprint: " + metadata, e);
+            }
+            selectedBlueprintFuture = null;
+            selectedMetadata = null;
+        }
+    }
+
+    /**
+     * Store a future, a pending future it replaces is cancelled.
+     *
+     * @param futures the future map.
+     * @param id      the category id.
+     * @param future  the new future.
+     */
+    private static <T> void putFuture(final Map<String, Future<T>> futures, final String id, final Future<T> future)
+    {
+        IOPool.cancel(futures.put(id, future));
+    }
+
+    /**
+     * Cancel all pending requests, they are superseded.
+     */
+    private static void cancelPendingFutures()
+    {
+        IOPool.cancel(categoryFutures);
+        nextDepthMeta.values().forEach(IOPool::cancel);
+        blueprintsAtDepth.values().forEach(IOPool::cancel);
     }
 
     @Override
@@ -566,10 +627,10 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
     /**
      * Update the displayed blueprints.
      *
-     * @param inputBluePrints the blueprints to display.
+     * @param inputBluePrints the headers of the blueprints to display.
      * @param depth           the depth they're at.
      */
-    public void updateBlueprints(final List<Blueprint> inputBluePrints, final String depth)
+    public void updateBlueprints(final List<BlueprintMetadata> inputBluePrints, final String depth)
     {
         blueprintList.enable();
         blueprintList.show();
@@ -590,22 +651,20 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
             blueprints.add(new ButtonData(ButtonType.Back, parentCat));
         }
 
-        final Map<String, List<Blueprint>> blueprintMapping = new LinkedHashMap<>();
+        final Map<String, List<BlueprintMetadata>> blueprintMapping = new LinkedHashMap<>();
 
-        for (final Blueprint blueprint : inputBluePrints)
+        for (final BlueprintMetadata blueprint : inputBluePrints)
         {
-            final BlockState anchor = blueprint.getBlockState(blueprint.getPrimaryBlockOffset());
+            final BlockState anchor = blueprint.getAnchorState();
             if (!Minecraft.getInstance().player.isCreative() && BlueprintTagUtils.isInvisible(blueprint))
             {
                 continue;
             }
 
             final String name;
-            if (anchor.getBlock() instanceof ILeveledBlueprintAnchorBlock leveledAnchor)
+            if (anchor != null && anchor.getBlock() instanceof ILeveledBlueprintAnchorBlock leveledAnchor)
             {
-                final int level =
-                  leveledAnchor.getLevel(blueprint.getTileEntityData(RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getPos(),
-                    blueprint.getPrimaryBlockOffset()));
+                final int level = leveledAnchor.getLevel(getAnchorData(blueprint, RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getPos()));
                 final String tempName = getCustomName(blueprint, blueprint.getFileName().replace(Integer.toString(level), ""));
                 name = tempName.isEmpty() ? getCustomName(blueprint, blueprint.getFileName()) : tempName;
             }
@@ -614,19 +673,19 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
                 name = getCustomName(blueprint, blueprint.getFileName());
             }
 
-            final List<Blueprint> blueprintList = blueprintMapping.getOrDefault(name, new ArrayList<>());
+            final List<BlueprintMetadata> blueprintList = blueprintMapping.getOrDefault(name, new ArrayList<>());
             blueprintList.add(blueprint);
             blueprintMapping.put(name, blueprintList);
         }
 
-        final Map<String, Map<String, List<Blueprint>>> altBlueprintMapping = new LinkedHashMap<>();
+        final Map<String, Map<String, List<BlueprintMetadata>>> altBlueprintMapping = new LinkedHashMap<>();
 
-        for (final Map.Entry<String, List<Blueprint>> entry : blueprintMapping.entrySet())
+        for (final Map.Entry<String, List<BlueprintMetadata>> entry : blueprintMapping.entrySet())
         {
-            final Blueprint blueprint = entry.getValue().get(0);
-            final BlockState anchor = blueprint.getBlockState(blueprint.getPrimaryBlockOffset());
+            final BlueprintMetadata blueprint = entry.getValue().get(0);
+            final BlockState anchor = blueprint.getAnchorState();
             final String name;
-            if (anchor.getBlock() instanceof INamedBlueprintAnchorBlock)
+            if (anchor != null && anchor.getBlock() instanceof INamedBlueprintAnchorBlock)
             {
                 name = anchor.getBlock().getDescriptionId();
             }
@@ -635,14 +694,14 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
                 name = entry.getKey();
             }
 
-            final Map<String, List<Blueprint>> tempLeveledBlueprints = altBlueprintMapping.getOrDefault(name, new LinkedHashMap<>());
+            final Map<String, List<BlueprintMetadata>> tempLeveledBlueprints = altBlueprintMapping.getOrDefault(name, new LinkedHashMap<>());
             tempLeveledBlueprints.put(entry.getKey(), entry.getValue());
             altBlueprintMapping.put(name, tempLeveledBlueprints);
         }
 
         currentBluePrintMappingAtDepthCache.put(depth, altBlueprintMapping);
 
-        for (final Map.Entry<String, Map<String, List<Blueprint>>> entry : altBlueprintMapping.entrySet())
+        for (final Map.Entry<String, Map<String, List<BlueprintMetadata>>> entry : altBlueprintMapping.entrySet())
         {
             blueprints.add(new ButtonData(ButtonType.Blueprint, entry.getKey()));
         }
@@ -701,7 +760,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
      *
      * @param bluePrintMapping the mapping of blueprint name to leveled blueprints.
      */
-    public void updateAlternatives(final Map<String, List<Blueprint>> bluePrintMapping, final String depth)
+    public void updateAlternatives(final Map<String, List<BlueprintMetadata>> bluePrintMapping, final String depth)
     {
         alternativesList.enable();
         alternativesList.show();
@@ -710,7 +769,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         settingsList.hide();
         settingsList.disable();
 
-        final List<Map.Entry<String, List<Blueprint>>> list = new ArrayList<>(bluePrintMapping.entrySet());
+        final List<Map.Entry<String, List<BlueprintMetadata>>> list = new ArrayList<>(bluePrintMapping.entrySet());
 
         alternativesList.setDataProvider(new ScrollingList.DataProvider()
         {
@@ -746,7 +805,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
      *
      * @param blueprints the different blueprint levels.
      */
-    public void updateLevels(final List<Blueprint> blueprints, final String depth, final boolean hasAlternatives)
+    public void updateLevels(final List<BlueprintMetadata> blueprints, final String depth, final boolean hasAlternatives)
     {
         levelsList.enable();
         levelsList.show();
@@ -830,12 +889,12 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
             }
             img.setID(depth + ":" + id);
 
-            final Map<String, List<Blueprint>> blueprintMap = currentBluePrintMappingAtDepthCache.get(depth).get(id);
-            final Blueprint firstBlueprint = blueprintMap.values().iterator().next().get(0);
+            final Map<String, List<BlueprintMetadata>> blueprintMap = currentBluePrintMappingAtDepthCache.get(depth).get(id);
+            final BlueprintMetadata firstBlueprint = blueprintMap.values().iterator().next().get(0);
 
-            final BlockState anchor = firstBlueprint.getBlockState(firstBlueprint.getPrimaryBlockOffset());
+            final BlockState anchor = firstBlueprint.getAnchorState();
             final List<MutableComponent> toolTip = new ArrayList<>();
-            if (anchor.getBlock() instanceof INamedBlueprintAnchorBlock namedBlock)
+            if (anchor != null && anchor.getBlock() instanceof INamedBlueprintAnchorBlock namedBlock)
             {
                 img.setText(namedBlock.getBlueprintDisplayName());
                 toolTip.addAll(namedBlock.getDesc());
@@ -849,11 +908,12 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
             img.setVisible(true);
 
             boolean hasMatch = false;
-            for (final List<Blueprint> blueprints : blueprintMap.values())
+            final Blueprint previewed = RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getBlueprint();
+            for (final List<BlueprintMetadata> blueprints : blueprintMap.values())
             {
-                for (final Blueprint blueprint : blueprints)
+                for (final BlueprintMetadata blueprint : blueprints)
                 {
-                    if (blueprint.equals(RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getBlueprint()))
+                    if (isSameFile(blueprint, previewed))
                     {
                         hasMatch = true;
                         break;
@@ -867,7 +927,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
 
             if (availableBlueprintPredicate != null && !availableBlueprintPredicate.test(firstBlueprint))
             {
-                if (anchor.getBlock() instanceof final IRequirementsBlueprintAnchorBlock requirements)
+                if (anchor != null && anchor.getBlock() instanceof final IRequirementsBlueprintAnchorBlock requirements)
                 {
                     toolTip.addAll(requirements.getRequirements(Minecraft.getInstance().level, RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getPos(), Minecraft.getInstance().player));
                 }
@@ -891,14 +951,52 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         }
     }
 
+    /**
+     * Check if a listed blueprint is the file of a loaded blueprint.
+     *
+     * @param metadata  the header of the listed blueprint
+     * @param blueprint the loaded blueprint, may be null
+     * @return          true if both are the same file
+     */
+    private static boolean isSameFile(final BlueprintMetadata metadata, @Nullable final Blueprint blueprint)
+    {
+        return blueprint != null
+                 && Objects.equals(metadata.getFileName(), blueprint.getFileName())
+                 && Objects.equals(metadata.getFilePath(), blueprint.getFilePath())
+                 && Objects.equals(metadata.getPackName(), blueprint.getPackName());
+    }
+
+    /**
+     * Get the anchor block entity data of a blueprint as it would be placed.
+     *
+     * @param metadata the header of the blueprint
+     * @param worldPos the world position of the anchor, may be null
+     * @return         the data with world coords, null if the anchor has none
+     */
+    @Nullable
+    private static CompoundTag getAnchorData(final BlueprintMetadata metadata, @Nullable final BlockPos worldPos)
+    {
+        if (metadata.getAnchorData() == null)
+        {
+            return null;
+        }
+
+        final CompoundTag te = metadata.getAnchorData().copy();
+        final BlockPos tePos = worldPos == null ? metadata.getPrimaryBlockOffset() : metadata.getPrimaryBlockOffset().offset(worldPos);
+        te.putInt("x", tePos.getX());
+        te.putInt("y", tePos.getY());
+        te.putInt("z", tePos.getZ());
+        return te;
+    }
+
     /**
      * Determine the display names of the given blueprint.
      *
-     * @param blueprint   the blueprint
+     * @param blueprint   the blueprint header
      * @param defaultName the name to use if the blueprint doesn't have a custom name
      * @return            its custom name, or a default name
      */
-    private String getCustomName(final Blueprint blueprint, final String defaultName)
+    private String getCustomName(final BlueprintMetadata blueprint, final String defaultName)
     {
         final Map<BlockPos, List<String>> tagPosMap = BlueprintTagUtils.getBlueprintTags(blueprint);
         final Optional<String> nameTag = tagPosMap.getOrDefault(BlockPos.ZERO, new ArrayList<>()).stream()
@@ -967,6 +1065,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
             updateFolders(Collections.emptyList(), null);
             updateBlueprints(Collections.emptyList(), "");
             depth = nextDepth;
+            BlueprintPrefetcher.prefetch(structurePack, depth);
             findPaneOfTypeByID("tree", Text.class).setText(Component.literal(structurePack.getName() + "/" + nextDepth).setStyle(Style.EMPTY.withBold(true)));
             if (nextDepth.contains("/"))
             {
@@ -988,6 +1087,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
             updateFolders(Collections.emptyList(), null);
             updateBlueprints(Collections.emptyList(), "");
             depth = nextDepth;
+            BlueprintPrefetcher.prefetch(structurePack, depth);
             findPaneOfTypeByID("tree", Text.class).setText(Component.literal(structurePack.getName() + "/" + nextDepth).setStyle(Style.EMPTY.withBold(true)));
             if (nextDepth.contains("/"))
             {
@@ -1040,7 +1140,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
     {
         final String[] split = categoryId.split(":");
         final String id = split[1];
-        final Map<String, List<Blueprint>> mapping = currentBluePrintMappingAtDepthCache.get(split[0]).get(id);
+        final Map<String, List<BlueprintMetadata>> mapping = currentBluePrintMappingAtDepthCache.get(split[0]).get(id);
         if (mapping == null)
         {
             Log.getLogger().error("Invalid blueprint name at depth: " + categoryId);
@@ -1068,7 +1168,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
             else
             {
                 updateAlternatives(Collections.emptyMap(), categoryId);
-                final List<Blueprint> leveled = mapping.values().iterator().next();
+                final List<BlueprintMetadata> leveled = mapping.values().iterator().next();
 
                 if (RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getBlueprint() == null || !onOpen)
                 {
@@ -1079,7 +1179,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         }
         else if (split.length == 3)
         {
-            final List<Blueprint> list = mapping.get(split[2]);
+            final List<BlueprintMetadata> list = mapping.get(split[2]);
             if (list == null || list.isEmpty())
             {
                 Log.getLogger().error("Invalid blueprint name at depth: " + categoryId);
@@ -1101,7 +1201,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         }
         else if (split.length == 4)
         {
-            final List<Blueprint> list = mapping.get(split[2]);
+            final List<BlueprintMetadata> list = mapping.get(split[2]);
             if (list == null || list.isEmpty())
             {
                 Log.getLogger().error("Invalid blueprint name at depth: " + categoryId);
@@ -1126,18 +1226,48 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         updateFolders(Collections.emptyList(), split[0]);
     }
 
-    private void setBlueprint(Blueprint blueprint)
+    /**
+     * Select a listed blueprint, only now its full blueprint is loaded.
+     *
+     * @param metadata the header of the blueprint.
+     */
+    private void setBlueprint(final BlueprintMetadata metadata)
     {
-        final BlueprintPreviewData data = RenderingCache.getOrCreateBlueprintPreviewData("blueprint");
+        findPaneOfTypeByID("tree", Text.class).setText(Component.literal(structurePack.getName() + "/" + depth + "/" + metadata.getFileName()).setStyle(Style.EMPTY.withBold(true)));
+        IOPool.cancel(selectedBlueprintFuture);
+        selectedBlueprintFuture = null;
+        selectedMetadata = null;
+
+        final Blueprint previewed = RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getBlueprint();
+        if (isSameFile(metadata, previewed))
+        {
+            applyBlueprint(previewed, metadata);
+            return;
+        }
 
-        findPaneOfTypeByID("tree", Text.class).setText(Component.literal(structurePack.getName() + "/" + depth + "/" + blueprint.getFileName()).setStyle(Style.EMPTY.withBold(true)));
+        // confirming is only possible once the blueprint is there
+        findPaneOfTypeByID(BUTTON_CONFIRM, Button.class).setVisible(false);
+        selectedMetadata = metadata;
+        selectedBlueprintFuture = StructurePacks.getBlueprintFuture(metadata.getPackName(), metadata.getFilePath().resolve(metadata.getFileName() + ".blueprint"));
+    }
+
+    /**
+     * Show a loaded blueprint in the preview.
+     *
+     * @param blueprint the blueprint.
+     * @param metadata  its header.
+     */
+    private void applyBlueprint(final Blueprint blueprint, final BlueprintMetadata metadata)
+    {
+        final BlueprintPreviewData data = RenderingCache.getOrCreateBlueprintPreviewData("blueprint");
         data.setBlueprint(blueprint);
         adjustToGroundOffset();
         selectedBlueprint = blueprint;
 
-        final boolean canBuild = availableBlueprintPredicate == null || availableBlueprintPredicate.test(blueprint);
+        final boolean canBuild = availableBlueprintPredicate == null || availableBlueprintPredicate.test(metadata);
 
         findPaneOfTypeByID(BUTTON_CONFIRM, Button.class).setVisible(canBuild);
+        findPaneOfTypeByID("manipulator", View.class).setVisible(true);
     }
 
     /**
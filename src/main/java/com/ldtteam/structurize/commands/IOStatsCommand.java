@@ -0,0 +1,63 @@
+package com.ldtteam.structurize.commands;
+
+import com.ldtteam.structurize.network.messages.splitting.SplitPacketCompression;
+import com.ldtteam.structurize.util.IOPool;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.network.chat.Component;
+
+import java.util.Locale;
+
+/**
+ * Command to show the queue depth and latency of the {@link IOPool} lanes and the network compression ratio.
+ */
+public class IOStatsCommand extends AbstractCommand
+{
+    /**
+     * Descriptive string.
+     */
+    public final static String commandName = "ioStats";
+
+    /**
+     * The reply, one per lane.
+     */
+    private static final String STATS_MESSAGE = "com.structurize.command.iostats";
+
+    /**
+     * The reply for the network compression.
+     */
+    private static final String COMPRESSION_MESSAGE = "com.structurize.command.iostats.compression";
+
+    private static int onExecute(final CommandContext<CommandSourceStack> context)
+    {
+        for (final IOPool.Lane lane : IOPool.Lane.values())
+        {
+            final IOPool.LaneStats stats = IOPool.getStats(lane);
+            context.getSource().sendSuccess(() -> Component.translatable(STATS_MESSAGE,
+              lane.name().toLowerCase(Locale.US),
+              stats.queued(),
+              stats.active(),
+              stats.started(),
+              stats.cancelled(),
+              stats.averageWaitMs(),
+              stats.maxWaitMs()), false);
+        }
+
+        final SplitPacketCompression.CompressionStats compression = SplitPacketCompression.getStats();
+        context.getSource().sendSuccess(() -> Component.translatable(COMPRESSION_MESSAGE,
+          compression.messages(),
+          compression.rawBytes() / 1024,
+          compression.compressedBytes() / 1024,
+          compression.ratioPercent(),
+          compression.incompressible()), false);
+        return 1;
+    }
+
+    protected static LiteralArgumentBuilder<CommandSourceStack> build()
+    {
+        return newLiteral(commandName)
+          .requires(source -> source.hasPermission(2))
+          .executes(IOStatsCommand::onExecute);
+    }
+}
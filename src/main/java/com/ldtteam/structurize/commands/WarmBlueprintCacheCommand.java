@@ -0,0 +1,73 @@
+package com.ldtteam.structurize.commands;
+
+import com.ldtteam.structurize.storage.StructurePackMeta;
+import com.ldtteam.structurize.storage.StructurePacks;
+import com.ldtteam.structurize.storage.UpgradedBlueprintCache;
+import com.ldtteam.structurize.util.IOPool;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.network.chat.Component;
+
+/**
+ * Command to data fix all old blueprints of a pack ahead of time, see {@link UpgradedBlueprintCache}.
+ */
+public class WarmBlueprintCacheCommand extends AbstractCommand
+{
+    /**
+     * Descriptive string.
+     */
+    public final static String commandName = "warmBlueprintCache";
+
+    /**
+     * The pack name command argument.
+     */
+    private static final String PACK_NAME = "pack";
+
+    /**
+     * The invalid pack reply.
+     */
+    private static final String NO_PACK_MESSAGE = "com.structurize.command.paste.no.pack";
+
+    /**
+     * The started reply.
+     */
+    private static final String STARTED_MESSAGE = "com.structurize.command.warmcache.started";
+
+    /**
+     * The finished reply.
+     */
+    private static final String FINISHED_MESSAGE = "com.structurize.command.warmcache.finished";
+
+    private static int onExecute(final CommandContext<CommandSourceStack> context)
+    {
+        final CommandSourceStack source = context.getSource();
+        final String packName = StringArgumentType.getString(context, PACK_NAME);
+
+        final StructurePackMeta packMeta = StructurePacks.getStructurePack(packName);
+        if (packMeta == null)
+        {
+            source.sendFailure(Component.translatable(NO_PACK_MESSAGE));
+            return 0;
+        }
+
+        // low priority, pack syncs on the bulk lane must not wait for a whole pack to be upgraded
+        IOPool.execute(IOPool.Lane.PREFETCH, () ->
+        {
+            final int count = UpgradedBlueprintCache.warm(packMeta.getPath());
+            source.getServer().execute(() -> source.sendSuccess(() -> Component.translatable(FINISHED_MESSAGE, count, packName), true));
+        });
+
+        source.sendSuccess(() -> Component.translatable(STARTED_MESSAGE, packName), true);
+        return 1;
+    }
+
+    protected static LiteralArgumentBuilder<CommandSourceStack> build()
+    {
+        return newLiteral(commandName)
+          .requires(source -> source.hasPermission(2))
+          .then(newArgument(PACK_NAME, StringArgumentType.string())
+            .executes(WarmBlueprintCacheCommand::onExecute));
+    }
+}
@@ -33,10 +33,30 @@ public class ServerConfiguration extends AbstractConfiguration
     public final ForgeConfigSpec.IntValue maxCachedChanges;
 
     /**
-     * Max amount of schematics to be cached on the server
+     * Size of the decoded blueprint cache in units of 64 KiB, most blueprints take one unit and bigger ones several.
      */
     public final ForgeConfigSpec.IntValue maxCachedSchematics;
 
+    /**
+     * Threads serving interactive IO requests (build tool browsing, blueprint loading).
+     */
+    public final ForgeConfigSpec.IntValue ioThreads;
+
+    /**
+     * Max bytes of structure pack data streamed to each player per tick.
+     */
+    public final ForgeConfigSpec.IntValue packTransferBytesPerTick;
+
+    /**
+     * Min size of a compressible network message to be compressed, -1 to disable.
+     */
+    public final ForgeConfigSpec.IntValue networkCompressionThreshold;
+
+    /**
+     * Max shared preview updates forwarded per player and second.
+     */
+    public final ForgeConfigSpec.IntValue previewUpdatesPerSecond;
+
     /**
      * Max amount of blocks checked by a possible worker.
      */
@@ -72,6 +92,10 @@ public class ServerConfiguration extends AbstractConfiguration
         maxOperationsPerTick = defineInteger(builder, "maxOperationsPerTick", 1000, 0, 100000);
         maxCachedChanges = defineInteger(builder, "maxCachedChanges", 50, 0, 250);
         maxCachedSchematics = defineInteger(builder, "maxCachedSchematics", 100, 0, 100000);
+        ioThreads = defineInteger(builder, "ioThreads", 2, 1, 16);
+        packTransferBytesPerTick = defineInteger(builder, "packTransferBytesPerTick", 131072, 4096, 4194304);
+        networkCompressionThreshold = defineInteger(builder, "networkCompressionThreshold", 1024, -1, 1048576);
+        previewUpdatesPerSecond = defineInteger(builder, "previewUpdatesPerSecond", 10, 1, 20);
         maxBlocksChecked = defineInteger(builder, "maxBlocksChecked", 1000, 0, 100000);
         schematicBlockLimit = defineInteger(builder, "schematicBlockLimit", 100000, 1000, 1000000);
         iteratorType = defineString(builder, "iteratorType", "default");
@@ -4,11 +4,14 @@ import com.ldtteam.structurize.Network;
 import com.ldtteam.structurize.datagen.BlockEntityTagProvider;
 import com.ldtteam.structurize.datagen.BlockTagProvider;
 import com.ldtteam.structurize.datagen.EntityTagProvider;
+import com.ldtteam.structurize.storage.BlueprintCache;
 import com.ldtteam.structurize.util.LanguageHandler;
 import net.minecraft.core.registries.Registries;
 import net.minecraft.data.DataGenerator;
 import net.minecraftforge.data.event.GatherDataEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.config.ModConfig;
+import net.minecraftforge.fml.event.config.ModConfigEvent;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.minecraftforge.fml.event.lifecycle.FMLLoadCompleteEvent;
 import org.jetbrains.annotations.NotNull;
@@ -37,6 +40,34 @@ public class LifecycleSubscriber
         LanguageHandler.setMClanguageLoaded();
     }
 
+    /**
+     * Called when a config is loaded, on both sides.
+     *
+     * @param event event
+     */
+    @SubscribeEvent
+    public static void onConfigLoad(final ModConfigEvent.Loading event)
+    {
+        if (event.getConfig().getType() == ModConfig.Type.SERVER)
+        {
+            BlueprintCache.onConfigChanged();
+        }
+    }
+
+    /**
+     * Called when a config is reloaded, on both sides.
+     *
+     * @param event event
+     */
+    @SubscribeEvent
+    public static void onConfigReload(final ModConfigEvent.Reloading event)
+    {
+        if (event.getConfig().getType() == ModConfig.Type.SERVER)
+        {
+            BlueprintCache.onConfigChanged();
+        }
+    }
+
     @SubscribeEvent
     public static void onDatagen(@NotNull final GatherDataEvent event)
     {
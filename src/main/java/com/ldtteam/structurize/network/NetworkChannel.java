@@ -1,13 +1,15 @@
 package com.ldtteam.structurize.network;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
+import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.api.util.constant.Constants;
 import com.ldtteam.structurize.network.messages.*;
+import com.ldtteam.structurize.network.messages.splitting.SplitPacketCompression;
 import com.ldtteam.structurize.network.messages.splitting.SplitPacketMessage;
+import com.ldtteam.structurize.network.messages.splitting.SplitPacketReassembler;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceKey;
@@ -25,7 +27,6 @@ import net.minecraftforge.network.simple.SimpleChannel;
 
 import java.util.Arrays;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -52,12 +53,34 @@ public class NetworkChannel
     private final Map<Class<? extends IMessage>, Integer> messageTypeToIdMap = Maps.newHashMap();
 
     /**
-     * Cache of partially received messages, this holds the data untill it is processed.
+     * Version of the split message format, part of the channel version checked in the login handshake.
      */
-    private final Cache<Integer, Map<Integer, byte[]>> messageCache = CacheBuilder.newBuilder()
-      .expireAfterAccess(1, TimeUnit.MINUTES)
-      .concurrencyLevel(8)
-      .build();
+    private static final int WIRE_FORMAT_VERSION = 4;
+
+    /**
+     * Max size of a split message sent by a client.
+     */
+    private static final long MAX_CLIENT_MESSAGE_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Max size of a split message sent by the server.
+     */
+    private static final long MAX_SERVER_MESSAGE_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Time after which incomplete split messages are dropped.
+     */
+    private static final long SPLIT_MESSAGE_EXPIRY_SECONDS = 60;
+
+    /**
+     * Partially received messages from clients, this holds the data untill it is processed.
+     */
+    private final SplitPacketReassembler serverReassembler = new SplitPacketReassembler(MAX_CLIENT_MESSAGE_BYTES, SPLIT_MESSAGE_EXPIRY_SECONDS);
+
+    /**
+     * Partially received messages from the server, this holds the data untill it is processed.
+     */
+    private final SplitPacketReassembler clientReassembler = new SplitPacketReassembler(MAX_SERVER_MESSAGE_BYTES, SPLIT_MESSAGE_EXPIRY_SECONDS);
 
     /**
      * An atomic counter which keeps track of the split messages that have been send to somewhere from this network node.
@@ -72,7 +95,8 @@ public class NetworkChannel
      */
     public NetworkChannel(final String channelName)
     {
-        final String modVersion = ModList.get().getModContainerById(Constants.MOD_ID).get().getModInfo().getVersion().toString();
+        // the login handshake only accepts peers with the same version, so both sides agree on the wire format, e.g. message compression
+        final String modVersion = ModList.get().getModContainerById(Constants.MOD_ID).get().getModInfo().getVersion().toString() + "+wire" + WIRE_FORMAT_VERSION;
         rawChannel = NetworkRegistry.newSimpleChannel(new ResourceLocation(Constants.MOD_ID, channelName), () -> modVersion, str -> str.equals(modVersion), str -> str.equals(modVersion));
     }
 
@@ -106,11 +130,16 @@ public class NetworkChannel
         registerMessage(++idx, BlueprintSyncMessage.class, BlueprintSyncMessage::new);
         registerMessage(++idx, SyncSettingsToServer.class, SyncSettingsToServer::new);
         registerMessage(++idx, SyncPreviewCacheToServer.class, SyncPreviewCacheToServer::new);
+        registerMessage(++idx, SyncPreviewDeltaToServer.class, SyncPreviewDeltaToServer::new);
+        registerMessage(++idx, RequestStructurePackFilesMessage.class, RequestStructurePackFilesMessage::new);
+        registerMessage(++idx, StructurePackChunkAckMessage.class, StructurePackChunkAckMessage::new);
 
         registerMessage(++idx, NotifyClientAboutStructurePacksMessage.class, NotifyClientAboutStructurePacksMessage::new);
-        registerMessage(++idx, TransferStructurePackToClient.class, TransferStructurePackToClient::new);
+        registerMessage(++idx, StructurePackChunkMessage.class, StructurePackChunkMessage::new);
         registerMessage(++idx, ClientBlueprintRequestMessage.class, ClientBlueprintRequestMessage::new);
         registerMessage(++idx, SyncPreviewCacheToClient.class, SyncPreviewCacheToClient::new);
+        registerMessage(++idx, SyncPreviewDeltaToClient.class, SyncPreviewDeltaToClient::new);
+        registerMessage(++idx, StructurePackManifestMessage.class, StructurePackManifestMessage::new);
 
         registerMessage(++idx, ItemMiddleMouseMessage.class, ItemMiddleMouseMessage::new);
         registerMessage(++idx, ScanToolTeleportMessage.class, ScanToolTeleportMessage::new);
@@ -278,9 +307,14 @@ public class NetworkChannel
         final ByteBuf buffer = Unpooled.buffer();
         final FriendlyByteBuf innerFriendlyByteBuf = new FriendlyByteBuf(buffer);
         msg.toBytes(innerFriendlyByteBuf);
-        final byte[] data = buffer.array();
+        final byte[] raw = ByteBufUtil.getBytes(buffer);
         buffer.release();
 
+        //Compress large messages of types which are worth it.
+        final int threshold = getCompressionThreshold();
+        final byte[] compressed = msg.isCompressible() && threshold >= 0 && raw.length >= threshold ? SplitPacketCompression.compress(raw) : null;
+        final byte[] data = compressed == null ? raw : compressed;
+
         //Some tracking variables.
         //Max packet size: 90% of maximum.
         final int max_packet_size = msg.getExecutionSide() == LogicalSide.SERVER ? 30000 : 943718; //This is 90% of max packet size.
@@ -302,7 +336,7 @@ public class NetworkChannel
             final byte[] subPacketData = Arrays.copyOfRange(data, currentIndex, currentIndex + extra);
 
             //Construct the wrapping packet.
-            final SplitPacketMessage splitPacketMessage = new SplitPacketMessage(comId, packetIndex++, (currentIndex + extra) >= data.length, messageId, subPacketData);
+            final SplitPacketMessage splitPacketMessage = new SplitPacketMessage(comId, packetIndex++, (currentIndex + extra) >= data.length, messageId, compressed != null, subPacketData);
 
             //Send the wrapping packet.
             splitMessageConsumer.accept(splitPacketMessage);
@@ -313,13 +347,29 @@ public class NetworkChannel
     }
 
     /**
-     * Gives access to the cache of messages that are being received.
+     * @return the configured compression threshold, the default if the server config is not loaded (remote client).
+     */
+    private static int getCompressionThreshold()
+    {
+        try
+        {
+            return Structurize.getConfig().getServer().networkCompressionThreshold.get();
+        }
+        catch (final IllegalStateException e)
+        {
+            return Structurize.getConfig().getServer().networkCompressionThreshold.getDefault();
+        }
+    }
+
+    /**
+     * Gives access to the reassembler of messages that are being received.
      *
-     * @return The message cache.
+     * @param isLogicalServer true for the messages received by the logical server.
+     * @return The reassembler.
      */
-    public Cache<Integer, Map<Integer, byte[]>> getMessageCache()
+    public SplitPacketReassembler getReassembler(final boolean isLogicalServer)
     {
-        return messageCache;
+        return isLogicalServer ? serverReassembler : clientReassembler;
     }
 
     /**
@@ -27,7 +27,12 @@ public class BlueprintSyncMessage implements IMessage
     public final Mirror   mirror;
 
     /**
-     * Blueprint data future.
+     * The hex SHA-256 of the blueprint file, identifies it in the server upload store.
+     */
+    public final String blueprintHash;
+
+    /**
+     * Blueprint file data, empty if only the hash is sent.
      */
     public byte[] blueprintData;
 
@@ -45,6 +50,7 @@ public class BlueprintSyncMessage implements IMessage
         this.rotation = Rotation.values()[buf.readInt()];
         this.mirror = Mirror.values()[buf.readInt()];
 
+        this.blueprintHash = buf.readUtf(64);
         this.blueprintData = buf.readByteArray();
     }
 
@@ -53,10 +59,12 @@ public class BlueprintSyncMessage implements IMessage
      *
      * @param msg the request message to get most data from.
      * @param blueprintData the blueprint data.
+     * @param includeData false to only send the hash of the data.
      */
     public BlueprintSyncMessage(
       final ClientBlueprintRequestMessage msg,
-      final byte[] blueprintData)
+      final byte[] blueprintData,
+      final boolean includeData)
     {
         this.type = msg.type;
         this.handlerId = msg.handlerId;
@@ -66,7 +74,8 @@ public class BlueprintSyncMessage implements IMessage
         this.pos = msg.pos;
         this.rotation = msg.rotation;
         this.mirror = msg.mirror;
-        this.blueprintData = blueprintData;
+        this.blueprintHash = BlueprintPlacementHandling.hash(blueprintData);
+        this.blueprintData = includeData ? blueprintData : new byte[0];
     }
 
     @Override
@@ -81,6 +90,7 @@ public class BlueprintSyncMessage implements IMessage
         buf.writeInt(this.rotation.ordinal());
         buf.writeInt(this.mirror.ordinal());
 
+        buf.writeUtf(this.blueprintHash);
         buf.writeByteArray(this.blueprintData);
     }
 
@@ -27,6 +27,10 @@ public class ClientBlueprintRequestMessage implements IMessage
     public final Rotation rotation;
     public final Mirror   mirror;
 
+    /**
+     * False to ask for the hash of the blueprint only, true if the server does not have it and needs the data.
+     */
+    public final boolean sendData;
 
     /**
      * Buffer reading message constructor.
@@ -41,6 +45,7 @@ public class ClientBlueprintRequestMessage implements IMessage
         this.pos = buf.readBlockPos();
         this.rotation = Rotation.values()[buf.readInt()];
         this.mirror = Mirror.values()[buf.readInt()];
+        this.sendData = buf.readBoolean();
     }
 
     /**
@@ -58,6 +63,25 @@ public class ClientBlueprintRequestMessage implements IMessage
         this.pos = msg.pos;
         this.rotation = msg.rotation;
         this.mirror = msg.mirror;
+        this.sendData = false;
+    }
+
+    /**
+     * Request the blueprint data from the client after it sent a hash the server does not know.
+     *
+     * @param msg the sync message with the unknown hash.
+     */
+    public ClientBlueprintRequestMessage(final BlueprintSyncMessage msg)
+    {
+        this.type = msg.type;
+        this.handlerId = msg.handlerId;
+
+        this.structurePackId = msg.structurePackId;
+        this.blueprintPath = msg.blueprintPath;
+        this.pos = msg.pos;
+        this.rotation = msg.rotation;
+        this.mirror = msg.mirror;
+        this.sendData = true;
     }
 
     @Override
@@ -71,6 +95,7 @@ public class ClientBlueprintRequestMessage implements IMessage
         buf.writeBlockPos(this.pos);
         buf.writeInt(this.rotation.ordinal());
         buf.writeInt(this.mirror.ordinal());
+        buf.writeBoolean(this.sendData);
     }
 
     @Nullable
@@ -83,11 +108,13 @@ public class ClientBlueprintRequestMessage implements IMessage
     @Override
     public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
     {
-        ClientFutureProcessor.queueBlueprintData(new ClientFutureProcessor.BlueprintDataProcessingData(StructurePacks.getBlueprintDataFuture(structurePackId, blueprintPath), (blueprintData) -> {
-            if (blueprintData != null)
+        // the hash is calculated off-thread, the data itself is only sent if the server asks for it
+        ClientFutureProcessor.queue(StructurePacks.getBlueprintDataFuture(structurePackId, blueprintPath)
+          .thenApply(blueprintData -> blueprintData == null ? null : new BlueprintSyncMessage(this, blueprintData, sendData)), syncMessage -> {
+            if (syncMessage != null)
             {
-                Network.getNetwork().sendToServer(new BlueprintSyncMessage(this, blueprintData));
+                Network.getNetwork().sendToServer(syncMessage);
             }
-        }));
+        });
     }
 }
@@ -32,4 +32,14 @@ public interface IMessage
      * @param isLogicalServer whether message arrived at logical server side
      */
     void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer);
+
+    /**
+     * Whether the message is worth compressing if it is large. Messages carrying already compressed data (zips, blueprint files) should not be.
+     *
+     * @return true to compress the message above the configured threshold.
+     */
+    default boolean isCompressible()
+    {
+        return false;
+    }
 }
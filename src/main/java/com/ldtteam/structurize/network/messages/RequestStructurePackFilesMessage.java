@@ -0,0 +1,132 @@
+package com.ldtteam.structurize.network.messages;
+
+import com.ldtteam.structurize.storage.ServerStructurePackLoader;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.network.NetworkEvent;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Request the files of a structure pack the client is missing or has outdated, in answer to a {@link StructurePackManifestMessage}.
+ */
+public class RequestStructurePackFilesMessage implements IMessage
+{
+    /**
+     * Length of a SHA-256 hash in bytes.
+     */
+    private static final int HASH_LENGTH = 32;
+
+    /**
+     * The name of the structure pack.
+     */
+    private final String packName;
+
+    /**
+     * The requested file paths relative to the pack root.
+     */
+    private final List<String> files;
+
+    /**
+     * The hex SHA-256 of an unfinished download of this pack, null if there is none.
+     */
+    @Nullable
+    private final String resumeHash;
+
+    /**
+     * The amount of bytes of the unfinished download the client has.
+     */
+    private final int resumeOffset;
+
+    /**
+     * Public standard constructor.
+     */
+    public RequestStructurePackFilesMessage(final FriendlyByteBuf buf)
+    {
+        this.packName = buf.readUtf(32767);
+        final int length = buf.readVarInt();
+        if (length < 0 || length > StructurePackManifestMessage.MAX_FILES)
+        {
+            throw new DecoderException("Bad structure pack file count: " + length);
+        }
+        // not presized, the count is only trusted once the entries are actually there
+        this.files = new ArrayList<>();
+        for (int i = 0; i < length; i++)
+        {
+            this.files.add(buf.readUtf(32767));
+        }
+
+        if (buf.readBoolean())
+        {
+            final byte[] hashBytes = new byte[HASH_LENGTH];
+            buf.readBytes(hashBytes);
+            this.resumeHash = HexFormat.of().formatHex(hashBytes);
+            this.resumeOffset = buf.readVarInt();
+        }
+        else
+        {
+            this.resumeHash = null;
+            this.resumeOffset = 0;
+        }
+    }
+
+    /**
+     * Request files of a structure pack from the server.
+     * @param packName the name of the structure pack.
+     * @param files the relative file paths.
+     * @param resumeHash the hash of an unfinished download of the pack, null if there is none.
+     * @param resumeOffset the amount of bytes of the unfinished download.
+     */
+    public RequestStructurePackFilesMessage(final String packName, final Collection<String> files, @Nullable final String resumeHash, final int resumeOffset)
+    {
+        this.packName = packName;
+        this.files = new ArrayList<>(files);
+        this.resumeHash = resumeHash;
+        this.resumeOffset = resumeOffset;
+    }
+
+    @Override
+    public void toBytes(final FriendlyByteBuf buf)
+    {
+        buf.writeUtf(this.packName);
+        buf.writeVarInt(this.files.size());
+        for (final String file : this.files)
+        {
+            buf.writeUtf(file);
+        }
+
+        buf.writeBoolean(this.resumeHash != null);
+        if (this.resumeHash != null)
+        {
+            buf.writeBytes(HexFormat.of().parseHex(this.resumeHash));
+            buf.writeVarInt(this.resumeOffset);
+        }
+    }
+
+    @Nullable
+    @Override
+    public LogicalSide getExecutionSide()
+    {
+        return LogicalSide.SERVER;
+    }
+
+    @Override
+    public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
+    {
+        if (isLogicalServer)
+        {
+            ServerStructurePackLoader.onClientFileRequest(this.packName, this.files, this.resumeHash, this.resumeOffset, ctxIn.getSender());
+        }
+    }
+
+    @Override
+    public boolean isCompressible()
+    {
+        return true;
+    }
+}
@@ -4,6 +4,7 @@ import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.storage.ClientStructurePackLoader;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
+import net.minecraft.nbt.NbtAccounter;
 import net.minecraft.nbt.NbtIo;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.FriendlyByteBuf;
@@ -11,6 +12,8 @@ import net.minecraftforge.fml.LogicalSide;
 import net.minecraftforge.network.NetworkEvent;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 
 /**
@@ -32,7 +35,8 @@ public class SaveScanMessage implements IMessage
         final FriendlyByteBuf buffer = new FriendlyByteBuf(buf);
         try (ByteBufInputStream stream = new ByteBufInputStream(buffer))
         {
-            final CompoundTag wrapperCompound = NbtIo.readCompressed(stream);
+            // plain NBT, the channel compresses the message, see isCompressible
+            final CompoundTag wrapperCompound = NbtIo.read(new DataInputStream(stream), NbtAccounter.UNLIMITED);
             this.compoundNBT = wrapperCompound.getCompound(TAG_SCHEMATIC);
             this.fileName = wrapperCompound.getString(TAG_MILLIS);
         }
@@ -66,9 +70,9 @@ public class SaveScanMessage implements IMessage
         wrapperCompound.put(TAG_SCHEMATIC, compoundNBT);
 
         final FriendlyByteBuf buffer = new FriendlyByteBuf(buf);
-        try (ByteBufOutputStream stream = new ByteBufOutputStream(buffer))
+        try (DataOutputStream stream = new DataOutputStream(new ByteBufOutputStream(buffer)))
         {
-            NbtIo.writeCompressed(wrapperCompound, stream);
+            NbtIo.write(wrapperCompound, stream);
         }
         catch (final IOException e)
         {
@@ -91,4 +95,10 @@ public class SaveScanMessage implements IMessage
             ClientStructurePackLoader.handleSaveScanMessage(compoundNBT, fileName);
         }
     }
+
+    @Override
+    public boolean isCompressible()
+    {
+        return true;
+    }
 }
@@ -0,0 +1,84 @@
+package com.ldtteam.structurize.network.messages;
+
+import com.ldtteam.structurize.storage.ServerStructurePackLoader;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.network.NetworkEvent;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HexFormat;
+
+/**
+ * Tell the server how much of a streamed structure pack the client stored, see {@link StructurePackChunkMessage}.
+ */
+public class StructurePackChunkAckMessage implements IMessage
+{
+    /**
+     * Length of a SHA-256 hash in bytes.
+     */
+    private static final int HASH_LENGTH = 32;
+
+    /**
+     * The name of the structure pack.
+     */
+    private final String packName;
+
+    /**
+     * The hex SHA-256 of the whole payload, identifies the transfer.
+     */
+    private final String hash;
+
+    /**
+     * The amount of bytes the client has, the next expected offset.
+     */
+    private final int received;
+
+    /**
+     * Public standard constructor.
+     */
+    public StructurePackChunkAckMessage(final FriendlyByteBuf buf)
+    {
+        this.packName = buf.readUtf(32767);
+        final byte[] hashBytes = new byte[HASH_LENGTH];
+        buf.readBytes(hashBytes);
+        this.hash = HexFormat.of().formatHex(hashBytes);
+        this.received = buf.readVarInt();
+    }
+
+    /**
+     * Acknowledge the received part of a streamed structure pack.
+     * @param packName the name of the structure pack.
+     * @param hash the hex SHA-256 of the whole payload.
+     * @param received the amount of bytes the client has.
+     */
+    public StructurePackChunkAckMessage(final String packName, final String hash, final int received)
+    {
+        this.packName = packName;
+        this.hash = hash;
+        this.received = received;
+    }
+
+    @Override
+    public void toBytes(final FriendlyByteBuf buf)
+    {
+        buf.writeUtf(this.packName);
+        buf.writeBytes(HexFormat.of().parseHex(this.hash));
+        buf.writeVarInt(this.received);
+    }
+
+    @Nullable
+    @Override
+    public LogicalSide getExecutionSide()
+    {
+        return LogicalSide.SERVER;
+    }
+
+    @Override
+    public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
+    {
+        if (isLogicalServer)
+        {
+            ServerStructurePackLoader.onClientChunkAck(this.packName, this.hash, this.received, ctxIn.getSender());
+        }
+    }
+}
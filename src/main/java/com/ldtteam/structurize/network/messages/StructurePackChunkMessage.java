@@ -0,0 +1,102 @@
+package com.ldtteam.structurize.network.messages;
+
+import com.ldtteam.structurize.storage.ClientStructurePackLoader;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.network.NetworkEvent;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HexFormat;
+
+/**
+ * Transfer a chunk of a zipped structure pack to the client, answered by a {@link StructurePackChunkAckMessage}.
+ */
+public class StructurePackChunkMessage implements IMessage
+{
+    /**
+     * Length of a SHA-256 hash in bytes.
+     */
+    private static final int HASH_LENGTH = 32;
+
+    /**
+     * The name of the structure pack.
+     */
+    private final String packName;
+
+    /**
+     * The hex SHA-256 of the whole payload, identifies the transfer.
+     */
+    private final String hash;
+
+    /**
+     * The size of the whole payload.
+     */
+    private final int totalSize;
+
+    /**
+     * The offset of this chunk in the payload.
+     */
+    private final int offset;
+
+    /**
+     * The data of this chunk.
+     */
+    private final byte[] data;
+
+    /**
+     * Public standard constructor.
+     */
+    public StructurePackChunkMessage(final FriendlyByteBuf buf)
+    {
+        this.packName = buf.readUtf(32767);
+        final byte[] hashBytes = new byte[HASH_LENGTH];
+        buf.readBytes(hashBytes);
+        this.hash = HexFormat.of().formatHex(hashBytes);
+        this.totalSize = buf.readVarInt();
+        this.offset = buf.readVarInt();
+        this.data = buf.readByteArray();
+    }
+
+    /**
+     * Transfer a chunk of a zipped structure pack to the client.
+     * @param packName the name of the structure pack.
+     * @param hash the hex SHA-256 of the whole payload.
+     * @param totalSize the size of the whole payload.
+     * @param offset the offset of the chunk.
+     * @param data the chunk.
+     */
+    public StructurePackChunkMessage(final String packName, final String hash, final int totalSize, final int offset, final byte[] data)
+    {
+        this.packName = packName;
+        this.hash = hash;
+        this.totalSize = totalSize;
+        this.offset = offset;
+        this.data = data;
+    }
+
+    @Override
+    public void toBytes(final FriendlyByteBuf buf)
+    {
+        buf.writeUtf(this.packName);
+        buf.writeBytes(HexFormat.of().parseHex(this.hash));
+        buf.writeVarInt(this.totalSize);
+        buf.writeVarInt(this.offset);
+        buf.writeByteArray(this.data);
+    }
+
+    @Nullable
+    @Override
+    public LogicalSide getExecutionSide()
+    {
+        return LogicalSide.CLIENT;
+    }
+
+    @Override
+    public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
+    {
+        if (!isLogicalServer)
+        {
+            ClientStructurePackLoader.onStructurePackChunk(this.packName, this.hash, this.totalSize, this.offset, this.data);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.ldtteam.structurize.network.messages;
+
+import com.ldtteam.structurize.storage.ClientStructurePackLoader;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.network.NetworkEvent;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Send the content hashes of all files of a structure pack to the client, which answers with the files it is missing.
+ */
+public class StructurePackManifestMessage implements IMessage
+{
+    /**
+     * Length of a SHA-256 hash in bytes.
+     */
+    private static final int HASH_LENGTH = 32;
+
+    /**
+     * Max amount of files of a pack accepted on the wire.
+     */
+    public static final int MAX_FILES = 65536;
+
+    /**
+     * The name of the structure pack.
+     */
+    private final String packName;
+
+    /**
+     * The hex SHA-256 by file path relative to the pack root.
+     */
+    private final Map<String, String> hashes;
+
+    /**
+     * If the last manifest of this sync.
+     */
+    private final boolean eol;
+
+    /**
+     * Public standard constructor.
+     */
+    public StructurePackManifestMessage(final FriendlyByteBuf buf)
+    {
+        this.packName = buf.readUtf(32767);
+        this.eol = buf.readBoolean();
+        final int length = buf.readVarInt();
+        if (length < 0 || length > MAX_FILES)
+        {
+            throw new DecoderException("Bad structure pack file count: " + length);
+        }
+        // not presized, the count is only trusted once the entries are actually there
+        this.hashes = new HashMap<>();
+        for (int i = 0; i < length; i++)
+        {
+            final String path = buf.readUtf(32767);
+            final byte[] hash = new byte[HASH_LENGTH];
+            buf.readBytes(hash);
+            this.hashes.put(path, HexFormat.of().formatHex(hash));
+        }
+    }
+
+    /**
+     * Send the file hashes of a structure pack to the client.
+     * @param packName the name of the structure pack.
+     * @param hashes the hex SHA-256 by relative file path.
+     * @param eol if last manifest to the client.
+     */
+    public StructurePackManifestMessage(final String packName, final Map<String, String> hashes, final boolean eol)
+    {
+        this.packName = packName;
+        this.hashes = hashes;
+        this.eol = eol;
+    }
+
+    @Override
+    public void toBytes(final FriendlyByteBuf buf)
+    {
+        buf.writeUtf(this.packName);
+        buf.writeBoolean(this.eol);
+        buf.writeVarInt(this.hashes.size());
+        for (final Map.Entry<String, String> file : this.hashes.entrySet())
+        {
+            buf.writeUtf(file.getKey());
+            buf.writeBytes(HexFormat.of().parseHex(file.getValue()));
+        }
+    }
+
+    @Nullable
+    @Override
+    public LogicalSide getExecutionSide()
+    {
+        return LogicalSide.CLIENT;
+    }
+
+    @Override
+    public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
+    {
+        if (!isLogicalServer)
+        {
+            ClientStructurePackLoader.onStructurePackManifest(this.packName, this.hashes, this.eol);
+        }
+    }
+
+    @Override
+    public boolean isCompressible()
+    {
+        return true;
+    }
+}
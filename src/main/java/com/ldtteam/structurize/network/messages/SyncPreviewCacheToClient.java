@@ -2,6 +2,7 @@ package com.ldtteam.structurize.network.messages;
 
 import com.ldtteam.structurize.storage.rendering.RenderingCache;
 import com.ldtteam.structurize.storage.rendering.types.BlueprintPreviewData;
+import com.ldtteam.structurize.storage.rendering.types.SharedPreview;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraftforge.fml.LogicalSide;
 import net.minecraftforge.network.NetworkEvent;
@@ -17,10 +18,22 @@ public class SyncPreviewCacheToClient implements IMessage
     public static final String SHARED_PREFIX = "shared:";
 
     /**
-     * The preview data.
+     * The preview data, only on the receiving side.
      */
+    @Nullable
     private final BlueprintPreviewData previewData;
 
+    /**
+     * The shared preview, only on the sending side.
+     */
+    @Nullable
+    private final SharedPreview preview;
+
+    /**
+     * Id of the pack and path of the preview.
+     */
+    private final int blueprintId;
+
     /**
      * The UUID of the origin player.
      */
@@ -31,23 +44,31 @@ public class SyncPreviewCacheToClient implements IMessage
      */
     public SyncPreviewCacheToClient(final FriendlyByteBuf buf)
     {
+        this.preview = null;
+        this.blueprintId = buf.readVarInt();
         this.previewData = new BlueprintPreviewData(buf, false);
+        this.previewData.setBlueprintId(blueprintId);
         this.playerUUID = buf.readUUID();
     }
 
     /**
      * Send preview data from the server.
+     * @param preview the preview.
+     * @param playerUUID the player sharing it.
      */
-    public SyncPreviewCacheToClient(final BlueprintPreviewData previewData, final UUID playerUUID)
+    public SyncPreviewCacheToClient(final SharedPreview preview, final UUID playerUUID)
     {
-        this.previewData = previewData;
+        this.previewData = null;
+        this.preview = preview;
+        this.blueprintId = preview.blueprintId();
         this.playerUUID = playerUUID;
     }
 
     @Override
     public void toBytes(final FriendlyByteBuf buf)
     {
-        this.previewData.writeToBuf(buf);
+        buf.writeVarInt(this.blueprintId);
+        this.preview.write(buf);
         buf.writeUUID(this.playerUUID);
     }
 
@@ -2,6 +2,7 @@ package com.ldtteam.structurize.network.messages;
 
 import com.ldtteam.structurize.storage.rendering.ServerPreviewDistributor;
 import com.ldtteam.structurize.storage.rendering.types.BlueprintPreviewData;
+import com.ldtteam.structurize.storage.rendering.types.SharedPreview;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraftforge.fml.LogicalSide;
 import net.minecraftforge.network.NetworkEvent;
@@ -13,29 +14,48 @@ import org.jetbrains.annotations.Nullable;
 public class SyncPreviewCacheToServer implements IMessage
 {
     /**
-     * The preview data.
+     * The preview data, only on the sending side.
      */
+    @Nullable
     private final BlueprintPreviewData previewData;
 
+    /**
+     * The received preview, only on the receiving side.
+     */
+    @Nullable
+    private final SharedPreview preview;
+
+    /**
+     * Id the client gave to the pack and path of the preview.
+     */
+    private final int blueprintId;
+
     /**
      * Buffer reading message constructor.
      */
     public SyncPreviewCacheToServer(final FriendlyByteBuf buf)
     {
-        this.previewData = new BlueprintPreviewData(buf);
+        this.previewData = null;
+        this.blueprintId = buf.readVarInt();
+        this.preview = SharedPreview.read(buf, blueprintId);
     }
 
     /**
      * Send preview data from the client.
+     * @param previewData the preview.
+     * @param blueprintId the id of its pack and path, referenced by following deltas.
      */
-    public SyncPreviewCacheToServer(final BlueprintPreviewData previewData)
+    public SyncPreviewCacheToServer(final BlueprintPreviewData previewData, final int blueprintId)
     {
         this.previewData = previewData;
+        this.preview = null;
+        this.blueprintId = blueprintId;
     }
 
     @Override
     public void toBytes(final FriendlyByteBuf buf)
     {
+        buf.writeVarInt(this.blueprintId);
         this.previewData.writeToBuf(buf);
     }
 
@@ -49,6 +69,6 @@ public class SyncPreviewCacheToServer implements IMessage
     @Override
     public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
     {
-        ServerPreviewDistributor.distribute(this.previewData, ctxIn.getSender());
+        ServerPreviewDistributor.update(this.preview, ctxIn.getSender());
     }
 }
@@ -0,0 +1,80 @@
+package com.ldtteam.structurize.network.messages;
+
+import com.ldtteam.structurize.storage.rendering.RenderingCache;
+import com.ldtteam.structurize.storage.rendering.types.BlueprintPreviewData;
+import com.ldtteam.structurize.storage.rendering.types.PreviewDelta;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.network.NetworkEvent;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+import static com.ldtteam.structurize.network.messages.SyncPreviewCacheToClient.SHARED_PREFIX;
+
+/**
+ * Sync a move or rotation of a shared preview to the client, relative to what the client got last.
+ */
+public class SyncPreviewDeltaToClient implements IMessage
+{
+    /**
+     * The change.
+     */
+    private final PreviewDelta delta;
+
+    /**
+     * The UUID of the origin player.
+     */
+    private final UUID playerUUID;
+
+    /**
+     * Buffer reading message constructor.
+     */
+    public SyncPreviewDeltaToClient(final FriendlyByteBuf buf)
+    {
+        this.delta = PreviewDelta.read(buf);
+        this.playerUUID = buf.readUUID();
+    }
+
+    /**
+     * Send a preview change from the server.
+     * @param delta the change.
+     * @param playerUUID the player sharing the preview.
+     */
+    public SyncPreviewDeltaToClient(final PreviewDelta delta, final UUID playerUUID)
+    {
+        this.delta = delta;
+        this.playerUUID = playerUUID;
+    }
+
+    @Override
+    public void toBytes(final FriendlyByteBuf buf)
+    {
+        this.delta.write(buf);
+        buf.writeUUID(this.playerUUID);
+    }
+
+    @Nullable
+    @Override
+    public LogicalSide getExecutionSide()
+    {
+        return LogicalSide.CLIENT;
+    }
+
+    @Override
+    public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
+    {
+        final BlueprintPreviewData previewData = RenderingCache.getBlueprintPreviewData(SHARED_PREFIX + playerUUID);
+        if (previewData == null || previewData.getBlueprintId() != delta.blueprintId() || previewData.getPos() == null)
+        {
+            // dropped the preview meanwhile, e.g. the pack is missing here
+            return;
+        }
+
+        previewData.setPos(previewData.getPos().offset(delta.offset()));
+        if (previewData.getRotationMirror() != delta.rotationMirror())
+        {
+            previewData.setRotationMirror(delta.rotationMirror());
+        }
+    }
+}
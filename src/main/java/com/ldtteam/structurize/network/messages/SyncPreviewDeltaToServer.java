@@ -0,0 +1,55 @@
+package com.ldtteam.structurize.network.messages;
+
+import com.ldtteam.structurize.storage.rendering.ServerPreviewDistributor;
+import com.ldtteam.structurize.storage.rendering.types.PreviewDelta;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.network.NetworkEvent;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Sync a move or rotation of the blueprint preview to the server, if the blueprint did not change.
+ */
+public class SyncPreviewDeltaToServer implements IMessage
+{
+    /**
+     * The change.
+     */
+    private final PreviewDelta delta;
+
+    /**
+     * Buffer reading message constructor.
+     */
+    public SyncPreviewDeltaToServer(final FriendlyByteBuf buf)
+    {
+        this.delta = PreviewDelta.read(buf);
+    }
+
+    /**
+     * Send a preview change from the client.
+     * @param delta the change.
+     */
+    public SyncPreviewDeltaToServer(final PreviewDelta delta)
+    {
+        this.delta = delta;
+    }
+
+    @Override
+    public void toBytes(final FriendlyByteBuf buf)
+    {
+        this.delta.write(buf);
+    }
+
+    @Nullable
+    @Override
+    public LogicalSide getExecutionSide()
+    {
+        return LogicalSide.SERVER;
+    }
+
+    @Override
+    public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
+    {
+        ServerPreviewDistributor.update(this.delta, ctxIn.getSender());
+    }
+}
@@ -60,4 +60,10 @@ public class UpdateScanToolMessage implements IMessage
             tool.loadSlot(new ScanToolData(stack.getOrCreateTag()), stack);
         }
     }
+
+    @Override
+    public boolean isCompressible()
+    {
+        return true;
+    }
 }
@@ -0,0 +1,184 @@
+package com.ldtteam.structurize.network.messages.splitting;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression of split messages, applied to the whole serialized message before it is split.
+ * A compressed message starts with its uncompressed length as var int, followed by the deflate stream.
+ */
+public final class SplitPacketCompression
+{
+    /**
+     * Size of the working buffers.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Messages sent compressed.
+     */
+    private static final AtomicLong messages = new AtomicLong();
+
+    /**
+     * Uncompressed bytes of the messages sent compressed.
+     */
+    private static final AtomicLong rawBytes = new AtomicLong();
+
+    /**
+     * Compressed bytes of the messages sent compressed.
+     */
+    private static final AtomicLong compressedBytes = new AtomicLong();
+
+    /**
+     * Messages which were compressed but sent raw, as compressing did not make them smaller.
+     */
+    private static final AtomicLong incompressible = new AtomicLong();
+
+    /**
+     * Private constructor to hide implicit one.
+     */
+    private SplitPacketCompression()
+    {
+        /*
+         * Intentionally left empty.
+         */
+    }
+
+    /**
+     * Compress a serialized message.
+     *
+     * @param data the message data.
+     * @return the compressed data, null if compressing did not make it smaller.
+     */
+    public static byte[] compress(final byte[] data)
+    {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try
+        {
+            final FriendlyByteBuf output = new FriendlyByteBuf(Unpooled.buffer(data.length / 2 + 16));
+            output.writeVarInt(data.length);
+            deflater.setInput(data);
+            deflater.finish();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished() && output.writerIndex() < data.length)
+            {
+                final int length = deflater.deflate(buffer);
+                output.writeBytes(buffer, 0, length);
+            }
+
+            if (!deflater.finished() || output.writerIndex() >= data.length)
+            {
+                incompressible.incrementAndGet();
+                return null;
+            }
+
+            messages.incrementAndGet();
+            rawBytes.addAndGet(data.length);
+            compressedBytes.addAndGet(output.writerIndex());
+            final byte[] compressed = new byte[output.writerIndex()];
+            output.readBytes(compressed);
+            return compressed;
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompress a message compressed by {@link #compress(byte[])}.
+     *
+     * @param data     the compressed data, released by the caller.
+     * @param maxBytes the max uncompressed size.
+     * @return the uncompressed data.
+     * @throws IOException if the data is broken or exceeds the max size.
+     */
+    public static ByteBuf decompress(final ByteBuf data, final long maxBytes) throws IOException
+    {
+        final int length = new FriendlyByteBuf(data).readVarInt();
+        if (length < 0 || length > maxBytes)
+        {
+            throw new IOException("Compressed message exceeds the size limit: " + length);
+        }
+
+        final Inflater inflater = new Inflater();
+        try
+        {
+            final byte[] input = new byte[data.readableBytes()];
+            data.readBytes(input);
+            inflater.setInput(input);
+            // the claimed length is only an upper bound, the output grows with what actually inflates
+            final ByteBuf output = Unpooled.buffer(Math.min(length, Math.max(BUFFER_SIZE, input.length * 4)), length);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            try
+            {
+                while (!inflater.finished())
+                {
+                    final int inflated = inflater.inflate(buffer);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    {
+                        break;
+                    }
+                    if (inflated > output.maxWritableBytes())
+                    {
+                        throw new IOException("Compressed message exceeds its length: " + length);
+                    }
+                    output.writeBytes(buffer, 0, inflated);
+                }
+
+                if (output.readableBytes() != length)
+                {
+                    throw new IOException("Compressed message is truncated");
+                }
+                return output;
+            }
+            catch (final IOException | DataFormatException e)
+            {
+                output.release();
+                throw e;
+            }
+        }
+        catch (final DataFormatException e)
+        {
+            throw new IOException("Compressed message is broken", e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @return the statistics since the start of the game.
+     */
+    public static CompressionStats getStats()
+    {
+        return new CompressionStats(messages.get(), rawBytes.get(), compressedBytes.get(), incompressible.get());
+    }
+
+    /**
+     * Compression statistics.
+     *
+     * @param messages        messages sent compressed.
+     * @param rawBytes        their uncompressed size.
+     * @param compressedBytes their compressed size.
+     * @param incompressible  messages sent raw as compressing did not make them smaller.
+     */
+    public record CompressionStats(long messages, long rawBytes, long compressedBytes, long incompressible)
+    {
+        /**
+         * @return the compressed size in percent of the uncompressed size.
+         */
+        public long ratioPercent()
+        {
+            return rawBytes == 0 ? 100 : compressedBytes * 100 / rawBytes;
+        }
+    }
+}
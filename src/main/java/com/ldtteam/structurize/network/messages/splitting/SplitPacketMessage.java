@@ -1,20 +1,17 @@
 package com.ldtteam.structurize.network.messages.splitting;
 
-import com.google.common.collect.Maps;
-import com.google.common.primitives.Bytes;
 import com.ldtteam.structurize.Network;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.network.NetworkChannel;
 import com.ldtteam.structurize.network.messages.IMessage;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.fml.LogicalSide;
 import net.minecraftforge.network.NetworkEvent;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.io.IOException;
 
 /**
  * Represents a class that wrappers other messages in byte form and is used to split the wrapped messages data into several chunks.
@@ -41,6 +38,11 @@ public class SplitPacketMessage implements IMessage
      */
     private int innerMessageId = -1;
 
+    /**
+     * Indicates if the wrapped message is compressed, see {@link SplitPacketCompression}.
+     */
+    private boolean compressed = false;
+
     /**
      * The payload.
      */
@@ -55,11 +57,13 @@ public class SplitPacketMessage implements IMessage
         this.packetIndex = buf.readVarInt();
         this.terminator = buf.readBoolean();
         this.innerMessageId = buf.readVarInt();
+        this.compressed = buf.readBoolean();
         this.payload = buf.readByteArray();
     }
 
-    public SplitPacketMessage(final int communicationId, final int packetIndex, final boolean terminator, final int innerMessageId, final byte[] payload)
+    public SplitPacketMessage(final int communicationId, final int packetIndex, final boolean terminator, final int innerMessageId, final boolean compressed, final byte[] payload)
     {
+        this.compressed = compressed;
         this.communicationId = communicationId;
         this.packetIndex = packetIndex;
         this.terminator = terminator;
@@ -74,6 +78,7 @@ public class SplitPacketMessage implements IMessage
         buf.writeVarInt(this.packetIndex);
         buf.writeBoolean(this.terminator);
         buf.writeVarInt(this.innerMessageId);
+        buf.writeBoolean(this.compressed);
         buf.writeByteArray(this.payload);
     }
 
@@ -87,50 +92,65 @@ public class SplitPacketMessage implements IMessage
     @Override
     public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
     {
-        try
+        //Parts sent by different players share communication ids, they are told apart by the sender.
+        final ServerPlayer sender = ctxIn.getSender();
+        final SplitPacketReassembler reassembler = Network.getNetwork().getReassembler(isLogicalServer);
+        final ByteBuf parts = reassembler.add(sender == null ? null : sender.getUUID(), this.communicationId, this.packetIndex, this.terminator, this.payload);
+        if (parts == null)
+        {
+            //We are not the last message stop executing.
+            return;
+        }
+
+        final ByteBuf buffer;
+        if (this.compressed)
         {
-            //Sync on the message cache since this is still on the Netty thread.
-            synchronized (Network.getNetwork().getMessageCache())
+            try
             {
-                Network.getNetwork().getMessageCache().get(this.communicationId, Maps::newConcurrentMap).put(this.packetIndex, this.payload);
+                buffer = SplitPacketCompression.decompress(parts, reassembler.getMaxMessageBytes());
             }
-
-            if (!this.terminator)
+            catch (final IOException e)
             {
-                //We are not the last message stop executing.
+                Log.getLogger().warn("Failed to decompress split message " + this.communicationId, e);
                 return;
             }
-
-            //No need to sync again, since we are now the last packet to arrive.
-            //All data gets sorted and appended.
-            final byte[] packetData = Network.getNetwork().getMessageCache().get(this.communicationId, Maps::newConcurrentMap).entrySet()
-                                        .stream()
-                                        .sorted(Map.Entry.comparingByKey())
-                                        .map(Map.Entry::getValue)
-                                        .reduce(new byte[0], Bytes::concat);
-
-            //Grab the entry from the inner message id.
-            final NetworkChannel.NetworkingMessageEntry<?> messageEntry = Network.getNetwork().getMessagesTypes().get(this.innerMessageId);
-
-            //Create a new buffer that reads from the packet data and then deserialize the inner message.
-            final ByteBuf buffer = Unpooled.wrappedBuffer(packetData);
-            //Create a message.
-            final IMessage message = messageEntry.getCreator().apply(new FriendlyByteBuf(buffer));
-            buffer.release();
-
-            //Execute the message.
-            final LogicalSide packetOrigin = ctxIn.getDirection().getOriginationSide();
-            if (message.getExecutionSide() != null && packetOrigin.equals(message.getExecutionSide()))
+            finally
             {
-                Log.getLogger().warn("Receving {} at wrong side!", message.getClass().getName());
-                return;
+                parts.release();
             }
-            // boolean param MUST equals true if packet arrived at logical server
-            ctxIn.enqueueWork(() -> message.onExecute(ctxIn, packetOrigin.equals(LogicalSide.CLIENT)));
         }
-        catch (ExecutionException e)
+        else
+        {
+            buffer = parts;
+        }
+
+        //Grab the entry from the inner message id.
+        final NetworkChannel.NetworkingMessageEntry<?> messageEntry = Network.getNetwork().getMessagesTypes().get(this.innerMessageId);
+        if (messageEntry == null)
+        {
+            Log.getLogger().warn("Received split packet with unknown message id: " + this.innerMessageId);
+            return;
+        }
+
+        //Deserialize the inner message straight from the reassembled parts.
+        final IMessage message;
+        try
+        {
+            message = messageEntry.getCreator().apply(new FriendlyByteBuf(buffer));
+        }
+        finally
+        {
+            buffer.release();
+        }
+
+        //Execute the message.
+        final LogicalSide packetOrigin = ctxIn.getDirection().getOriginationSide();
+        if (message.getExecutionSide() != null && packetOrigin.equals(message.getExecutionSide()))
         {
-            Log.getLogger().error("Failed to handle split packet.", e);
+            Log.getLogger().warn("Receving {} at wrong side!", message.getClass().getName());
+            return;
         }
+        // boolean param MUST equals true if packet arrived at logical server
+        ctxIn.enqueueWork(() -> message.onExecute(ctxIn, packetOrigin.equals(LogicalSide.CLIENT)));
     }
 }
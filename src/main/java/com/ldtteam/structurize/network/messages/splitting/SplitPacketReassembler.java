@@ -0,0 +1,310 @@
+package com.ldtteam.structurize.network.messages.splitting;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.ldtteam.structurize.api.util.Log;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the parts of split messages until all of them arrived.
+ * Every part is stored at its index and the complete message is a composite buffer over the parts, nothing is copied,
+ * so reassembly is linear in the message size. Messages are bounded in size and dropped if they are not completed in time.
+ * Every sender has a budget of incomplete messages and of bytes buffered for them, parts over the budget are dropped.
+ */
+public class SplitPacketReassembler
+{
+    /**
+     * Max parts per message, bounds the index table.
+     */
+    private static final int MAX_PARTS = 1 << 16;
+
+    /**
+     * Max incomplete messages per sender, parts of a message are sent one after the other so there is rarely more than one.
+     */
+    private static final int MAX_PARTIALS_PER_SENDER = 4;
+
+    /**
+     * The incomplete messages by sender and communication id.
+     */
+    private final Cache<Key, PartialMessage> partialMessages;
+
+    /**
+     * Max total bytes of a message.
+     */
+    private final long maxMessageBytes;
+
+    /**
+     * The budget used by every sender with incomplete messages, null key for the server.
+     */
+    private final Map<UUID, SenderBudget> budgets = new HashMap<>();
+
+    /**
+     * Create a new reassembler.
+     *
+     * @param maxMessageBytes max total bytes of a message, larger ones are dropped. Also the max bytes buffered per sender.
+     * @param expireSeconds   time after the last received part after which an incomplete message is dropped.
+     */
+    public SplitPacketReassembler(final long maxMessageBytes, final long expireSeconds)
+    {
+        this.maxMessageBytes = maxMessageBytes;
+        this.partialMessages = CacheBuilder.newBuilder()
+          .expireAfterAccess(expireSeconds, TimeUnit.SECONDS)
+          .concurrencyLevel(8)
+          .removalListener(this::onRemoval)
+          .build();
+    }
+
+    /**
+     * Add a part of a message.
+     *
+     * @param sender          the sender, null if received from the server.
+     * @param communicationId the id of the message at the sender.
+     * @param packetIndex     the index of the part.
+     * @param terminator      if this is the last part.
+     * @param payload         the data of the part.
+     * @return the data of the whole message once all parts arrived, null while parts are missing or if the message was dropped.
+     */
+    @Nullable
+    public synchronized ByteBuf add(@Nullable final UUID sender, final int communicationId, final int packetIndex, final boolean terminator, final byte[] payload)
+    {
+        final Key key = new Key(sender, communicationId);
+        PartialMessage message = partialMessages.getIfPresent(key);
+        if (message == null)
+        {
+            SenderBudget budget = budgets.get(sender);
+            if (budget != null && budget.partials >= MAX_PARTIALS_PER_SENDER)
+            {
+                // expired messages only give back their budget once the cache is cleaned
+                partialMessages.cleanUp();
+                budget = budgets.get(sender);
+            }
+            if (budget != null && budget.partials >= MAX_PARTIALS_PER_SENDER)
+            {
+                Log.getLogger().warn("Dropping split message " + communicationId + (sender == null ? "" : " from " + sender) + ", too many incomplete messages");
+                return null;
+            }
+
+            message = new PartialMessage(sender);
+            budgets.computeIfAbsent(sender, uuid -> new SenderBudget()).partials++;
+            partialMessages.put(key, message);
+        }
+
+        if (!message.dropped)
+        {
+            final SenderBudget budget = budgets.get(sender);
+            if (!message.accepts(packetIndex, terminator))
+            {
+                Log.getLogger().warn("Dropping split message " + communicationId + (sender == null ? "" : " from " + sender) + ", invalid part index " + packetIndex);
+                drop(message, budget);
+            }
+            else if (message.size + payload.length > maxMessageBytes || budget.bytes + payload.length > maxMessageBytes)
+            {
+                Log.getLogger().warn("Dropping split message " + communicationId + (sender == null ? "" : " from " + sender) + ", it exceeds the size limit of " + maxMessageBytes + " bytes");
+                drop(message, budget);
+            }
+            else
+            {
+                budget.bytes += message.put(packetIndex, payload);
+            }
+        }
+
+        if (terminator && message.lastIndex < 0)
+        {
+            message.lastIndex = packetIndex;
+        }
+
+        if (message.lastIndex >= 0 && (message.dropped || message.isComplete()))
+        {
+            final ByteBuf result = message.dropped ? null : Unpooled.wrappedBuffer(message.toArray());
+            partialMessages.invalidate(key);
+            return result;
+        }
+        return null;
+    }
+
+    /**
+     * Drop a message, further parts of it are ignored until it completes or expires.
+     *
+     * @param message the message.
+     * @param budget  the budget of its sender.
+     */
+    private void drop(final PartialMessage message, final SenderBudget budget)
+    {
+        message.dropped = true;
+        message.parts.clear();
+        budget.bytes -= message.size;
+        message.size = 0;
+    }
+
+    /**
+     * Give the budget of a completed, dropped or expired message back to its sender.
+     *
+     * @param notification the removed message.
+     */
+    private synchronized void onRemoval(final RemovalNotification<Key, PartialMessage> notification)
+    {
+        final PartialMessage message = notification.getValue();
+        final SenderBudget budget = message == null ? null : budgets.get(message.sender);
+        if (budget == null)
+        {
+            return;
+        }
+
+        budget.partials--;
+        budget.bytes -= message.size;
+        if (budget.partials <= 0)
+        {
+            budgets.remove(message.sender);
+        }
+    }
+
+    /**
+     * @return the max total bytes of a message.
+     */
+    public long getMaxMessageBytes()
+    {
+        return maxMessageBytes;
+    }
+
+    /**
+     * @return the amount of incomplete messages.
+     */
+    public long size()
+    {
+        return partialMessages.size();
+    }
+
+    /**
+     * Identifies a message.
+     *
+     * @param sender          the sender, null if received from the server.
+     * @param communicationId the id of the message at the sender.
+     */
+    private record Key(@Nullable UUID sender, int communicationId) { }
+
+    /**
+     * The incomplete messages and buffered bytes of a sender.
+     */
+    private static class SenderBudget
+    {
+        /**
+         * The incomplete messages.
+         */
+        private int partials;
+
+        /**
+         * The buffered bytes of all incomplete messages.
+         */
+        private long bytes;
+    }
+
+    /**
+     * The parts of a message received so far.
+     */
+    private static class PartialMessage
+    {
+        /**
+         * The sender, null if received from the server.
+         */
+        @Nullable
+        private final UUID sender;
+
+        /**
+         * The parts by index, only the received ones are stored.
+         */
+        private final Int2ObjectMap<byte[]> parts = new Int2ObjectOpenHashMap<>();
+
+        /**
+         * The highest received index.
+         */
+        private int maxIndex = -1;
+
+        /**
+         * The received bytes.
+         */
+        private long size;
+
+        /**
+         * Index of the last part, -1 until it arrived.
+         */
+        private int lastIndex = -1;
+
+        /**
+         * Set when the message exceeded the limits, further parts are ignored.
+         */
+        private boolean dropped;
+
+        /**
+         * Create a new message.
+         *
+         * @param sender the sender, null if received from the server.
+         */
+        private PartialMessage(@Nullable final UUID sender)
+        {
+            this.sender = sender;
+        }
+
+        /**
+         * Check a part index against the table bound and, once known, the index of the last part.
+         *
+         * @param index      the index.
+         * @param terminator if the part claims to be the last one.
+         * @return true if the part fits the message.
+         */
+        private boolean accepts(final int index, final boolean terminator)
+        {
+            if (index < 0 || index >= MAX_PARTS || (lastIndex >= 0 && index > lastIndex))
+            {
+                return false;
+            }
+            return !terminator || (index >= maxIndex && (lastIndex < 0 || lastIndex == index));
+        }
+
+        /**
+         * Store a part at its index.
+         *
+         * @param index   the index.
+         * @param payload the data.
+         * @return the change of the buffered bytes.
+         */
+        private long put(final int index, final byte[] payload)
+        {
+            final byte[] previous = parts.put(index, payload);
+            maxIndex = Math.max(maxIndex, index);
+            final long delta = payload.length - (previous == null ? 0 : previous.length);
+            size += delta;
+            return delta;
+        }
+
+        /**
+         * @return true if all parts up to the last one arrived.
+         */
+        private boolean isComplete()
+        {
+            return parts.size() == lastIndex + 1 && maxIndex == lastIndex;
+        }
+
+        /**
+         * @return the parts in order, only valid once complete.
+         */
+        private byte[][] toArray()
+        {
+            final byte[][] ordered = new byte[lastIndex + 1][];
+            for (int i = 0; i <= lastIndex; i++)
+            {
+                ordered[i] = parts.get(i);
+            }
+            return ordered;
+        }
+    }
+}
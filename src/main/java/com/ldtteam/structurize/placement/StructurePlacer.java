@@ -501,10 +501,10 @@ public class StructurePlacer
         {
             for (int z = 0; z < iterator.size.getZ(); z++)
             {
-                final BlockPos localPos = new BlockPos(x,yLayer, z);
-                final BlockState localState = iterator.getBluePrintPositionInfo(localPos).getBlockInfo().getState();
+                final BlockState localState = handler.getBluePrint().getBlockState(x, yLayer, z);
                 if (localState.getFluidState().isEmpty() && localState.getBlock() != ModBlocks.blockSubstitution.get() && localState.getBlock() != ModBlocks.blockFluidSubstitution.get())
                 {
+                    final BlockPos localPos = new BlockPos(x, yLayer, z);
                     final BlockPos worldPos = handler.getProgressPosInWorld(localPos);
                     final BlockState worldState = world.getBlockState(worldPos);
                     final FluidState fluidState = worldState.getFluidState();
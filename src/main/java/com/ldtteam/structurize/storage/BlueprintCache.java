@@ -0,0 +1,208 @@
+package com.ldtteam.structurize.storage;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.ldtteam.structurize.Structurize;
+import com.ldtteam.structurize.blueprints.v1.Blueprint;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+
+/**
+ * Memory cache of decoded blueprints, keyed by pack, file path and file modification stamp.
+ * The size is bounded by {@code maxCachedSchematics} in weight units: every started {@link #WEIGHT_UNIT_BYTES} of decoded size count as one,
+ * so most blueprints weigh one while huge ones take the space of several.
+ * Cached instances are never handed out, callers always get a {@link Blueprint#copy()} which shares the block data until it is modified.
+ * Lookups take no lock, the cache is only rebuilt when the server config is loaded or reloaded with a different size.
+ */
+public final class BlueprintCache
+{
+    /**
+     * Decoded bytes per weight unit.
+     */
+    private static final long WEIGHT_UNIT_BYTES = 64 * 1024;
+
+    /**
+     * The cache, null until first used.
+     */
+    @Nullable
+    private static volatile Cache<Key, Blueprint> cache;
+
+    /**
+     * The max weight the current cache was built with.
+     */
+    private static volatile int maxWeight = -1;
+
+    /**
+     * Private constructor to hide implicit one.
+     */
+    private BlueprintCache()
+    {
+        /*
+         * Intentionally left empty.
+         */
+    }
+
+    /**
+     * Get a copy of a cached blueprint.
+     *
+     * @param pack         the pack name.
+     * @param path         the blueprint file.
+     * @param lastModified the modification stamp of the file.
+     * @return a copy of the blueprint or null if not cached.
+     */
+    @Nullable
+    public static Blueprint get(final String pack, final Path path, final long lastModified)
+    {
+        final Blueprint blueprint = getCache().getIfPresent(new Key(pack, path, lastModified));
+        return blueprint == null ? null : blueprint.copy();
+    }
+
+    /**
+     * Cache a freshly decoded blueprint. The given instance is kept, so it must not be handed out afterwards (use a copy).
+     *
+     * @param pack         the pack name.
+     * @param path         the blueprint file.
+     * @param lastModified the modification stamp of the file.
+     * @param blueprint    the decoded blueprint.
+     */
+    public static void put(final String pack, final Path path, final long lastModified, final Blueprint blueprint)
+    {
+        getCache().put(new Key(pack, path, lastModified), blueprint);
+    }
+
+    /**
+     * Check if a blueprint is cached, without counting as hit or miss.
+     *
+     * @param pack         the pack name.
+     * @param path         the blueprint file.
+     * @param lastModified the modification stamp of the file.
+     * @return true if cached.
+     */
+    public static boolean contains(final String pack, final Path path, final long lastModified)
+    {
+        return getCache().asMap().containsKey(new Key(pack, path, lastModified));
+    }
+
+    /**
+     * @return the approximate amount of decoded bytes the cache can hold.
+     */
+    public static long getCapacityBytes()
+    {
+        getCache();
+        return maxWeight * WEIGHT_UNIT_BYTES;
+    }
+
+    /**
+     * Drop all cached blueprints of a pack.
+     *
+     * @param pack the pack name.
+     */
+    public static void invalidatePack(final String pack)
+    {
+        getCache().asMap().keySet().removeIf(key -> key.pack().equals(pack));
+    }
+
+    /**
+     * Drop all cached versions of a blueprint file, or of all blueprints below a folder.
+     *
+     * @param path the blueprint file or folder.
+     */
+    public static void invalidate(final Path path)
+    {
+        final Path normalized = path.normalize();
+        getCache().asMap().keySet().removeIf(key -> key.path().normalize().startsWith(normalized));
+    }
+
+    /**
+     * Drop everything.
+     */
+    public static void invalidateAll()
+    {
+        getCache().invalidateAll();
+    }
+
+    /**
+     * @return the hit, miss and eviction counters.
+     */
+    public static CacheStats getStats()
+    {
+        return getCache().stats();
+    }
+
+    /**
+     * Apply the configured size, called when the server config is loaded or reloaded.
+     * Cached blueprints are moved to the resized cache as far as they fit.
+     */
+    public static void onConfigChanged()
+    {
+        if (cache != null)
+        {
+            resize();
+        }
+    }
+
+    /**
+     * Get the cache, built on first use.
+     *
+     * @return the cache.
+     */
+    private static Cache<Key, Blueprint> getCache()
+    {
+        final Cache<Key, Blueprint> current = cache;
+        return current == null ? resize() : current;
+    }
+
+    /**
+     * Build the cache with the configured size if it isn't built with it yet.
+     *
+     * @return the cache.
+     */
+    private static synchronized Cache<Key, Blueprint> resize()
+    {
+        final int configured = getConfiguredMaxWeight();
+        final Cache<Key, Blueprint> current = cache;
+        if (current != null && configured == maxWeight)
+        {
+            return current;
+        }
+
+        final Cache<Key, Blueprint> resized = CacheBuilder.newBuilder()
+                                                 .maximumWeight(configured)
+                                                 .<Key, Blueprint>weigher((key, blueprint) -> (int) Math.min(Integer.MAX_VALUE, blueprint.getByteSize() / WEIGHT_UNIT_BYTES + 1))
+                                                 .recordStats()
+                                                 .build();
+        if (current != null)
+        {
+            resized.putAll(current.asMap());
+        }
+        maxWeight = configured;
+        cache = resized;
+        return resized;
+    }
+
+    /**
+     * @return the configured max weight, the default if the server config is not loaded (remote client).
+     */
+    private static int getConfiguredMaxWeight()
+    {
+        try
+        {
+            return Structurize.getConfig().getServer().maxCachedSchematics.get();
+        }
+        catch (final IllegalStateException e)
+        {
+            return Structurize.getConfig().getServer().maxCachedSchematics.getDefault();
+        }
+    }
+
+    /**
+     * Cache key.
+     *
+     * @param pack         the pack name.
+     * @param path         the blueprint file.
+     * @param lastModified the modification stamp of the file.
+     */
+    private record Key(String pack, Path path, long lastModified) { }
+}
@@ -28,9 +28,19 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static com.ldtteam.structurize.api.util.constant.Constants.*;
 
@@ -39,6 +49,26 @@ import static com.ldtteam.structurize.api.util.constant.Constants.*;
  */
 public class BlueprintPlacementHandling
 {
+    /**
+     * Content addressed store of blueprints uploaded by clients, shared by all players.
+     */
+    private static final Path UPLOAD_PATH = new File(".").toPath().resolve(BLUEPRINT_FOLDER).resolve(CACHE_FOLDER).resolve("uploads");
+
+    /**
+     * File extension of stored uploads.
+     */
+    private static final String BLUEPRINT_EXTENSION = ".blueprint";
+
+    /**
+     * A hex SHA-256.
+     */
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    /**
+     * Max total size of the upload store, the least recently used uploads are deleted beyond it.
+     */
+    private static final long MAX_UPLOAD_BYTES = 256L * 1024 * 1024;
+
     /**
      * Handle placement with the help of a placement message.
      * @param message the placement message.
@@ -115,65 +145,282 @@ public class BlueprintPlacementHandling
     }
 
     /**
-     * Handle placement and store the received client blueprint.
+     * Handle placement of a client blueprint. The client first only sends the hash of the blueprint,
+     * the data is requested only if the upload store does not hold it yet.
      * @param blueprintSyncMessage the message with all the data.
      */
     public static void handlePlacement(final BlueprintSyncMessage blueprintSyncMessage, final ServerPlayer player)
     {
-        ServerFutureProcessor.queueBlueprint(new ServerFutureProcessor.BlueprintProcessingData(IOPool.submit(() ->
+        final String structurePackId = blueprintSyncMessage.structurePackId;
+        if (structurePackId == null
+              || structurePackId.isEmpty()
+              || structurePackId.contains("/")
+              || structurePackId.contains("\\")
+              || structurePackId.contains("..")
+              || blueprintSyncMessage.blueprintPath == null
+              || !HASH_PATTERN.matcher(blueprintSyncMessage.blueprintHash).matches())
         {
-            final Path blueprintParentPath = new File(".").toPath()
-              .resolve(BLUEPRINT_FOLDER)
-              .resolve(CLIENT_FOLDER)
-              .resolve(player.getUUID().toString())
-              .resolve(blueprintSyncMessage.structurePackId);
+            Log.getLogger().warn("Received invalid client blueprint from: " + player.getName().getString());
+            return;
+        }
 
-            final Path blueprintPath = blueprintParentPath.resolve(blueprintSyncMessage.blueprintPath);
-            final String packId = player.getUUID() + blueprintSyncMessage.structurePackId;
-            blueprintSyncMessage.structurePackId = packId;
+        // every path is checked against the folder of the player, not against a folder derived from the client data
+        final Path clientRoot = new File(".").toPath()
+          .resolve(BLUEPRINT_FOLDER)
+          .resolve(CLIENT_FOLDER)
+          .resolve(player.getUUID().toString())
+          .normalize();
+        final Path blueprintParentPath;
+        final Path blueprintPath;
+        try
+        {
+            blueprintParentPath = clientRoot.resolve(structurePackId).normalize();
+            blueprintPath = blueprintParentPath.resolve(blueprintSyncMessage.blueprintPath).normalize();
+        }
+        catch (final InvalidPathException e)
+        {
+            Log.getLogger().warn("Received invalid client blueprint path from: " + player.getName().getString());
+            return;
+        }
 
-            try
+        if (!clientRoot.equals(blueprintParentPath.getParent()) || !blueprintPath.startsWith(blueprintParentPath) || blueprintPath.equals(blueprintParentPath))
+        {
+            Log.getLogger().warn("Received invalid client blueprint path from: " + player.getName().getString());
+            return;
+        }
+
+        final String packId = player.getUUID() + structurePackId;
+
+        ServerFutureProcessor.queue(IOPool.submit(IOPool.Lane.BULK, () ->
+        {
+            final Path storedPath;
+            if (blueprintSyncMessage.blueprintData.length == 0)
             {
-                Files.createDirectories(blueprintPath.getParent());
-
-                JsonObject jsonObject = new JsonObject();
-                jsonObject.addProperty("version", 1);
-                jsonObject.addProperty("pack-format", 1);
-                jsonObject.addProperty("desc", "Local Dummy");
-                final JsonArray authorArray = new JsonArray();
-                jsonObject.add("authors", authorArray);
-                final JsonArray modsArray = new JsonArray();
-                modsArray.add(Constants.MOD_ID);
-                jsonObject.add("mods", modsArray);
-                jsonObject.addProperty("name", packId);
-                jsonObject.addProperty("icon",  "");
-
-                Files.write(blueprintParentPath.resolve("pack.json"), jsonObject.toString().getBytes());
-
-                final List<String> modList = new ArrayList<>();
-                for (IModInfo mod : ModList.get().getMods())
+                storedPath = UPLOAD_PATH.resolve(blueprintSyncMessage.blueprintHash + BLUEPRINT_EXTENSION);
+                if (!Files.isRegularFile(storedPath))
                 {
-                    modList.add(mod.getModId());
+                    return new UploadResult(true, null);
                 }
-
-                StructurePacks.discoverPackAtPath(blueprintParentPath, false, modList, true, LOCAL);
+                touch(storedPath);
             }
-            catch (IOException e)
+            else
             {
-                Log.getLogger().error("Failed to create folder structure for client blueprint: " + blueprintSyncMessage.blueprintPath, e);
-                return null;
+                storedPath = storeUpload(blueprintSyncMessage.blueprintData);
             }
 
             try
             {
-                Files.write(blueprintPath, blueprintSyncMessage.blueprintData);
+                materialize(storedPath, blueprintParentPath, blueprintPath, packId);
             }
             catch (IOException e)
             {
                 Log.getLogger().error("Failed to save blueprint file for client blueprint: " + blueprintSyncMessage.blueprintPath, e);
+                return new UploadResult(false, null);
             }
+            return new UploadResult(false, StructurePacks.getBlueprint(packId, blueprintPath));
+        }), result ->
+        {
+            if (result.missing())
+            {
+                Network.getNetwork().sendToPlayer(new ClientBlueprintRequestMessage(blueprintSyncMessage), player);
+                return;
+            }
+
+            blueprintSyncMessage.structurePackId = packId;
+            process(result.blueprint(), new BuildToolPlacementMessage(blueprintSyncMessage, player, player.level()));
+        });
+    }
+
+    /**
+     * Calculate the hash of blueprint file data.
+     * @param data the file data.
+     * @return the hex SHA-256.
+     */
+    public static String hash(final byte[] data)
+    {
+        try
+        {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        }
+        catch (final NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Put uploaded blueprint data into the upload store, named by its content hash. Blocks, meant to run on the IO pool.
+     * @param data the file data.
+     * @return the stored file.
+     * @throws IOException if writing fails.
+     */
+    private static Path storeUpload(final byte[] data) throws IOException
+    {
+        // named by the hash of what actually arrived, not by the hash the client claims
+        final Path storedPath = UPLOAD_PATH.resolve(hash(data) + BLUEPRINT_EXTENSION);
+        if (Files.isRegularFile(storedPath))
+        {
+            touch(storedPath);
+            return storedPath;
+        }
 
-            return StructurePacks.getBlueprint(packId, blueprintPath);
-        }), player.level(), blueprint -> process(blueprint, new BuildToolPlacementMessage(blueprintSyncMessage, player, player.level()))));
+        Files.createDirectories(UPLOAD_PATH);
+        final Path tempPath = Files.createTempFile(UPLOAD_PATH, storedPath.getFileName().toString(), ".tmp");
+        try
+        {
+            Files.write(tempPath, data);
+            Files.move(tempPath, storedPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(tempPath);
+        }
+
+        try
+        {
+            pruneUploads(storedPath);
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Unable to prune blueprint uploads", e);
+        }
+        return storedPath;
     }
+
+    /**
+     * Mark an upload as used, the modification time orders the uploads for eviction.
+     * @param storedPath the stored upload.
+     */
+    private static void touch(final Path storedPath)
+    {
+        try
+        {
+            Files.setLastModifiedTime(storedPath, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (final IOException e)
+        {
+            // only affects the eviction order
+            Log.getLogger().debug("Unable to touch blueprint upload: " + storedPath, e);
+        }
+    }
+
+    /**
+     * Delete the least recently used uploads until the store fits {@link #MAX_UPLOAD_BYTES}. Evicted uploads are simply
+     * requested from the client again. Blocks, meant to run on the IO pool.
+     * @param keep the upload which was just stored, never deleted.
+     * @throws IOException if the store can't be listed.
+     */
+    private static synchronized void pruneUploads(final Path keep) throws IOException
+    {
+        final List<StoredUpload> uploads = new ArrayList<>();
+        long total = 0;
+        try (final Stream<Path> files = Files.list(UPLOAD_PATH))
+        {
+            for (final Path file : (Iterable<Path>) files::iterator)
+            {
+                if (file.getFileName().toString().endsWith(BLUEPRINT_EXTENSION))
+                {
+                    final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    uploads.add(new StoredUpload(file, attributes.size(), attributes.lastModifiedTime()));
+                    total += attributes.size();
+                }
+            }
+        }
+
+        if (total <= MAX_UPLOAD_BYTES)
+        {
+            return;
+        }
+
+        uploads.sort(Comparator.comparing(StoredUpload::lastUsed));
+        for (final StoredUpload upload : uploads)
+        {
+            if (total <= MAX_UPLOAD_BYTES)
+            {
+                break;
+            }
+            if (!upload.path().equals(keep) && Files.deleteIfExists(upload.path()))
+            {
+                total -= upload.size();
+            }
+        }
+    }
+
+    /**
+     * Make a stored upload available in the client pack of the player. The file is only copied if it changed
+     * and the pack is only created and registered the first time. Blocks, meant to run on the IO pool.
+     * @param storedPath the stored upload.
+     * @param blueprintParentPath the root of the client pack.
+     * @param blueprintPath the blueprint file in the client pack.
+     * @param packId the id of the client pack.
+     * @throws IOException if writing fails.
+     */
+    private static void materialize(final Path storedPath, final Path blueprintParentPath, final Path blueprintPath, final String packId) throws IOException
+    {
+        final String hash = storedPath.getFileName().toString().replace(BLUEPRINT_EXTENSION, "");
+        final StructurePackMeta pack = StructurePacks.getStructurePack(packId);
+        final StructurePackIndex index = pack == null ? null : pack.getIndex();
+        final String currentHash;
+        if (!Files.isRegularFile(blueprintPath))
+        {
+            currentHash = null;
+        }
+        else
+        {
+            currentHash = index != null && index.containsBlueprint(blueprintPath) ? index.getHash(blueprintPath) : StructurePackIndex.hash(blueprintPath);
+        }
+
+        if (!hash.equals(currentHash))
+        {
+            Files.createDirectories(blueprintPath.getParent());
+            Files.copy(storedPath, blueprintPath, StandardCopyOption.REPLACE_EXISTING);
+            BlueprintCache.invalidate(blueprintPath);
+            if (index != null)
+            {
+                index.addFile(blueprintPath);
+            }
+        }
+
+        if (pack != null)
+        {
+            return;
+        }
+
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty("version", 1);
+        jsonObject.addProperty("pack-format", 1);
+        jsonObject.addProperty("desc", "Local Dummy");
+        final JsonArray authorArray = new JsonArray();
+        jsonObject.add("authors", authorArray);
+        final JsonArray modsArray = new JsonArray();
+        modsArray.add(Constants.MOD_ID);
+        jsonObject.add("mods", modsArray);
+        jsonObject.addProperty("name", packId);
+        jsonObject.addProperty("icon",  "");
+
+        Files.write(blueprintParentPath.resolve("pack.json"), jsonObject.toString().getBytes());
+
+        final List<String> modList = new ArrayList<>();
+        for (IModInfo mod : ModList.get().getMods())
+        {
+            modList.add(mod.getModId());
+        }
+
+        StructurePacks.discoverPackAtPath(blueprintParentPath, false, modList, true, LOCAL);
+    }
+
+    /**
+     * Result of looking up a client blueprint.
+     * @param missing true if the server does not have the blueprint and has to request the data.
+     * @param blueprint the blueprint, null if missing or unreadable.
+     */
+    private record UploadResult(boolean missing, @Nullable Blueprint blueprint) { }
+
+    /**
+     * An upload in the store.
+     * @param path the stored file.
+     * @param size the file size.
+     * @param lastUsed when the upload was last stored or referenced.
+     */
+    private record StoredUpload(Path path, long size, FileTime lastUsed) { }
 }
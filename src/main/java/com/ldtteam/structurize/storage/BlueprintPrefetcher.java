@@ -0,0 +1,139 @@
+package com.ldtteam.structurize.storage;
+
+import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.util.IOPool;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Speculatively loads what is likely browsed next when a category is opened: the blueprints of the category itself,
+ * of its child categories and of its sibling categories, in that order.
+ * Headers are read for all of them, full blueprints are decoded into the {@link BlueprintCache} until the memory budget is used up.
+ * Runs on the {@link IOPool.Lane#PREFETCH} lane, opening another category supersedes the running prefetch.
+ */
+public final class BlueprintPrefetcher
+{
+    /**
+     * Max decoded bytes loaded per opened category.
+     */
+    private static final long MAX_BUDGET_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Share of the cache capacity a prefetch may fill at most, so it never evicts everything else.
+     */
+    private static final int CACHE_SHARE_DIVISOR = 2;
+
+    /**
+     * Bumped on every request, a running prefetch stops once it is outdated.
+     */
+    private static final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * The pending prefetch.
+     */
+    private static Future<?> pending;
+
+    /**
+     * Private constructor to hide implicit one.
+     */
+    private BlueprintPrefetcher()
+    {
+        /*
+         * Intentionally left empty.
+         */
+    }
+
+    /**
+     * Prefetch around an opened category.
+     *
+     * @param packMeta the pack.
+     * @param subPath  the opened category, empty for the pack root.
+     */
+    public static synchronized void prefetch(final StructurePackMeta packMeta, final String subPath)
+    {
+        final StructurePackIndex index = packMeta.getIndex();
+        if (index == null)
+        {
+            return;
+        }
+
+        IOPool.cancel(pending);
+        final int current = generation.incrementAndGet();
+        pending = IOPool.submit(IOPool.Lane.PREFETCH, () ->
+        {
+            run(packMeta, index, packMeta.getPath().resolve(packMeta.getNormalizedSubPath(subPath)), current);
+            return null;
+        });
+    }
+
+    /**
+     * Do the prefetch.
+     *
+     * @param packMeta the pack.
+     * @param index    the pack index.
+     * @param opened   the opened folder.
+     * @param current  the generation of this request.
+     */
+    private static void run(final StructurePackMeta packMeta, final StructurePackIndex index, final Path opened, final int current)
+    {
+        final StructurePackIndex.Folder folder = index.getFolder(opened);
+        if (folder == null)
+        {
+            return;
+        }
+
+        final Set<Path> folders = new LinkedHashSet<>();
+        folders.add(folder.getPath());
+        folders.addAll(folder.getFolders());
+        final StructurePackIndex.Folder parent = folder.getPath().equals(packMeta.getPath().normalize()) ? null : index.getFolder(folder.getPath().getParent());
+        if (parent != null)
+        {
+            folders.addAll(parent.getFolders());
+        }
+
+        final List<Path> blueprints = new ArrayList<>();
+        for (final Path path : folders)
+        {
+            final StructurePackIndex.Folder target = index.getFolder(path);
+            if (target != null)
+            {
+                blueprints.addAll(target.getBlueprints());
+            }
+        }
+
+        for (final Path blueprint : blueprints)
+        {
+            if (generation.get() != current)
+            {
+                return;
+            }
+            index.getMetadata(blueprint);
+        }
+
+        final long budget = Math.min(MAX_BUDGET_BYTES, BlueprintCache.getCapacityBytes() / CACHE_SHARE_DIVISOR);
+        long used = 0;
+        for (final Path blueprint : blueprints)
+        {
+            if (generation.get() != current || used >= budget)
+            {
+                return;
+            }
+
+            try
+            {
+                used += StructurePacks.prefetchBlueprint(packMeta.getName(), blueprint);
+            }
+            catch (final IOException e)
+            {
+                Log.getLogger().debug("Failed to prefetch blueprint: " + blueprint, e);
+            }
+        }
+    }
+}
@@ -1,30 +1,49 @@
 package com.ldtteam.structurize.storage;
 
 import com.ldtteam.structurize.blueprints.v1.Blueprint;
+import com.ldtteam.structurize.util.MainThreadExecutor;
 import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 /**
- * Waits for blueprint futures to finish loading and then processes them.
+ * Runs the continuations of blueprint futures on the client thread.
+ * Everything which completed is processed at the end of the client tick, bounded by a time budget.
  */
 public class ClientFutureProcessor
 {
     /**
-     * Queue for processing blueprint futures.
+     * Max time per tick spent on continuations, kept low to not cost frames.
      */
-    private static final Queue<BlueprintProcessingData> blueprintConsumerQueue = new LinkedList<>();
+    private static final long TICK_BUDGET_MS = 4;
 
     /**
-     * Queue for processing data futures.
+     * The client thread executor.
      */
-    private static final Queue<BlueprintDataProcessingData> blueprintDataConsumerQueue = new LinkedList<>();
+    private static final MainThreadExecutor executor = new MainThreadExecutor(TICK_BUDGET_MS);
+
+    /**
+     * Get the executor to run continuations on the client thread, e.g. for {@link java.util.concurrent.CompletableFuture#thenAcceptAsync(Consumer, Executor)}.
+     * @return the executor.
+     */
+    public static Executor getExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * Hand the result of a future to a consumer on the client thread.
+     * @param future the future.
+     * @param consumer the consumer.
+     */
+    public static <T> void queue(@NotNull final Future<T> future, @NotNull final Consumer<T> consumer)
+    {
+        executor.queue(future, consumer);
+    }
 
     /**
      * Queue processing data to be handled on tick.
@@ -32,7 +51,7 @@ public class ClientFutureProcessor
      */
     public static void queueBlueprint(@NotNull final ClientFutureProcessor.BlueprintProcessingData processingData)
     {
-        blueprintConsumerQueue.add(processingData);
+        executor.queue(processingData.blueprintFuture(), processingData.consumer());
     }
 
     /**
@@ -41,7 +60,7 @@ public class ClientFutureProcessor
      */
     public static void queueBlueprintData(@NotNull final ClientFutureProcessor.BlueprintDataProcessingData processingData)
     {
-        blueprintDataConsumerQueue.add(processingData);
+        executor.queue(processingData.blueprintDataFuture(), processingData.consumer());
     }
 
     @SubscribeEvent
@@ -49,31 +68,7 @@ public class ClientFutureProcessor
     {
         if (event.phase == TickEvent.Phase.END)
         {
-            if (!blueprintConsumerQueue.isEmpty() && blueprintConsumerQueue.peek().blueprintFuture.isDone())
-            {
-                final BlueprintProcessingData data = blueprintConsumerQueue.poll();
-                try
-                {
-                    data.consumer.accept(data.blueprintFuture.get());
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    e.printStackTrace();
-                }
-            }
-
-            if (!blueprintDataConsumerQueue.isEmpty() && blueprintDataConsumerQueue.peek().blueprintDataFuture.isDone())
-            {
-                final BlueprintDataProcessingData data = blueprintDataConsumerQueue.poll();
-                try
-                {
-                    data.consumer.accept(data.blueprintDataFuture.get());
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    e.printStackTrace();
-                }
-            }
+            executor.drain();
         }
     }
 
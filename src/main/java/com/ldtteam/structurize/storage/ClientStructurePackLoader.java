@@ -7,12 +7,12 @@ import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.api.util.constant.Constants;
 import com.ldtteam.structurize.network.messages.NotifyServerAboutStructurePacksMessage;
+import com.ldtteam.structurize.network.messages.RequestStructurePackFilesMessage;
+import com.ldtteam.structurize.network.messages.StructurePackChunkAckMessage;
 import com.ldtteam.structurize.network.messages.SyncSettingsToServer;
 import com.ldtteam.structurize.storage.rendering.RenderingCache;
 import com.ldtteam.structurize.util.IOPool;
 import com.ldtteam.structurize.util.JavaUtils;
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufInputStream;
 import net.minecraft.client.Minecraft;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
@@ -21,15 +21,12 @@ import net.minecraftforge.eventbus.api.EventPriority;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.ModList;
 import net.minecraftforge.forgespi.language.IModInfo;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
-import java.util.Map;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -57,6 +54,31 @@ public class ClientStructurePackLoader
      */
     public static volatile ClientLoadingState loadingState = ClientLoadingState.LOADING;
 
+    /**
+     * Extension of unfinished pack downloads.
+     */
+    private static final String DOWNLOAD_EXTENSION = ".part";
+
+    /**
+     * Packs of which files were requested from the server, with the local files to remove once they arrive.
+     */
+    private static final Map<String, Set<String>> pendingDeltas = new ConcurrentHashMap<>();
+
+    /**
+     * The files requested per pack, kept to request them again if the download arrives corrupted.
+     */
+    private static final Map<String, List<String>> requestedFiles = new ConcurrentHashMap<>();
+
+    /**
+     * Packs which were requested again after a corrupted download, they are not retried a second time.
+     */
+    private static final Set<String> retriedPacks = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Set once the last pack manifest of the sync arrived.
+     */
+    private static volatile boolean lastManifestReceived = false;
+
     /**
      * Called on client mod construction.
      */
@@ -167,6 +189,10 @@ public class ClientStructurePackLoader
             {
                 Log.getLogger().warn("Client logged off. Resetting Pack Meta and Reloading State");
                 loadingState = ClientLoadingState.LOADING;
+                pendingDeltas.clear();
+                requestedFiles.clear();
+                retriedPacks.clear();
+                lastManifestReceived = false;
                 StructurePacks.clearPacks();
                 RenderingCache.clear();
                 onClientLoading();
@@ -245,80 +271,434 @@ public class ClientStructurePackLoader
     }
 
     /**
-     * On reception of a new structure pack.
+     * On reception of the file hashes of a server structure pack. Compares them to the local copy of the pack
+     * and requests only the missing and changed files.
      *
      * @param packName the name of the structure pack.
-     * @param payload the payload of the pack.
-     * @param eol if last sync.
+     * @param hashes   the hex SHA-256 by relative file path.
+     * @param eol      if the last manifest of the sync.
      */
-    public static void onStructurePackTransfer(final String packName, final ByteBuf payload, final boolean eol)
+    public static void onStructurePackManifest(final String packName, final Map<String, String> hashes, final boolean eol)
     {
-        Log.getLogger().warn("Received Structure pack from the Server: " + packName);
-        IOPool.execute(() ->
+        IOPool.execute(IOPool.Lane.BULK, () ->
         {
-            final StructurePackMeta pack = StructurePacks.disablePack(packName);
-            if (pack != null && !pack.isImmutable() && !JavaUtils.deleteDirectory(pack.getPath()))
+            try
             {
-                Log.getLogger().warn("Error trying to delete pack: ");
+                final Path archivePath = getArchivePath(packName);
+                final Map<String, String> localHashes = new HashMap<>();
+                if (Files.isRegularFile(archivePath))
+                {
+                    try (final FileSystem fileSystem = FileSystems.newFileSystem(archivePath))
+                    {
+                        localHashes.putAll(StructurePackIndex.hashFiles(fileSystem.getPath("/"), null));
+                    }
+                    catch (final IOException e)
+                    {
+                        // broken archive, fetch everything again
+                        Log.getLogger().warn("Unable to read structure pack archive: " + archivePath, e);
+                    }
+                }
+
+                final List<String> requested = new ArrayList<>();
+                for (final Map.Entry<String, String> file : hashes.entrySet())
+                {
+                    if (!file.getValue().equals(localHashes.get(file.getKey())))
+                    {
+                        requested.add(file.getKey());
+                    }
+                }
+                final Set<String> removed = new HashSet<>(localHashes.keySet());
+                removed.removeAll(hashes.keySet());
+
+                Log.getLogger().info("Structure pack " + packName + ": " + requested.size() + " of " + hashes.size() + " files changed, " + removed.size() + " removed");
+                if (requested.isEmpty())
+                {
+                    if (!removed.isEmpty())
+                    {
+                        StructurePacks.disablePack(packName);
+                        patchArchive(archivePath, removed, null);
+                    }
+                    if (!StructurePacks.hasPack(packName))
+                    {
+                        discoverArchive(archivePath);
+                    }
+                }
+                else
+                {
+                    pendingDeltas.put(packName, removed);
+                    requestFiles(packName, requested);
+                }
+            }
+            catch (final IOException | IllegalArgumentException ex)
+            {
+                Log.getLogger().error("Unable to update structure pack archive", ex);
             }
 
-            try (ZipInputStream zis = new ZipInputStream(new ByteBufInputStream(payload)))
+            if (eol)
+            {
+                lastManifestReceived = true;
+            }
+            checkFinishedSyncing();
+        });
+    }
+
+    /**
+     * On reception of a chunk of a streamed structure pack, the whole pack or the requested files of it.
+     * Chunks are appended to a download file which survives reconnects, so an interrupted transfer resumes where it stopped.
+     *
+     * @param packName  the name of the structure pack.
+     * @param hash      the hex SHA-256 of the whole payload.
+     * @param totalSize the size of the whole payload.
+     * @param offset    the offset of the chunk.
+     * @param data      the chunk.
+     */
+    public static void onStructurePackChunk(final String packName, final String hash, final int totalSize, final int offset, final byte[] data)
+    {
+        IOPool.execute(IOPool.Lane.BULK, () ->
+        {
+            try
             {
-                ZipEntry zipEntry = zis.getNextEntry();
-                final Path structureFolder = Minecraft.getInstance().gameDirectory.toPath().resolve(BLUEPRINT_FOLDER);
-                JavaUtils.deleteDirectory(structureFolder.resolve(packName));
-                final Path rootPath = Files.createDirectory(structureFolder.resolve(packName));
+                final Path downloadPath = getDownloadPath(packName, hash);
+                long received = Files.exists(downloadPath) ? Files.size(downloadPath) : 0;
+                if (received == 0 && offset == 0)
+                {
+                    // a new transfer supersedes unfinished ones of older pack states
+                    JavaUtils.deleteDirectory(downloadPath.getParent());
+                    Files.createDirectories(downloadPath.getParent());
+                }
 
-                while (zipEntry != null)
+                if (received > totalSize)
+                {
+                    Files.delete(downloadPath);
+                    received = 0;
+                }
+                else if (offset == received)
                 {
-                    boolean isDirectory = zipEntry.isDirectory();
-                    Path newPath = zipSlipProtect(zipEntry, rootPath);
+                    Files.write(downloadPath, data, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    received += data.length;
+                }
 
-                    if (isDirectory)
-                    {
-                        Files.createDirectories(newPath);
-                    }
-                    else
+                // chunks at other offsets are dropped, the ack tells the server where to continue
+                Network.getNetwork().sendToServer(new StructurePackChunkAckMessage(packName, hash, (int) received));
+
+                if (received >= totalSize)
+                {
+                    Log.getLogger().info("Received Structure pack from the Server: " + packName);
+                    final List<String> retryFiles;
+                    try
                     {
-                        if (newPath.getParent() != null)
+                        if (hash.equals(StructurePackIndex.hash(downloadPath)))
+                        {
+                            retryFiles = null;
+                            applyDownload(packName, downloadPath);
+                        }
+                        else
                         {
-                            if (Files.notExists(newPath.getParent()))
+                            retryFiles = retriedPacks.add(packName) ? requestedFiles.get(packName) : null;
+                            if (retryFiles != null)
+                            {
+                                Log.getLogger().warn("Received corrupted structure pack, requesting it again: " + packName);
+                            }
+                            else
                             {
-                                Files.createDirectories(newPath.getParent());
+                                Log.getLogger().error("Received corrupted structure pack: " + packName);
+                                reportFailedDownload(packName);
                             }
                         }
-
-                        Files.copy(zis, newPath, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    finally
+                    {
+                        // a failed apply must not leave the payload behind or keep the sync waiting
+                        Files.deleteIfExists(downloadPath);
                     }
 
-                    zipEntry = zis.getNextEntry();
+                    if (retryFiles != null)
+                    {
+                        requestFiles(packName, retryFiles);
+                        return;
+                    }
+                    finishDownload(packName);
                 }
-                zis.closeEntry();
+            }
+            catch (final IOException | IllegalArgumentException ex)
+            {
+                Log.getLogger().error("Unable to store structure pack download: " + packName, ex);
+                reportFailedDownload(packName);
+                finishDownload(packName);
+            }
+        });
+    }
 
-                final List<String> modList = new ArrayList<>();
-                for (IModInfo mod : ModList.get().getMods())
+    /**
+     * Request files of a pack from the server, along with the unfinished download of the pack if there is one,
+     * so the server continues the transfer from the offset the client already has.
+     *
+     * @param packName  the name of the structure pack.
+     * @param requested the relative paths of the requested files.
+     * @throws IOException if the pack name would leave the download folder.
+     */
+    private static void requestFiles(final String packName, final List<String> requested) throws IOException
+    {
+        requestedFiles.put(packName, requested);
+
+        String resumeHash = null;
+        int resumeOffset = 0;
+        final Path downloadFolder = getDownloadFolder(packName);
+        if (Files.isDirectory(downloadFolder))
+        {
+            try (final Stream<Path> files = Files.list(downloadFolder))
+            {
+                final Path partial = files.filter(file -> file.getFileName().toString().matches("[0-9a-f]{64}\\" + DOWNLOAD_EXTENSION)).findFirst().orElse(null);
+                if (partial != null)
                 {
-                    modList.add(mod.getModId());
+                    final String name = partial.getFileName().toString();
+                    resumeHash = name.substring(0, name.length() - DOWNLOAD_EXTENSION.length());
+                    resumeOffset = (int) Files.size(partial);
                 }
-
-                // now load what we unzipped.
-                StructurePacks.discoverPackAtPath(rootPath, true, modList, false, LOCAL);
             }
-            catch (final IOException ex)
+            catch (final IOException e)
             {
-                Log.getLogger().error("Unable to read datapack from zip", ex);
+                // the transfer starts over
+                Log.getLogger().warn("Unable to read unfinished structure pack download: " + packName, e);
+                resumeHash = null;
+                resumeOffset = 0;
             }
+        }
 
-            payload.release();
-            if (eol)
+        final RequestStructurePackFilesMessage message = new RequestStructurePackFilesMessage(packName, requested, resumeHash, resumeOffset);
+        ClientFutureProcessor.getExecutor().execute(() -> Network.getNetwork().sendToServer(message));
+    }
+
+    /**
+     * Stop waiting for the download of a pack, successful or not.
+     *
+     * @param packName the name of the structure pack.
+     */
+    private static void finishDownload(final String packName)
+    {
+        pendingDeltas.remove(packName);
+        requestedFiles.remove(packName);
+        checkFinishedSyncing();
+    }
+
+    /**
+     * Tell the player that a pack could not be synced, they keep the local copy if there is one.
+     *
+     * @param packName the name of the structure pack.
+     */
+    private static void reportFailedDownload(final String packName)
+    {
+        ClientFutureProcessor.getExecutor().execute(() -> {
+            if (Minecraft.getInstance().player != null)
             {
-                loadingState = ClientLoadingState.FINISHED_SYNCING;
-                StructurePacks.setFinishedLoading();
-                StructurePacks.selectedPack = StructurePacks.getPackMetas().iterator().next();
+                Minecraft.getInstance().player.sendSystemMessage(Component.translatable("structurize.pack.download.error", packName));
             }
         });
     }
 
+    /**
+     * Apply a completely received pack download: patch the local archive if only files were requested, else replace it.
+     *
+     * @param packName     the name of the structure pack.
+     * @param downloadPath the received zip.
+     * @throws IOException if the archive can't be written.
+     */
+    private static void applyDownload(final String packName, final Path downloadPath) throws IOException
+    {
+        // resolve the archive first, a bad name must fail before anything is deleted
+        final Path archivePath = getArchivePath(packName);
+
+        final StructurePackMeta pack = StructurePacks.disablePack(packName);
+        if (pack != null && !pack.isImmutable() && pack.getArchive() == null && !JavaUtils.deleteDirectory(pack.getPath()))
+        {
+            Log.getLogger().warn("Error trying to delete pack: ");
+        }
+
+        // the pack is kept as the received archive and read in place, see StructurePacks#discoverPackAtPath
+        JavaUtils.deleteDirectory(archivePath.getParent().resolve(packName));
+
+        final Set<String> removed = pendingDeltas.get(packName);
+        if (removed != null && Files.isRegularFile(archivePath))
+        {
+            patchArchive(archivePath, removed, downloadPath);
+        }
+        else
+        {
+            Files.move(downloadPath, archivePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        discoverArchive(archivePath);
+    }
+
+    /**
+     * Finish the sync once the last manifest arrived and all requested files were received.
+     */
+    private static synchronized void checkFinishedSyncing()
+    {
+        if (lastManifestReceived && pendingDeltas.isEmpty() && loadingState != ClientLoadingState.FINISHED_SYNCING)
+        {
+            loadingState = ClientLoadingState.FINISHED_SYNCING;
+            StructurePacks.setFinishedLoading();
+            if (!StructurePacks.getPackMetas().isEmpty())
+            {
+                StructurePacks.selectedPack = StructurePacks.getPackMetas().iterator().next();
+            }
+        }
+    }
+
+    /**
+     * Get the archive a synced pack is stored in.
+     *
+     * @param packName the name of the pack.
+     * @return the archive path.
+     * @throws IOException if the pack name would leave the blueprint folder.
+     */
+    private static Path getArchivePath(final String packName) throws IOException
+    {
+        checkPackName(packName);
+        final Path structureFolder = Minecraft.getInstance().gameDirectory.toPath().resolve(BLUEPRINT_FOLDER);
+        final Path archivePath = structureFolder.resolve(packName + StructurePacks.ZIP_EXTENSION);
+        if (!archivePath.normalize().getParent().equals(structureFolder.normalize()))
+        {
+            throw new IOException("Bad pack name: " + packName);
+        }
+        return archivePath;
+    }
+
+    /**
+     * Get the file a streamed pack is downloaded to, named by the payload hash so a resumed transfer finds it again.
+     *
+     * @param packName the name of the pack.
+     * @param hash     the hex SHA-256 of the payload.
+     * @return the download path.
+     * @throws IOException if the pack name would leave the download folder.
+     */
+    private static Path getDownloadPath(final String packName, final String hash) throws IOException
+    {
+        return getDownloadFolder(packName).resolve(hash + DOWNLOAD_EXTENSION);
+    }
+
+    /**
+     * Get the folder the streamed payloads of a pack are downloaded to.
+     *
+     * @param packName the name of the pack.
+     * @return the download folder of the pack.
+     * @throws IOException if the pack name would leave the download folder.
+     */
+    private static Path getDownloadFolder(final String packName) throws IOException
+    {
+        checkPackName(packName);
+        final Path downloadFolder = Minecraft.getInstance().gameDirectory.toPath().resolve(BLUEPRINT_FOLDER).resolve(CACHE_FOLDER).resolve("downloads");
+        final Path packFolder = downloadFolder.resolve(packName);
+        if (!packFolder.normalize().getParent().equals(downloadFolder.normalize()))
+        {
+            throw new IOException("Bad pack name: " + packName);
+        }
+        return packFolder;
+    }
+
+    /**
+     * Check that a pack name sent by the server is a plain file name, before it is used to delete or create anything.
+     *
+     * @param packName the name of the pack.
+     * @throws IOException if the name is empty, contains a separator or is no valid file name.
+     */
+    private static void checkPackName(final String packName) throws IOException
+    {
+        if (packName.isEmpty() || packName.contains("/") || packName.contains("\\") || packName.contains(".."))
+        {
+            throw new IOException("Bad pack name: " + packName);
+        }
+
+        try
+        {
+            // also covers the temp file names derived from it, see patchArchive
+            Path.of(packName + StructurePacks.ZIP_EXTENSION);
+        }
+        catch (final InvalidPathException e)
+        {
+            throw new IOException("Bad pack name: " + packName, e);
+        }
+    }
+
+    /**
+     * Register a synced pack archive.
+     *
+     * @param archivePath the archive.
+     */
+    private static void discoverArchive(final Path archivePath)
+    {
+        final List<String> modList = new ArrayList<>();
+        for (IModInfo mod : ModList.get().getMods())
+        {
+            modList.add(mod.getModId());
+        }
+
+        StructurePacks.discoverPackAtPath(archivePath, true, modList, false, LOCAL);
+    }
+
+    /**
+     * Patch a pack archive in place: remove files and add or replace the files of a zipped payload.
+     * Works on a copy, so the archive only changes once the patch is complete. The pack must be disabled.
+     *
+     * @param archivePath the archive.
+     * @param removed     the files to remove relative to the pack root.
+     * @param payload     the zip with the files to add, null if nothing is added.
+     * @throws IOException if the archive can't be written.
+     */
+    private static void patchArchive(final Path archivePath, final Set<String> removed, @Nullable final Path payload) throws IOException
+    {
+        final Path tempPath = Files.createTempFile(archivePath.getParent(), archivePath.getFileName().toString(), ".tmp");
+        try
+        {
+            Files.copy(archivePath, tempPath, StandardCopyOption.REPLACE_EXISTING);
+            try (final FileSystem fileSystem = FileSystems.newFileSystem(tempPath))
+            {
+                final Path root = fileSystem.getPath("/");
+                for (final String file : removed)
+                {
+                    final Path path = root.resolve(file).normalize();
+                    if (path.startsWith(root))
+                    {
+                        Files.deleteIfExists(path);
+                    }
+                }
+
+                if (payload != null)
+                {
+                    try (final ZipInputStream zis = new ZipInputStream(new BufferedInputStream(Files.newInputStream(payload))))
+                    {
+                        ZipEntry entry;
+                        while ((entry = zis.getNextEntry()) != null)
+                        {
+                            final Path target = zipSlipProtect(entry, root);
+                            if (entry.isDirectory())
+                            {
+                                Files.createDirectories(target);
+                                continue;
+                            }
+
+                            if (target.getParent() != null)
+                            {
+                                Files.createDirectories(target.getParent());
+                            }
+                            Files.copy(zis, target, StandardCopyOption.REPLACE_EXISTING);
+                            if (entry.getLastModifiedTime() != null)
+                            {
+                                Files.setLastModifiedTime(target, entry.getLastModifiedTime());
+                            }
+                        }
+                    }
+                }
+            }
+            Files.move(tempPath, archivePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
     public static Path zipSlipProtect(ZipEntry zipEntry, Path targetDir) throws IOException
     {
         Path targetDirResolved = targetDir.resolve(zipEntry.getName());
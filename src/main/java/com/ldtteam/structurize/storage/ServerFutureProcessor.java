@@ -1,37 +1,52 @@
 package com.ldtteam.structurize.storage;
 
 import com.ldtteam.structurize.blueprints.v1.Blueprint;
+import com.ldtteam.structurize.util.MainThreadExecutor;
 import net.minecraft.world.level.Level;
 import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 /**
- * Waits for blueprint futures to finish loading and then processes them.
+ * Runs the continuations of blueprint futures on the server thread.
+ * Everything which completed is processed at the end of the server tick, bounded by a time budget.
  */
 public class ServerFutureProcessor
 {
     /**
-     * Queue for processing blueprint futures.
+     * Max time per tick spent on continuations.
      */
-    private static final Queue<BlueprintProcessingData> blueprintConsumerQueue = new LinkedList<>();
+    private static final long TICK_BUDGET_MS = 10;
 
     /**
-     * Queue for processing blueprint data futures.
+     * The server thread executor.
      */
-    private static final Queue<BlueprintDataProcessingData> blueprintDataConsumerQueue = new LinkedList<>();
+    private static final MainThreadExecutor executor = new MainThreadExecutor(TICK_BUDGET_MS);
 
     /**
-     * Queue for processing blueprint futures.
+     * Get the executor to run continuations on the server thread, e.g. for {@link java.util.concurrent.CompletableFuture#thenAcceptAsync(Consumer, Executor)}.
+     * @return the executor.
      */
-    private static final Queue<BlueprintListProcessingData> blueprintListConsumerQueue = new LinkedList<>();
+    public static Executor getExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * Hand the result of a future to a consumer on the server thread.
+     * @param future the future.
+     * @param consumer the consumer.
+     */
+    public static <T> void queue(@NotNull final Future<T> future, @NotNull final Consumer<T> consumer)
+    {
+        executor.queue(future, consumer);
+    }
 
     /**
      * Queue processing data to be handled on tick.
@@ -39,7 +54,7 @@ public class ServerFutureProcessor
      */
     public static void queueBlueprint(@NotNull final BlueprintProcessingData processingData)
     {
-        blueprintConsumerQueue.add(processingData);
+        executor.queue(processingData.blueprintFuture(), processingData.consumer());
     }
 
     /**
@@ -48,7 +63,7 @@ public class ServerFutureProcessor
      */
     public static void queueBlueprintList(@NotNull final BlueprintListProcessingData processingData)
     {
-        blueprintListConsumerQueue.add(processingData);
+        executor.queue(processingData.blueprintFuture(), processingData.consumer());
     }
 
     /**
@@ -57,67 +72,36 @@ public class ServerFutureProcessor
      */
     public static void queueBlueprintData(@NotNull final BlueprintDataProcessingData processingData)
     {
-        blueprintDataConsumerQueue.add(processingData);
+        executor.queue(processingData.blueprintDataFuture(), processingData.consumer());
     }
 
     @SubscribeEvent
-    public static void onWorldTick(final TickEvent.LevelTickEvent event)
+    public static void onServerTick(final TickEvent.ServerTickEvent event)
     {
         if (event.phase == TickEvent.Phase.END)
         {
-            if (!blueprintConsumerQueue.isEmpty() && blueprintConsumerQueue.peek().level == event.level && blueprintConsumerQueue.peek().blueprintFuture.isDone())
-            {
-                final BlueprintProcessingData data = blueprintConsumerQueue.poll();
-                try
-                {
-                    data.consumer.accept(data.blueprintFuture.get());
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    e.printStackTrace();
-                }
-            }
-
-            if (!blueprintDataConsumerQueue.isEmpty() && blueprintDataConsumerQueue.peek().level == event.level && blueprintDataConsumerQueue.peek().blueprintDataFuture.isDone())
-            {
-                final BlueprintDataProcessingData data = blueprintDataConsumerQueue.poll();
-                try
-                {
-                    data.consumer.accept(data.blueprintDataFuture.get());
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    e.printStackTrace();
-                }
-            }
-
-            if (!blueprintListConsumerQueue.isEmpty() && blueprintListConsumerQueue.peek().level == event.level && blueprintListConsumerQueue.peek().blueprintFuture.isDone())
-            {
-                final BlueprintListProcessingData data = blueprintListConsumerQueue.poll();
-                try
-                {
-                    data.consumer.accept(data.blueprintFuture.get());
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    e.printStackTrace();
-                }
-            }
+            executor.drain();
         }
     }
 
+    @SubscribeEvent
+    public static void onServerStopped(final ServerStoppedEvent event)
+    {
+        executor.clear();
+    }
+
     /**
-     * Data to be processed.
+     * Data to be processed. The level is not used anymore, everything is processed at the end of the server tick.
      */
     public record BlueprintProcessingData(Future<Blueprint> blueprintFuture, Level level, Consumer<Blueprint> consumer) { }
 
     /**
-     * Data to be processed.
+     * Data to be processed. The level is not used anymore, everything is processed at the end of the server tick.
      */
     public record BlueprintDataProcessingData(Future<byte[]> blueprintDataFuture, Level level, Consumer<byte[]> consumer) { }
 
     /**
-     * Data to be processed.
+     * Data to be processed. The level is not used anymore, everything is processed at the end of the server tick.
      */
     public record BlueprintListProcessingData(Future<List<Blueprint>> blueprintFuture, Level level, Consumer<List<Blueprint>> consumer) { }
 }
@@ -1,18 +1,22 @@
 package com.ldtteam.structurize.storage;
 
 import com.ldtteam.structurize.Network;
+import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.network.messages.NotifyClientAboutStructurePacksMessage;
-import com.ldtteam.structurize.network.messages.TransferStructurePackToClient;
+import com.ldtteam.structurize.network.messages.StructurePackManifestMessage;
+import com.ldtteam.structurize.network.messages.StructurePackChunkMessage;
 import com.ldtteam.structurize.util.IOPool;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.ModList;
 import net.minecraftforge.forgespi.language.IModInfo;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -43,10 +47,30 @@ public class ServerStructurePackLoader
     }
 
     /**
-     * Bytebuffers that have to be synced to the client. Each buffer represents one structurepack.
+     * Size of a streamed pack chunk.
+     */
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    /**
+     * Max bytes sent but not acknowledged yet per transfer.
+     */
+    private static final int WINDOW_SIZE = 16 * CHUNK_SIZE;
+
+    /**
+     * Ticks without acknowledged progress after which the unacknowledged part of a transfer is sent again.
+     */
+    private static final int ACK_TIMEOUT_TICKS = 10 * 20;
+
+    /**
+     * Packs prepared on the IO pool which have to be streamed to the client.
      */
     private static ConcurrentLinkedQueue<PackagedPack> messageSendTasks = new ConcurrentLinkedQueue<>();
 
+    /**
+     * The running transfers per player, streamed one after the other. Only accessed on the server thread.
+     */
+    private static final Map<UUID, Deque<PackagedPack>> transfers = new HashMap<>();
+
     /**
      * Map of the client sync requests that have to be handled yet.
      */
@@ -195,16 +219,116 @@ public class ServerStructurePackLoader
                 }
                 clientSyncRequests.clear();
             }
+        }
+    }
 
-            if (!messageSendTasks.isEmpty())
+    @SubscribeEvent
+    public static void onServerTick(final TickEvent.ServerTickEvent event)
+    {
+        if (event.phase != TickEvent.Phase.END)
+        {
+            return;
+        }
+
+        PackagedPack added;
+        while ((added = messageSendTasks.poll()) != null)
+        {
+            transfers.computeIfAbsent(added.player, uuid -> new ArrayDeque<>()).add(added);
+        }
+
+        if (transfers.isEmpty())
+        {
+            return;
+        }
+
+        final int budget = Structurize.getConfig().getServer().packTransferBytesPerTick.get();
+        final Iterator<Map.Entry<UUID, Deque<PackagedPack>>> iterator = transfers.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            final Map.Entry<UUID, Deque<PackagedPack>> entry = iterator.next();
+            final ServerPlayer player = event.getServer().getPlayerList().getPlayer(entry.getKey());
+            if (player == null)
             {
-                final PackagedPack packData = messageSendTasks.poll();
-                final ServerPlayer player = (ServerPlayer) event.level.getPlayerByUUID(packData.player);
-                // If the player logged off, we can just skip.
-                if (player != null)
-                {
-                    Network.getNetwork().sendToPlayer(new TransferStructurePackToClient(packData.structurePack, packData.buf, packData.eol), player);
-                }
+                // the client keeps what it received and resumes from there when it syncs again
+                entry.getValue().forEach(PackagedPack::release);
+                iterator.remove();
+                continue;
+            }
+
+            final PackagedPack transfer = entry.getValue().peek();
+            final int tick = event.getServer().getTickCount();
+            if (transfer.sent == transfer.acked)
+            {
+                transfer.lastProgressTick = tick;
+            }
+            else if (tick - transfer.lastProgressTick > ACK_TIMEOUT_TICKS)
+            {
+                // acks stopped coming, what was in flight got lost
+                Log.getLogger().debug("Structure pack transfer stalled, sending again from " + transfer.acked + ": " + transfer.structurePack);
+                transfer.rewind(tick);
+            }
+
+            int sentThisTick = 0;
+            while (sentThisTick < budget && transfer.sent < transfer.size() && transfer.sent - transfer.acked < WINDOW_SIZE)
+            {
+                final int length = Math.min(CHUNK_SIZE, transfer.size() - transfer.sent);
+                final byte[] data = new byte[length];
+                transfer.buf.getBytes(transfer.buf.readerIndex() + transfer.sent, data);
+                Network.getNetwork().sendToPlayer(new StructurePackChunkMessage(transfer.structurePack, transfer.hash, transfer.size(), transfer.sent, data), player);
+                transfer.sent += length;
+                sentThisTick += length;
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLogout(final PlayerEvent.PlayerLoggedOutEvent event)
+    {
+        // chunks in flight are lost, the client resumes from what it stored when it syncs again
+        final Deque<PackagedPack> playerTransfers = transfers.remove(event.getEntity().getUUID());
+        if (playerTransfers != null)
+        {
+            playerTransfers.forEach(PackagedPack::release);
+        }
+    }
+
+    /**
+     * Called when a client acknowledges received pack data.
+     * @param packName the name of the pack.
+     * @param hash the hash of the payload.
+     * @param received the amount of bytes the client has.
+     * @param player the player.
+     */
+    public static void onClientChunkAck(final String packName, final String hash, final int received, final ServerPlayer player)
+    {
+        final Deque<PackagedPack> playerTransfers = transfers.get(player.getUUID());
+        final PackagedPack transfer = playerTransfers == null ? null : playerTransfers.peek();
+        if (transfer == null || !transfer.structurePack.equals(packName) || !transfer.hash.equals(hash))
+        {
+            return;
+        }
+
+        final int tick = player.getServer().getTickCount();
+        final int clientOffset = Math.min(received, transfer.size());
+        if (clientOffset > transfer.acked)
+        {
+            transfer.acked = clientOffset;
+            transfer.lastProgressTick = tick;
+            // a resumed transfer continues where the client left off
+            transfer.sent = Math.max(transfer.sent, transfer.acked);
+        }
+        else if (transfer.sent > transfer.acked && transfer.rewoundAt != transfer.acked)
+        {
+            // the client dropped a chunk and everything after it, send again from the first missing byte.
+            // Acks of the rest of the dropped window carry the same offset and don't rewind again.
+            transfer.rewind(tick);
+        }
+        if (transfer.acked >= transfer.size())
+        {
+            playerTransfers.poll().release();
+            if (playerTransfers.isEmpty())
+            {
+                transfers.remove(player.getUUID());
             }
         }
     }
@@ -216,7 +340,6 @@ public class ServerStructurePackLoader
      */
     private static void handleClientUpdate(final Map<String, Double> clientStructurePacks, final ServerPlayer player)
     {
-        final UUID uuid = player.getUUID();
         final Map<String, StructurePackMeta> missingPacks = new HashMap<>();
         final Map<String, StructurePackMeta> packsToSync = new HashMap<>();
 
@@ -238,31 +361,126 @@ public class ServerStructurePackLoader
         packsToSync.putAll(missingPacks);
         Network.getNetwork().sendToPlayer(new NotifyClientAboutStructurePacksMessage(packsToSync), player);
 
-        IOPool.execute(() -> {
+        if (missingPacks.isEmpty())
+        {
+            return;
+        }
+
+        // only the file hashes are sent, the client requests what it is missing, see onClientFileRequest
+        ServerFutureProcessor.queue(IOPool.submit(IOPool.Lane.BULK, () -> {
+            final List<StructurePackManifestMessage> manifests = new ArrayList<>();
             int index = 1;
-            for (final StructurePackMeta pack : new ArrayList<>(missingPacks.values()))
+            for (final StructurePackMeta pack : missingPacks.values())
             {
-                final ByteBuf outputBuf = zipPack(pack.getPath());
-                if (outputBuf != null)
+                Map<String, String> hashes;
+                try
+                {
+                    hashes = StructurePackPayloadCache.getHashes(pack);
+                }
+                catch (final IOException e)
                 {
-                    messageSendTasks.add(new PackagedPack(pack.getName(), uuid, outputBuf, index == missingPacks.size()));
+                    Log.getLogger().warn("Unable to hash structure pack: " + pack.getName(), e);
+                    hashes = Collections.emptyMap();
                 }
+                manifests.add(new StructurePackManifestMessage(pack.getName(), hashes, index == missingPacks.size()));
                 index++;
             }
+            return manifests;
+        }), manifests -> {
+            if (!player.hasDisconnected())
+            {
+                for (final StructurePackManifestMessage manifest : manifests)
+                {
+                    Network.getNetwork().sendToPlayer(manifest, player);
+                }
+            }
+        });
+    }
+
+    /**
+     * Called when a client requests the files it is missing of a pack.
+     * @param packName the name of the pack.
+     * @param files the requested files relative to the pack root.
+     * @param resumeHash the hash of an unfinished download of the client, null if there is none.
+     * @param resumeOffset the amount of bytes of the unfinished download.
+     * @param player the player.
+     */
+    public static void onClientFileRequest(
+      final String packName,
+      final List<String> files,
+      @Nullable final String resumeHash,
+      final int resumeOffset,
+      final ServerPlayer player)
+    {
+        final UUID uuid = player.getUUID();
+        final StructurePackMeta pack = StructurePacks.getStructurePack(packName);
+        if (pack == null || pack.isImmutable())
+        {
+            // answer anyway, the client waits for every requested pack
+            messageSendTasks.add(new PackagedPack(packName, uuid, StructurePackPayloadCache.Payload.of(zipPack(null, Collections.emptySet())), null, 0));
+            return;
+        }
+
+        IOPool.execute(IOPool.Lane.BULK, () -> {
+            final Set<String> requested = new HashSet<>(files);
+            StructurePackPayloadCache.Payload payload;
+            try
+            {
+                // clients without a copy of the pack request everything, they all share one zipped payload
+                payload = requested.equals(StructurePackPayloadCache.getHashes(pack).keySet())
+                              ? StructurePackPayloadCache.getPayload(pack, () -> zipPack(pack.getPath(), null))
+                              : null;
+            }
+            catch (final IOException e)
+            {
+                payload = null;
+            }
+
+            if (payload == null)
+            {
+                final ByteBuf outputBuf = zipPack(pack.getPath(), requested);
+                payload = StructurePackPayloadCache.Payload.of(outputBuf == null ? zipPack(null, Collections.emptySet()) : outputBuf);
+            }
+            messageSendTasks.add(new PackagedPack(packName, uuid, payload, resumeHash, resumeOffset));
         });
     }
 
     /**
      * ZIP up the data from the pack path and put it into a bytebuffer.
-     * @param sourcePath the source path.
+     * @param sourcePath the source path, may be null if nothing is included.
+     * @param only the files to include relative to the source path, null for everything.
      * @return the bytebuffer to serialize it on the network.
      */
-    private static ByteBuf zipPack(final Path sourcePath)
+    private static ByteBuf zipPack(@Nullable final Path sourcePath, @Nullable final Set<String> only)
     {
         final ByteBuf buffer = Unpooled.buffer();
-        try (ByteBufOutputStream stream = new ByteBufOutputStream(buffer))
+        // closing the zip stream writes the central directory, which is needed to read the archive in place
+        try (ByteBufOutputStream stream = new ByteBufOutputStream(buffer); ZipOutputStream zos = new ZipOutputStream(stream))
         {
-            ZipOutputStream zos = new ZipOutputStream(stream);
+            if (only != null)
+            {
+                for (final String file : new TreeSet<>(only))
+                {
+                    final Path path;
+                    try
+                    {
+                        path = sourcePath.resolve(file).normalize();
+                    }
+                    catch (final InvalidPathException e)
+                    {
+                        Log.getLogger().warn("Client requested invalid structure pack file: " + file);
+                        continue;
+                    }
+                    if (!path.startsWith(sourcePath.normalize()) || !Files.isRegularFile(path))
+                    {
+                        Log.getLogger().warn("Client requested invalid structure pack file: " + file);
+                        continue;
+                    }
+                    putFile(zos, sourcePath, path, Files.readAttributes(path, BasicFileAttributes.class));
+                }
+                return buffer;
+            }
+
             Files.walkFileTree(sourcePath, new SimpleFileVisitor<>()
             {
                 @Override
@@ -270,7 +488,9 @@ public class ServerStructurePackLoader
                 {
                     if (!sourcePath.equals(dir))
                     {
-                        zos.putNextEntry(new ZipEntry(sourcePath.relativize(dir) + File.separator));
+                        final ZipEntry entry = new ZipEntry(StructurePackManifest.relativize(sourcePath, dir) + "/");
+                        entry.setLastModifiedTime(attrs.lastModifiedTime());
+                        zos.putNextEntry(entry);
                         zos.closeEntry();
                     }
                     return FileVisitResult.CONTINUE;
@@ -279,23 +499,40 @@ public class ServerStructurePackLoader
                 @Override
                 public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException
                 {
-                    zos.putNextEntry(new ZipEntry(sourcePath.relativize(file).toString()));
-                    Files.copy(file, zos);
-                    zos.closeEntry();
+                    putFile(zos, sourcePath, file, attrs);
                     return FileVisitResult.CONTINUE;
                 }
             });
         }
         catch (IOException e)
         {
-            Log.getLogger().warn("Unable to ZIP up: " + sourcePath.toString());
+            Log.getLogger().warn("Unable to ZIP up: " + sourcePath);
+            buffer.release();
             return null;
         }
         return buffer;
     }
 
     /**
-     * Data required to send a structure pack to a client.
+     * Add a file to a zip.
+     * @param zos the zip stream.
+     * @param sourcePath the root the entry names are relative to.
+     * @param file the file.
+     * @param attrs the file attributes.
+     * @throws IOException if the file can't be read.
+     */
+    private static void putFile(final ZipOutputStream zos, final Path sourcePath, final Path file, final BasicFileAttributes attrs) throws IOException
+    {
+        // zip entries always use "/" and keep the file stamp, clients read the archive in place and index it by stamp
+        final ZipEntry entry = new ZipEntry(StructurePackManifest.relativize(sourcePath, file));
+        entry.setLastModifiedTime(attrs.lastModifiedTime());
+        zos.putNextEntry(entry);
+        Files.copy(file, zos);
+        zos.closeEntry();
+    }
+
+    /**
+     * A structure pack streamed to a client.
      */
     private static class PackagedPack
     {
@@ -310,28 +547,87 @@ public class ServerStructurePackLoader
         private final UUID player;
 
         /**
-         * The zipped data.
+         * The zipped data, may be shared with other transfers.
          */
         private final ByteBuf buf;
 
         /**
-         * Is this the EOL package? (true if so).
+         * The hash of the zipped data, identifies the transfer.
+         */
+        private final String hash;
+
+        /**
+         * Bytes sent so far.
+         */
+        private int sent;
+
+        /**
+         * Bytes the client acknowledged.
+         */
+        private int acked;
+
+        /**
+         * The acknowledged offset the transfer was last sent again from, -1 if never.
+         */
+        private int rewoundAt = -1;
+
+        /**
+         * The server tick of the last acknowledged progress, or when the window was last empty.
          */
-        private final boolean eol;
+        private int lastProgressTick;
 
         /**
          * Create a new pack.
          * @param structurePack the name of the pack.
          * @param player the player to send it to.
-         * @param buf the zipped data.
-         * @param eol last message.
+         * @param payload the zipped data.
+         * @param resumeHash the hash of an unfinished download of the client, null if there is none.
+         * @param resumeOffset the amount of bytes of the unfinished download.
          */
-        public PackagedPack(final String structurePack, final UUID player, final ByteBuf buf, final boolean eol)
+        public PackagedPack(
+          final String structurePack,
+          final UUID player,
+          final StructurePackPayloadCache.Payload payload,
+          @Nullable final String resumeHash,
+          final int resumeOffset)
         {
             this.structurePack = structurePack;
             this.player = player;
-            this.buf = buf;
-            this.eol = eol;
+            this.buf = payload.data();
+            this.hash = payload.hash();
+            if (this.hash.equals(resumeHash) && resumeOffset > 0 && resumeOffset <= size())
+            {
+                // the client still has the start of this very payload, the first window continues from there
+                this.sent = resumeOffset;
+                this.acked = resumeOffset;
+            }
+        }
+
+        /**
+         * @return the size of the zipped data.
+         */
+        private int size()
+        {
+            return buf.readableBytes();
+        }
+
+        /**
+         * Continue sending from the acknowledged offset, the client drops chunks past what it stored.
+         * @param tick the current server tick.
+         */
+        private void rewind(final int tick)
+        {
+            sent = acked;
+            rewoundAt = acked;
+            lastProgressTick = tick;
+        }
+
+        /**
+         * Release the zipped data, a no-op for shared data.
+         */
+        private void release()
+        {
+            buf.release();
         }
     }
 }
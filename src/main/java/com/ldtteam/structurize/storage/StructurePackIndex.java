@@ -0,0 +1,653 @@
+package com.ldtteam.structurize.storage;
+
+import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.blueprints.v1.BlueprintMetadata;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * In memory index of the files of a structure pack, built once when the pack is discovered.
+ * Holds the folder tree (categories), a name to path lookup, the content hash and the header metadata of every blueprint,
+ * so listings and lookups by name or by metadata do not have to touch the disk.
+ * The index is persisted as a {@link StructurePackManifest}, so only new or changed files have to be read again on the next start.
+ * Missing hashes and metadata are filled in the background after discovery, entries which are not filled yet are read on demand.
+ */
+public class StructurePackIndex
+{
+    /**
+     * The blueprint file extension.
+     */
+    private static final String BLUEPRINT_EXTENSION = ".blueprint";
+
+    /**
+     * The icon file of a category.
+     */
+    private static final String ICON_FILE = "icon.png";
+
+    /**
+     * The pack this index belongs to.
+     */
+    private final StructurePackMeta packMeta;
+
+    /**
+     * All folders of the pack including the root, keyed by normalized path.
+     */
+    private final Map<Path, Folder> folders = new ConcurrentHashMap<>();
+
+    /**
+     * All blueprint files of the pack, keyed by normalized path.
+     */
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Blueprint files by file name (without extension).
+     */
+    private final Map<String, Set<Path>> pathsByName = new ConcurrentHashMap<>();
+
+    /**
+     * If the index differs from the stored manifest.
+     */
+    private volatile boolean dirty;
+
+    /**
+     * Create an empty index.
+     *
+     * @param packMeta the pack.
+     */
+    private StructurePackIndex(final StructurePackMeta packMeta)
+    {
+        this.packMeta = packMeta;
+    }
+
+    /**
+     * Index all folders and blueprint files of a pack.
+     * An immutable pack with an up to date manifest is restored from it without touching the pack,
+     * otherwise the pack is walked once and hash and metadata are taken over from the manifest for all files with unchanged size and stamp.
+     *
+     * @param packMeta the pack.
+     * @return the index.
+     */
+    public static StructurePackIndex build(final StructurePackMeta packMeta)
+    {
+        final StructurePackIndex index = new StructurePackIndex(packMeta);
+        final Path root = packMeta.getPath();
+        final StructurePackManifest manifest = StructurePackManifest.load(packMeta);
+
+        if (manifest != null && manifest.isCurrent(packMeta))
+        {
+            manifest.getFolders().forEach(folder -> index.addFolder(root.resolve(folder)));
+            manifest.getIcons().forEach(folder -> index.addFile(root.resolve(folder).resolve(ICON_FILE)));
+            manifest.getFiles().values().forEach(record -> index.addEntry(root.resolve(record.path()), record));
+            return index;
+        }
+
+        final Map<String, StructurePackManifest.FileRecord> known = manifest == null ? Collections.emptyMap() : manifest.getFiles();
+        index.dirty = manifest == null;
+        try
+        {
+            Files.walkFileTree(root, new SimpleFileVisitor<>()
+            {
+                @Override
+                public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
+                {
+                    index.addFolder(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs)
+                {
+                    final String fileName = file.getFileName().toString();
+                    if (!fileName.endsWith(BLUEPRINT_EXTENSION))
+                    {
+                        index.addFile(file);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    final long lastModified = attrs.lastModifiedTime().toMillis();
+                    final StructurePackManifest.FileRecord record = known.get(StructurePackManifest.relativize(root, file));
+                    if (record != null && record.size() == attrs.size() && record.lastModified() == lastModified)
+                    {
+                        index.addEntry(file, record);
+                    }
+                    else
+                    {
+                        index.addEntry(file, new StructurePackManifest.FileRecord("", attrs.size(), lastModified, null, false, null));
+                        index.dirty = true;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().error("Error indexing structure pack: " + packMeta.getName(), e);
+        }
+
+        if (index.entries.size() != known.size())
+        {
+            // files got removed
+            index.dirty = true;
+        }
+        return index;
+    }
+
+    /**
+     * Calculate the hash and read the metadata of all blueprints which do not have it yet and update the manifest if anything changed.
+     * Blocks, meant to run on the IO pool.
+     */
+    public void populateMetadata()
+    {
+        for (final Entry entry : entries.values())
+        {
+            if (entry.hash == null || !entry.metadataRead)
+            {
+                getHash(entry.path);
+                getMetadata(entry.path);
+                dirty = true;
+            }
+        }
+
+        if (dirty)
+        {
+            dirty = false;
+            toManifest().save(packMeta);
+        }
+    }
+
+    /**
+     * Snapshot the index.
+     *
+     * @return the manifest.
+     */
+    private StructurePackManifest toManifest()
+    {
+        final Path root = packMeta.getPath();
+        final List<String> folderPaths = new ArrayList<>();
+        final List<String> icons = new ArrayList<>();
+        for (final Folder folder : folders.values())
+        {
+            final String relative = StructurePackManifest.relativize(root, folder.path);
+            folderPaths.add(relative);
+            if (folder.hasIcon)
+            {
+                icons.add(relative);
+            }
+        }
+
+        final Map<String, StructurePackManifest.FileRecord> files = new HashMap<>();
+        for (final Entry entry : entries.values())
+        {
+            final String relative = StructurePackManifest.relativize(root, entry.path);
+            files.put(relative, new StructurePackManifest.FileRecord(relative, entry.size, entry.lastModified, entry.hash, entry.metadataRead, entry.metadata));
+        }
+        return StructurePackManifest.create(packMeta, folderPaths, icons, files);
+    }
+
+    /**
+     * Register a folder (and its parents).
+     *
+     * @param folder the folder.
+     */
+    public void addFolder(final Path folder)
+    {
+        final Path key = folder.normalize();
+        if (folders.containsKey(key))
+        {
+            return;
+        }
+
+        folders.put(key, new Folder(key));
+        if (!key.equals(packMeta.getPath().normalize()) && key.getParent() != null)
+        {
+            addFolder(key.getParent());
+            folders.get(key.getParent()).folders.add(key);
+        }
+    }
+
+    /**
+     * Register a file, only blueprints and category icons are indexed. Replaces the entry (and its metadata) if known.
+     *
+     * @param file the file.
+     */
+    public void addFile(final Path file)
+    {
+        final Path key = file.normalize();
+        final Path parent = key.getParent();
+        final String fileName = key.getFileName().toString();
+        if (fileName.equals(ICON_FILE))
+        {
+            addFolder(parent);
+            folders.get(parent).hasIcon = true;
+        }
+        else if (fileName.endsWith(BLUEPRINT_EXTENSION))
+        {
+            long size = -1;
+            long lastModified = -1;
+            try
+            {
+                final BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+                size = attributes.size();
+                lastModified = attributes.lastModifiedTime().toMillis();
+            }
+            catch (final IOException e)
+            {
+                // gone again already, the delete event follows
+            }
+            addEntry(key, new StructurePackManifest.FileRecord("", size, lastModified, null, false, null));
+            dirty = true;
+        }
+    }
+
+    /**
+     * Register a blueprint file with known stamp and possibly known hash and metadata.
+     *
+     * @param file   the file.
+     * @param record the file record.
+     */
+    private void addEntry(final Path file, final StructurePackManifest.FileRecord record)
+    {
+        final Path key = file.normalize();
+        final Path parent = key.getParent();
+        addFolder(parent);
+        folders.get(parent).blueprints.add(key);
+
+        final Entry entry = new Entry(key, record.size(), record.lastModified());
+        entry.hash = record.hash();
+        if (record.metadataRead())
+        {
+            final BlueprintMetadata metadata = record.metadata();
+            if (metadata != null)
+            {
+                metadata.setFileName(getName(key));
+                metadata.setFilePath(parent).setPackName(packMeta.getName());
+            }
+            entry.metadata = metadata;
+            entry.metadataRead = true;
+        }
+        entries.put(key, entry);
+        pathsByName.computeIfAbsent(getName(key), name -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    /**
+     * Remove a file or folder (including all its content) from the index.
+     *
+     * @param path the removed path.
+     */
+    public void remove(final Path path)
+    {
+        final Path key = path.normalize();
+        dirty = true;
+        final Folder folder = folders.remove(key);
+        if (folder != null)
+        {
+            folder.folders.forEach(this::remove);
+            folder.blueprints.forEach(this::remove);
+        }
+        else if (entries.remove(key) != null)
+        {
+            final Set<Path> named = pathsByName.get(getName(key));
+            if (named != null)
+            {
+                named.remove(key);
+            }
+        }
+        else if (key.getFileName() != null && key.getFileName().toString().equals(ICON_FILE) && folders.containsKey(key.getParent()))
+        {
+            folders.get(key.getParent()).hasIcon = false;
+        }
+
+        final Folder parent = key.getParent() == null ? null : folders.get(key.getParent());
+        if (parent != null)
+        {
+            parent.folders.remove(key);
+            parent.blueprints.remove(key);
+        }
+    }
+
+    /**
+     * Find a blueprint by file name.
+     *
+     * @param under the folder to search in (recursively).
+     * @param name  the file name without extension.
+     * @return the path, the first one in path order if there are multiple.
+     */
+    public Optional<Path> findByName(final Path under, final String name)
+    {
+        final Set<Path> named = pathsByName.get(name);
+        if (named == null)
+        {
+            return Optional.empty();
+        }
+        final Path root = under.normalize();
+        return named.stream().filter(path -> path.startsWith(root)).min(Comparator.naturalOrder());
+    }
+
+    /**
+     * Get a folder of the pack.
+     *
+     * @param folder the folder.
+     * @return the folder node or null if unknown.
+     */
+    @Nullable
+    public Folder getFolder(final Path folder)
+    {
+        return folders.get(folder.normalize());
+    }
+
+    /**
+     * Check if a path is a known blueprint file.
+     *
+     * @param path the path.
+     * @return true if indexed.
+     */
+    public boolean containsBlueprint(final Path path)
+    {
+        return entries.containsKey(path.normalize());
+    }
+
+    /**
+     * Get all blueprint files below a folder, sorted by path.
+     *
+     * @param under the folder to search in (recursively).
+     * @return the files.
+     */
+    public List<Path> getBlueprintsBelow(final Path under)
+    {
+        final Path root = under.normalize();
+        final List<Path> result = new ArrayList<>();
+        for (final Path path : entries.keySet())
+        {
+            if (path.startsWith(root))
+            {
+                result.add(path);
+            }
+        }
+        result.sort(Comparator.naturalOrder());
+        return result;
+    }
+
+    /**
+     * Find the first blueprint (in path order) below a folder whose metadata matches.
+     *
+     * @param under     the folder to search in (recursively).
+     * @param predicate the metadata predicate.
+     * @return the matching metadata or null.
+     */
+    @Nullable
+    public BlueprintMetadata findByMetadata(final Path under, final Predicate<BlueprintMetadata> predicate)
+    {
+        for (final Path path : getBlueprintsBelow(under))
+        {
+            final BlueprintMetadata metadata = getMetadata(path);
+            if (metadata != null && predicate.test(metadata))
+            {
+                return metadata;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the metadata of a blueprint file, read and memoized on first access.
+     *
+     * @param path the blueprint file.
+     * @return the metadata or null if it could not be read.
+     */
+    @Nullable
+    public BlueprintMetadata getMetadata(final Path path)
+    {
+        final Entry entry = entries.get(path.normalize());
+        if (entry == null)
+        {
+            return StructurePacks.readBlueprintMetadata(packMeta.getName(), path);
+        }
+
+        if (!entry.metadataRead)
+        {
+            synchronized (entry)
+            {
+                if (!entry.metadataRead)
+                {
+                    entry.metadata = StructurePacks.readBlueprintMetadata(packMeta.getName(), entry.path);
+                    entry.metadataRead = true;
+                }
+            }
+        }
+        return entry.metadata;
+    }
+
+    /**
+     * Get the content hash of a blueprint file, calculated and memoized on first access.
+     *
+     * @param path the blueprint file.
+     * @return the hex SHA-256 or null if the file is not indexed or can't be read.
+     */
+    @Nullable
+    public String getHash(final Path path)
+    {
+        final Entry entry = entries.get(path.normalize());
+        if (entry == null)
+        {
+            return null;
+        }
+
+        if (entry.hash == null)
+        {
+            synchronized (entry)
+            {
+                if (entry.hash == null)
+                {
+                    entry.hash = hash(entry.path);
+                }
+            }
+        }
+        return entry.hash;
+    }
+
+    /**
+     * Hash every file below a folder, used to compare pack contents across the network.
+     *
+     * @param root  the pack root.
+     * @param index the index of the pack to take memoized blueprint hashes from, null to hash everything.
+     * @return the hex SHA-256 by path relative to the root (see {@link StructurePackManifest#relativize(Path, Path)}), unreadable files are left out.
+     * @throws IOException if the folder can't be listed.
+     */
+    static Map<String, String> hashFiles(final Path root, @Nullable final StructurePackIndex index) throws IOException
+    {
+        final Map<String, String> hashes = new HashMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>()
+        {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs)
+            {
+                final String hash = index != null && index.containsBlueprint(file) ? index.getHash(file) : hash(file);
+                if (hash != null)
+                {
+                    hashes.put(StructurePackManifest.relativize(root, file), hash);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return hashes;
+    }
+
+    /**
+     * Hash a file.
+     *
+     * @param path the file.
+     * @return the hex SHA-256 or null if unreadable.
+     */
+    @Nullable
+    static String hash(final Path path)
+    {
+        try (final InputStream input = Files.newInputStream(path))
+        {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1)
+            {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Can't hash blueprint: " + path, e);
+            return null;
+        }
+        catch (final NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @return the amount of indexed blueprints.
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    private static String getName(final Path path)
+    {
+        return path.getFileName().toString().replace(BLUEPRINT_EXTENSION, "");
+    }
+
+    /**
+     * A folder of the pack (a category).
+     */
+    public static class Folder
+    {
+        /**
+         * The folder path.
+         */
+        private final Path path;
+
+        /**
+         * The direct sub folders.
+         */
+        private final Set<Path> folders = ConcurrentHashMap.newKeySet();
+
+        /**
+         * The direct blueprint files.
+         */
+        private final Set<Path> blueprints = ConcurrentHashMap.newKeySet();
+
+        /**
+         * If the folder contains an icon.
+         */
+        private volatile boolean hasIcon;
+
+        private Folder(final Path path)
+        {
+            this.path = path;
+        }
+
+        /**
+         * @return the folder path.
+         */
+        public Path getPath()
+        {
+            return path;
+        }
+
+        /**
+         * @return the direct sub folders, sorted.
+         */
+        public List<Path> getFolders()
+        {
+            final List<Path> result = new ArrayList<>(folders);
+            result.sort(Comparator.naturalOrder());
+            return result;
+        }
+
+        /**
+         * @return the direct blueprint files, sorted.
+         */
+        public List<Path> getBlueprints()
+        {
+            final List<Path> result = new ArrayList<>(blueprints);
+            result.sort(Comparator.naturalOrder());
+            return result;
+        }
+
+        /**
+         * @return true if there are blueprint files directly in this folder.
+         */
+        public boolean hasBlueprints()
+        {
+            return !blueprints.isEmpty();
+        }
+
+        /**
+         * @return true if there are sub folders.
+         */
+        public boolean hasFolders()
+        {
+            return !folders.isEmpty();
+        }
+
+        /**
+         * @return true if the folder contains an icon.
+         */
+        public boolean hasIcon()
+        {
+            return hasIcon;
+        }
+    }
+
+    /**
+     * A blueprint file of the pack.
+     */
+    private static class Entry
+    {
+        /**
+         * The file.
+         */
+        private final Path path;
+
+        /**
+         * The file size when indexed.
+         */
+        private final long size;
+
+        /**
+         * The modification stamp when indexed.
+         */
+        private final long lastModified;
+
+        /**
+         * The memoized content hash, null until calculated.
+         */
+        private volatile String hash;
+
+        /**
+         * The memoized metadata, null if it could not be read.
+         */
+        private volatile BlueprintMetadata metadata;
+
+        /**
+         * If the metadata was read.
+         */
+        private volatile boolean metadataRead;
+
+        private Entry(final Path path, final long size, final long lastModified)
+        {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
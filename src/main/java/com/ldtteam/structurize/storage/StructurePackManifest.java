@@ -0,0 +1,366 @@
+package com.ldtteam.structurize.storage;
+
+import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.blueprints.v1.BlueprintMetadata;
+import net.minecraft.SharedConstants;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static com.ldtteam.structurize.api.util.constant.Constants.BLUEPRINT_FOLDER;
+import static com.ldtteam.structurize.api.util.constant.Constants.CACHE_FOLDER;
+
+/**
+ * Persistent snapshot of a {@link StructurePackIndex}: the folder tree, the size, modification stamp and content hash of every blueprint
+ * and its header metadata. Stored per pack in the cache folder of the game directory.
+ * Immutable packs are restored from it without touching the pack at all as long as the pack version and pack.json did not change,
+ * mutable packs still get listed but only files with a changed size or stamp are read again.
+ */
+public final class StructurePackManifest
+{
+    /**
+     * Bump if the layout changes, older manifests are ignored.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * The folder of the manifests.
+     */
+    private static final Path MANIFEST_PATH = new File(".").toPath().resolve(BLUEPRINT_FOLDER).resolve(CACHE_FOLDER).resolve("manifests");
+
+    /**
+     * The pack description file.
+     */
+    private static final String PACK_JSON = "pack.json";
+
+    /**
+     * The game data version the metadata was read with.
+     */
+    private final int dataVersion;
+
+    /**
+     * The pack version.
+     */
+    private final double packVersion;
+
+    /**
+     * Size and stamp of the pack.json.
+     */
+    private final long packJsonSize;
+    private final long packJsonModified;
+
+    /**
+     * All folders relative to the pack root, the root itself is the empty string.
+     */
+    private final List<String> folders;
+
+    /**
+     * All folders (relative) containing an icon.
+     */
+    private final List<String> icons;
+
+    /**
+     * All blueprint files by relative path.
+     */
+    private final Map<String, FileRecord> files;
+
+    /**
+     * Create a manifest.
+     */
+    StructurePackManifest(
+      final int dataVersion,
+      final double packVersion,
+      final long packJsonSize,
+      final long packJsonModified,
+      final List<String> folders,
+      final List<String> icons,
+      final Map<String, FileRecord> files)
+    {
+        this.dataVersion = dataVersion;
+        this.packVersion = packVersion;
+        this.packJsonSize = packJsonSize;
+        this.packJsonModified = packJsonModified;
+        this.folders = folders;
+        this.icons = icons;
+        this.files = files;
+    }
+
+    /**
+     * Load the manifest of a pack.
+     *
+     * @param packMeta the pack.
+     * @return the manifest or null if there is none or it is unreadable.
+     */
+    @Nullable
+    public static StructurePackManifest load(final StructurePackMeta packMeta)
+    {
+        final Path manifestPath = getManifestPath(packMeta);
+        if (!Files.exists(manifestPath))
+        {
+            return null;
+        }
+
+        try (final InputStream input = new BufferedInputStream(Files.newInputStream(manifestPath)))
+        {
+            final CompoundTag tag = NbtIo.readCompressed(input);
+            if (tag.getInt("version") != FORMAT_VERSION)
+            {
+                return null;
+            }
+
+            final int dataVersion = tag.getInt("data_version");
+            final boolean metadataValid = dataVersion == getCurrentDataVersion();
+
+            final Map<String, FileRecord> files = new HashMap<>();
+            final ListTag filesTag = tag.getList("files", Tag.TAG_COMPOUND);
+            for (int i = 0; i < filesTag.size(); i++)
+            {
+                final CompoundTag fileTag = filesTag.getCompound(i);
+                final String path = fileTag.getString("path");
+                final boolean metadataRead = metadataValid && fileTag.getBoolean("metadata_read");
+                files.put(path, new FileRecord(path,
+                  fileTag.getLong("size"),
+                  fileTag.getLong("modified"),
+                  fileTag.contains("hash") ? fileTag.getString("hash") : null,
+                  metadataRead,
+                  metadataRead && fileTag.contains("metadata") ? BlueprintMetadata.readFromNBT(fileTag.getCompound("metadata")) : null));
+            }
+
+            return new StructurePackManifest(dataVersion,
+              tag.getDouble("pack_version"),
+              tag.getLong("pack_json_size"),
+              tag.getLong("pack_json_modified"),
+              readStrings(tag.getList("folders", Tag.TAG_STRING)),
+              readStrings(tag.getList("icons", Tag.TAG_STRING)),
+              files);
+        }
+        catch (final Exception e)
+        {
+            Log.getLogger().warn("Ignoring broken structure pack manifest: " + manifestPath, e);
+            return null;
+        }
+    }
+
+    /**
+     * Write the manifest of a pack, the file only becomes visible once it is complete. Blocks, meant to run on the IO pool.
+     *
+     * @param packMeta the pack.
+     */
+    public void save(final StructurePackMeta packMeta)
+    {
+        final CompoundTag tag = new CompoundTag();
+        tag.putInt("version", FORMAT_VERSION);
+        tag.putInt("data_version", dataVersion);
+        tag.putDouble("pack_version", packVersion);
+        tag.putLong("pack_json_size", packJsonSize);
+        tag.putLong("pack_json_modified", packJsonModified);
+        tag.put("folders", writeStrings(folders));
+        tag.put("icons", writeStrings(icons));
+
+        final ListTag filesTag = new ListTag();
+        for (final FileRecord record : files.values())
+        {
+            final CompoundTag fileTag = new CompoundTag();
+            fileTag.putString("path", record.path());
+            fileTag.putLong("size", record.size());
+            fileTag.putLong("modified", record.lastModified());
+            if (record.hash() != null)
+            {
+                fileTag.putString("hash", record.hash());
+            }
+            fileTag.putBoolean("metadata_read", record.metadataRead());
+            if (record.metadata() != null)
+            {
+                fileTag.put("metadata", record.metadata().writeToNBT());
+            }
+            filesTag.add(fileTag);
+        }
+        tag.put("files", filesTag);
+
+        final Path manifestPath = getManifestPath(packMeta);
+        try
+        {
+            Files.createDirectories(manifestPath.getParent());
+            final Path tempPath = Files.createTempFile(manifestPath.getParent(), manifestPath.getFileName().toString(), ".tmp");
+            try
+            {
+                try (final OutputStream output = new BufferedOutputStream(Files.newOutputStream(tempPath)))
+                {
+                    NbtIo.writeCompressed(tag, output);
+                }
+                Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            finally
+            {
+                Files.deleteIfExists(tempPath);
+            }
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Failed to write structure pack manifest: " + manifestPath, e);
+        }
+    }
+
+    /**
+     * Check if the manifest still describes an immutable pack, which can't change without its pack.json changing as well.
+     *
+     * @param packMeta the pack.
+     * @return true if the index can be restored without listing the pack.
+     */
+    public boolean isCurrent(final StructurePackMeta packMeta)
+    {
+        if (!packMeta.isImmutable() || dataVersion != getCurrentDataVersion() || packVersion != packMeta.getVersion())
+        {
+            return false;
+        }
+
+        try
+        {
+            final BasicFileAttributes attributes = Files.readAttributes(packMeta.getPath().resolve(PACK_JSON), BasicFileAttributes.class);
+            return attributes.size() == packJsonSize && attributes.lastModifiedTime().toMillis() == packJsonModified;
+        }
+        catch (final IOException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Create a manifest stamped with the current pack.json and data version.
+     *
+     * @param packMeta the pack.
+     * @param folders  the relative folders.
+     * @param icons    the relative folders with an icon.
+     * @param files    the blueprint files.
+     * @return the manifest.
+     */
+    static StructurePackManifest create(
+      final StructurePackMeta packMeta,
+      final List<String> folders,
+      final List<String> icons,
+      final Map<String, FileRecord> files)
+    {
+        long size = -1;
+        long modified = -1;
+        try
+        {
+            final BasicFileAttributes attributes = Files.readAttributes(packMeta.getPath().resolve(PACK_JSON), BasicFileAttributes.class);
+            size = attributes.size();
+            modified = attributes.lastModifiedTime().toMillis();
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Can't stamp structure pack manifest: " + packMeta.getName(), e);
+        }
+        return new StructurePackManifest(getCurrentDataVersion(), packMeta.getVersion(), size, modified, folders, icons, files);
+    }
+
+    /**
+     * @return the relative folders.
+     */
+    public List<String> getFolders()
+    {
+        return folders;
+    }
+
+    /**
+     * @return the relative folders with an icon.
+     */
+    public List<String> getIcons()
+    {
+        return icons;
+    }
+
+    /**
+     * @return the blueprint files by relative path.
+     */
+    public Map<String, FileRecord> getFiles()
+    {
+        return files;
+    }
+
+    /**
+     * Get the path of a file relative to the pack root, always separated by "/".
+     *
+     * @param root the pack root.
+     * @param path the file.
+     * @return the relative path.
+     */
+    public static String relativize(final Path root, final Path path)
+    {
+        final StringJoiner joiner = new StringJoiner("/");
+        for (final Path element : root.normalize().relativize(path.normalize()))
+        {
+            joiner.add(element.toString());
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Get the manifest file of a pack, unique per pack location.
+     *
+     * @param packMeta the pack.
+     * @return the manifest path.
+     */
+    private static Path getManifestPath(final StructurePackMeta packMeta)
+    {
+        try
+        {
+            final String id = packMeta.getOwner() + "|" + packMeta.getName() + "|" + packMeta.getPath().toUri();
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(id.getBytes(StandardCharsets.UTF_8));
+            return MANIFEST_PATH.resolve(HexFormat.of().formatHex(digest) + ".manifest");
+        }
+        catch (final NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static int getCurrentDataVersion()
+    {
+        return SharedConstants.getCurrentVersion().getDataVersion().getVersion();
+    }
+
+    private static List<String> readStrings(final ListTag list)
+    {
+        final List<String> result = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++)
+        {
+            result.add(list.getString(i));
+        }
+        return result;
+    }
+
+    private static ListTag writeStrings(final List<String> strings)
+    {
+        final ListTag list = new ListTag();
+        for (final String string : strings)
+        {
+            list.add(StringTag.valueOf(string));
+        }
+        return list;
+    }
+
+    /**
+     * A blueprint file in the manifest.
+     *
+     * @param path         the path relative to the pack root.
+     * @param size         the file size.
+     * @param lastModified the modification stamp in millis.
+     * @param hash         the hex SHA-256 of the content, null if not calculated yet.
+     * @param metadataRead if the metadata was read (it may still be null if unreadable).
+     * @param metadata     the header metadata.
+     */
+    public record FileRecord(String path, long size, long lastModified, @Nullable String hash, boolean metadataRead, @Nullable BlueprintMetadata metadata) { }
+}
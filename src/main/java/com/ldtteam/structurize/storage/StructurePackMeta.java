@@ -2,7 +2,11 @@ package com.ldtteam.structurize.storage;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.ldtteam.structurize.api.util.Log;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.file.FileSystem;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -63,6 +67,17 @@ public class StructurePackMeta
      */
     private boolean immutable = false;
 
+    /**
+     * The file index of the pack, null until the pack got discovered.
+     */
+    private StructurePackIndex index;
+
+    /**
+     * The zip file the pack is read from and its file system, null if the pack is a folder.
+     */
+    private Path archive;
+    private FileSystem archiveFileSystem;
+
     /**
      * Initialize the pack from json.
      *
@@ -119,6 +134,68 @@ public class StructurePackMeta
         return this.immutable;
     }
 
+    /**
+     * Set the file index of the pack.
+     *
+     * @param index the index.
+     */
+    public void setIndex(final StructurePackIndex index)
+    {
+        this.index = index;
+    }
+
+    /**
+     * Get the file index of the pack.
+     *
+     * @return the index or null if not indexed yet.
+     */
+    public StructurePackIndex getIndex()
+    {
+        return this.index;
+    }
+
+    /**
+     * Mark the pack as read from a zip file. The file system is closed with the pack.
+     *
+     * @param archive    the zip file.
+     * @param fileSystem the opened zip file system, the pack root path lives in it.
+     */
+    public void setArchive(final Path archive, final FileSystem fileSystem)
+    {
+        this.archive = archive;
+        this.archiveFileSystem = fileSystem;
+    }
+
+    /**
+     * Get the zip file the pack is read from.
+     *
+     * @return the zip file or null if the pack is a folder.
+     */
+    @Nullable
+    public Path getArchive()
+    {
+        return this.archive;
+    }
+
+    /**
+     * Release the zip file of the pack if it is read from one, the pack can't be read afterwards.
+     */
+    public void close()
+    {
+        if (archiveFileSystem != null)
+        {
+            try
+            {
+                archiveFileSystem.close();
+            }
+            catch (final IOException e)
+            {
+                Log.getLogger().warn("Error closing structure pack archive: " + archive, e);
+            }
+            archiveFileSystem = null;
+        }
+    }
+
     /**
      * Get the pack format.
      *
@@ -199,6 +276,10 @@ public class StructurePackMeta
      */
     public String getSubPath(final Path subPath)
     {
+        if (subPath.getFileSystem() == rootPath.getFileSystem() && subPath.startsWith(rootPath))
+        {
+            return rootPath.relativize(subPath).toString();
+        }
         if (rootPath.toString().contains("\\"))
         {
             return subPath.toString().replace(rootPath + "\\", "");
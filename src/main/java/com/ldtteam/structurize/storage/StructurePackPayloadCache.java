@@ -0,0 +1,175 @@
+package com.ldtteam.structurize.storage;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Server side cache of what is sent to clients syncing a pack: the file hashes of the pack manifest and the zipped full pack.
+ * Keyed by pack name and version, shared by all players, so join-time work scales with the number of packs and not with the number of players.
+ * Entries are dropped whenever the pack changes on disk, see {@link #invalidate(String)}.
+ */
+public final class StructurePackPayloadCache
+{
+    /**
+     * Max bytes of zipped payloads kept in memory.
+     */
+    private static final long MAX_PAYLOAD_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Time after which unused entries are dropped, syncs happen in bursts when players join.
+     */
+    private static final long EXPIRE_MINUTES = 10;
+
+    /**
+     * The file hashes by pack.
+     */
+    private static final Cache<Key, Map<String, String>> hashes = CacheBuilder.newBuilder()
+      .expireAfterAccess(EXPIRE_MINUTES, TimeUnit.MINUTES)
+      .build();
+
+    /**
+     * The zipped full packs, read only and unreleasable, handed out as duplicates.
+     */
+    private static final Cache<Key, Payload> payloads = CacheBuilder.newBuilder()
+      .expireAfterAccess(EXPIRE_MINUTES, TimeUnit.MINUTES)
+      .maximumWeight(MAX_PAYLOAD_BYTES)
+      .<Key, Payload>weigher((key, payload) -> payload.data().readableBytes())
+      .build();
+
+    /**
+     * Bumped per pack on every invalidation, so results computed while the pack changed are never served.
+     */
+    private static final Map<String, Integer> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to hide implicit one.
+     */
+    private StructurePackPayloadCache()
+    {
+        /*
+         * Intentionally left empty.
+         */
+    }
+
+    /**
+     * Get the hashes of all files of a pack, calculated on first use. Blocks, meant to run on the IO pool.
+     *
+     * @param pack the pack.
+     * @return the hex SHA-256 by relative file path, must not be modified.
+     * @throws IOException if the pack can't be listed.
+     */
+    public static Map<String, String> getHashes(final StructurePackMeta pack) throws IOException
+    {
+        final Key key = getKey(pack);
+        Map<String, String> result = hashes.getIfPresent(key);
+        if (result == null)
+        {
+            result = Collections.unmodifiableMap(StructurePackIndex.hashFiles(pack.getPath(), pack.getIndex()));
+            hashes.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the zipped full pack, created on first use. Blocks, meant to run on the IO pool.
+     *
+     * @param pack   the pack.
+     * @param zipper creates the zipped pack, returns null on failure.
+     * @return the shared payload with a read only view of the data (releasing it is a no-op), null if zipping failed.
+     */
+    @Nullable
+    public static Payload getPayload(final StructurePackMeta pack, final Supplier<ByteBuf> zipper)
+    {
+        final Key key = getKey(pack);
+        Payload payload = payloads.getIfPresent(key);
+        if (payload == null)
+        {
+            final ByteBuf created = zipper.get();
+            if (created == null)
+            {
+                return null;
+            }
+            payload = Payload.of(Unpooled.unreleasableBuffer(created.asReadOnly()));
+            payloads.put(key, payload);
+        }
+        return new Payload(payload.data().duplicate(), payload.hash());
+    }
+
+    /**
+     * Drop everything cached for a pack, called whenever a file of the pack changes.
+     *
+     * @param pack the pack name.
+     */
+    public static void invalidate(final String pack)
+    {
+        generations.merge(pack, 1, Integer::sum);
+        hashes.asMap().keySet().removeIf(key -> key.pack().equals(pack));
+        payloads.asMap().keySet().removeIf(key -> key.pack().equals(pack));
+    }
+
+    /**
+     * Drop everything.
+     */
+    public static void invalidateAll()
+    {
+        generations.replaceAll((pack, generation) -> generation + 1);
+        hashes.invalidateAll();
+        payloads.invalidateAll();
+    }
+
+    private static Key getKey(final StructurePackMeta pack)
+    {
+        return new Key(pack.getName(), pack.getVersion(), generations.getOrDefault(pack.getName(), 0));
+    }
+
+    /**
+     * Cache key.
+     *
+     * @param pack       the pack name.
+     * @param version    the pack version.
+     * @param generation the invalidation generation of the pack.
+     */
+    private record Key(String pack, double version, int generation) { }
+
+    /**
+     * A zipped payload and its hash, which identifies it across reconnects.
+     *
+     * @param data the zipped data.
+     * @param hash the hex SHA-256 of the data.
+     */
+    public record Payload(ByteBuf data, String hash)
+    {
+        /**
+         * Hash a payload.
+         *
+         * @param data the zipped data.
+         * @return the payload.
+         */
+        public static Payload of(final ByteBuf data)
+        {
+            try
+            {
+                final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(data.nioBuffer());
+                return new Payload(data, HexFormat.of().formatHex(digest.digest()));
+            }
+            catch (final NoSuchAlgorithmException e)
+            {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+}
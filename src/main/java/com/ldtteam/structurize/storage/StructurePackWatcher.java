@@ -0,0 +1,246 @@
+package com.ldtteam.structurize.storage;
+
+import com.ldtteam.structurize.api.util.Log;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the folders of mutable structure packs and keeps the {@link StructurePackIndex} and the {@link BlueprintCache} in sync with the disk.
+ * Changes are applied per file, only an event overflow triggers a full reindex of the pack.
+ * Immutable (jar) packs can't change and are not watched.
+ */
+public final class StructurePackWatcher
+{
+    /**
+     * The watch service, null if not started.
+     */
+    private static WatchService watchService;
+
+    /**
+     * The watched folders and the pack they belong to.
+     */
+    private static final Map<WatchKey, Registration> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to hide implicit one.
+     */
+    private StructurePackWatcher()
+    {
+        /*
+         * Intentionally left empty.
+         */
+    }
+
+    /**
+     * Start watching a pack and all its folders.
+     *
+     * @param packMeta the pack, ignored if immutable or not on the default file system.
+     */
+    public static synchronized void watch(final StructurePackMeta packMeta)
+    {
+        if (packMeta.isImmutable() || packMeta.getPath().getFileSystem() != FileSystems.getDefault())
+        {
+            return;
+        }
+
+        try
+        {
+            registerTree(getWatchService(), packMeta, packMeta.getPath());
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Can't watch structure pack: " + packMeta.getName() + ", changes on disk need a reload", e);
+        }
+    }
+
+    /**
+     * Stop watching a pack.
+     *
+     * @param packMeta the pack.
+     */
+    public static synchronized void unwatch(final StructurePackMeta packMeta)
+    {
+        registrations.entrySet().removeIf(entry -> {
+            if (entry.getValue().packMeta() == packMeta)
+            {
+                entry.getKey().cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Stop watching everything.
+     */
+    public static synchronized void stop()
+    {
+        registrations.keySet().forEach(WatchKey::cancel);
+        registrations.clear();
+        if (watchService != null)
+        {
+            try
+            {
+                watchService.close();
+            }
+            catch (final IOException e)
+            {
+                Log.getLogger().warn("Error closing structure pack watcher", e);
+            }
+            watchService = null;
+        }
+    }
+
+    /**
+     * Get the watch service, starting the watcher thread if needed.
+     *
+     * @return the watch service.
+     * @throws IOException if the file system does not support watching.
+     */
+    private static WatchService getWatchService() throws IOException
+    {
+        if (watchService == null)
+        {
+            final WatchService service = FileSystems.getDefault().newWatchService();
+            final Thread thread = new Thread(() -> run(service), "Structurize Pack Watcher");
+            thread.setDaemon(true);
+            thread.setUncaughtExceptionHandler((thread1, throwable) -> Log.getLogger().error("Structurize pack watcher errored! ", throwable));
+            watchService = service;
+            thread.start();
+        }
+        return watchService;
+    }
+
+    /**
+     * Register a folder and all its sub folders.
+     */
+    private static void registerTree(final WatchService service, final StructurePackMeta packMeta, final Path root) throws IOException
+    {
+        try (final Stream<Path> paths = Files.walk(root))
+        {
+            for (final Path folder : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator)
+            {
+                registrations.put(folder.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), new Registration(packMeta, folder));
+            }
+        }
+    }
+
+    /**
+     * The watcher loop, ends when the service gets closed.
+     *
+     * @param service the watch service.
+     */
+    private static void run(final WatchService service)
+    {
+        while (true)
+        {
+            final WatchKey key;
+            try
+            {
+                key = service.take();
+            }
+            catch (final InterruptedException | ClosedWatchServiceException e)
+            {
+                return;
+            }
+
+            final Registration registration = registrations.get(key);
+            if (registration != null)
+            {
+                for (final WatchEvent<?> event : key.pollEvents())
+                {
+                    handleEvent(service, registration, event);
+                }
+            }
+
+            if (!key.reset())
+            {
+                registrations.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Apply a single change to the index and cache of the pack.
+     */
+    private static void handleEvent(final WatchService service, final Registration registration, final WatchEvent<?> event)
+    {
+        final StructurePackMeta packMeta = registration.packMeta();
+        final StructurePackIndex index = packMeta.getIndex();
+        if (index == null)
+        {
+            return;
+        }
+
+        if (event.kind() == OVERFLOW)
+        {
+            Log.getLogger().info("Too many changes in structure pack: " + packMeta.getName() + ", reindexing");
+            packMeta.setIndex(StructurePackIndex.build(packMeta));
+            BlueprintCache.invalidatePack(packMeta.getName());
+            StructurePackPayloadCache.invalidate(packMeta.getName());
+            return;
+        }
+
+        final Path path = registration.folder().resolve((Path) event.context());
+        BlueprintCache.invalidate(path);
+        StructurePackPayloadCache.invalidate(packMeta.getName());
+
+        if (event.kind() == ENTRY_DELETE)
+        {
+            index.remove(path);
+        }
+        else if (Files.isDirectory(path))
+        {
+            if (event.kind() == ENTRY_CREATE)
+            {
+                synchronized (StructurePackWatcher.class)
+                {
+                    try
+                    {
+                        registerTree(service, packMeta, path);
+                    }
+                    catch (final IOException | ClosedWatchServiceException e)
+                    {
+                        Log.getLogger().warn("Can't watch new structure pack folder: " + path, e);
+                    }
+                }
+                // files may have been moved in before the folder was registered
+                try (final Stream<Path> paths = Files.walk(path))
+                {
+                    paths.forEach(file -> {
+                        if (Files.isDirectory(file))
+                        {
+                            index.addFolder(file);
+                        }
+                        else
+                        {
+                            index.addFile(file);
+                        }
+                    });
+                }
+                catch (final IOException e)
+                {
+                    Log.getLogger().warn("Can't index new structure pack folder: " + path, e);
+                }
+            }
+        }
+        else
+        {
+            index.addFile(path);
+        }
+    }
+
+    /**
+     * A watched folder.
+     *
+     * @param packMeta the pack it belongs to.
+     * @param folder   the folder.
+     */
+    private record Registration(StructurePackMeta packMeta, Path folder) { }
+}
@@ -4,6 +4,7 @@ import com.google.gson.internal.Streams;
 import com.google.gson.stream.JsonReader;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.blueprints.v1.Blueprint;
+import com.ldtteam.structurize.blueprints.v1.BlueprintMetadata;
 import com.ldtteam.structurize.blueprints.v1.BlueprintUtil;
 import com.ldtteam.structurize.util.IOPool;
 import com.ldtteam.structurize.util.ManualBarrier;
@@ -12,11 +13,13 @@ import net.minecraft.nbt.NbtIo;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Future;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -37,6 +40,11 @@ public class StructurePacks
      */
     private static final int PACK_FORMAT = 1;
 
+    /**
+     * Extension of zipped structure packs.
+     */
+    public static final String ZIP_EXTENSION = ".zip";
+
     /**
      * The list of registered structure packs.
      * This might be accessed concurrently by client/server. That's why it is a concurrent hashmap.
@@ -116,8 +124,13 @@ public class StructurePacks
      */
     public static void clearPacks()
     {
+        StructurePackWatcher.stop();
+        packMetas.values().forEach(StructurePackMeta::close);
+        clientPackMetas.values().forEach(StructurePackMeta::close);
         packMetas.clear();
         clientPackMetas.clear();
+        BlueprintCache.invalidateAll();
+        StructurePackPayloadCache.invalidateAll();
     }
 
     /**
@@ -126,7 +139,15 @@ public class StructurePacks
      */
     public static StructurePackMeta disablePack(final String name)
     {
-        return packMetas.remove(name);
+        BlueprintCache.invalidatePack(name);
+        StructurePackPayloadCache.invalidate(name);
+        final StructurePackMeta packMeta = packMetas.remove(name);
+        if (packMeta != null)
+        {
+            StructurePackWatcher.unwatch(packMeta);
+            packMeta.close();
+        }
+        return packMeta;
     }
 
     /**
@@ -135,7 +156,7 @@ public class StructurePacks
      * @param subPath the path of the specific blueprint in the pack.
      * @return the blueprint future (might contain null).
      */
-    public static Future<Blueprint> getBlueprintFuture(final String structurePackId, final String subPath)
+    public static CompletableFuture<Blueprint> getBlueprintFuture(final String structurePackId, final String subPath)
     {
         return IOPool.submit(() -> getBlueprint(structurePackId, subPath));
     }
@@ -146,7 +167,7 @@ public class StructurePacks
      * @param subPath the path of the specific blueprint in the pack.
      * @return the blueprint data future (might contain null).
      */
-    public static Future<byte[]> getBlueprintDataFuture(final String structurePackId, final String subPath)
+    public static CompletableFuture<byte[]> getBlueprintDataFuture(final String structurePackId, final String subPath)
     {
         return IOPool.submit(() -> getBlueprintData(structurePackId, subPath));
     }
@@ -157,7 +178,7 @@ public class StructurePacks
      * @param name the filename.
      * @return the blueprint future (might contain null).
      */
-    public static Future<Path> findBlueprintFuture(final String structurePackId, final String name)
+    public static CompletableFuture<Path> findBlueprintFuture(final String structurePackId, final String name)
     {
         return IOPool.submit(() -> findBlueprint(structurePackId, name));
     }
@@ -168,7 +189,7 @@ public class StructurePacks
      * @param subPath the path of the set of blueprints (usually a folder).
      * @return the blueprints list (might be empty).
      */
-    public static Future<List<Blueprint>> getBlueprintsFuture(final String structurePackId, final String subPath)
+    public static CompletableFuture<List<Blueprint>> getBlueprintsFuture(final String structurePackId, final String subPath)
     {
         return IOPool.submit(() -> getBlueprints(structurePackId, subPath));
     }
@@ -179,7 +200,7 @@ public class StructurePacks
      * @param subPath the sub-path.
      * @return the list of categories.
      */
-    public static Future<List<Category>> getCategoriesFuture(final String structurePackId, final String subPath)
+    public static CompletableFuture<List<Category>> getCategoriesFuture(final String structurePackId, final String subPath)
     {
         return IOPool.submit(() -> getCategories(structurePackId, subPath));
     }
@@ -190,7 +211,7 @@ public class StructurePacks
      * @param path the path to search for.
      * @return the blueprint.
      */
-    public static Future<Blueprint> getBlueprintFuture(final String packName, final Path path)
+    public static CompletableFuture<Blueprint> getBlueprintFuture(final String packName, final Path path)
     {
         return IOPool.submit(() -> getBlueprint(packName, path));
     }
@@ -200,7 +221,7 @@ public class StructurePacks
      * @param blueprintPredicate the predicate to define the blueprint we're looking for.
      * @return the blueprint future.
      */
-    public static Future<Blueprint> findBlueprintFuture(final String structurePackId, final Predicate<Blueprint> blueprintPredicate)
+    public static CompletableFuture<Blueprint> findBlueprintFuture(final String structurePackId, final Predicate<Blueprint> blueprintPredicate)
     {
         return IOPool.submit(() -> findBlueprint(structurePackId, blueprintPredicate));
     }
@@ -212,7 +233,7 @@ public class StructurePacks
      * @param suppressError log exception or not.
      * @return the blueprint future (might contain null).
      */
-    public static Future<Blueprint> getBlueprintFuture(final String structurePackId, final String subPath, final boolean suppressError)
+    public static CompletableFuture<Blueprint> getBlueprintFuture(final String structurePackId, final String subPath, final boolean suppressError)
     {
         return IOPool.submit(() -> getBlueprint(structurePackId, subPath, suppressError));
     }
@@ -225,11 +246,33 @@ public class StructurePacks
      * @param suppressError log exception or not.
      * @return the blueprint.
      */
-    public static Future<Blueprint> getBlueprintFuture(final String packName, final Path path, final boolean suppressError)
+    public static CompletableFuture<Blueprint> getBlueprintFuture(final String packName, final Path path, final boolean suppressError)
     {
         return IOPool.submit(() -> getBlueprint(packName, path, suppressError));
     }
 
+    /**
+     * Get a blueprint metadata future (header only, no blocks are decoded).
+     * @param structurePackId the structure pack the blueprint is in.
+     * @param subPath the path of the specific blueprint in the pack.
+     * @return the metadata future (might contain null).
+     */
+    public static CompletableFuture<BlueprintMetadata> getBlueprintMetadataFuture(final String structurePackId, final String subPath)
+    {
+        return IOPool.submit(() -> getBlueprintMetadata(structurePackId, subPath));
+    }
+
+    /**
+     * Get a list of blueprint metadata future (header only, no blocks are decoded).
+     * @param structurePackId the structure pack the blueprints are in.
+     * @param subPath the path of the set of blueprints (usually a folder).
+     * @return the metadata list (might be empty).
+     */
+    public static CompletableFuture<List<BlueprintMetadata>> getBlueprintsMetadataFuture(final String structurePackId, final String subPath)
+    {
+        return IOPool.submit(() -> getBlueprintsMetadata(structurePackId, subPath));
+    }
+
     // ------------------------- Synchronous Calls ------------------------- //
 
     /**
@@ -291,6 +334,12 @@ public class StructurePacks
             return Optional.empty();
         }
 
+        final StructurePackIndex index = getIndexFor(subPath);
+        if (index != null)
+        {
+            return index.findByName(subPath, name);
+        }
+
         try
         {
             try (final Stream<Path> paths = Files.walk(subPath))
@@ -349,32 +398,80 @@ public class StructurePacks
             return null;
         }
 
-        try
+        final StructurePackMeta packMeta = getStructurePack(pack);
+        if (packMeta == null || packMeta.getIndex() == null)
         {
-            try (final Stream<Path> paths = Files.list(subPath))
+            return null;
+        }
+
+        for (final Path file : packMeta.getIndex().getBlueprintsBelow(subPath))
+        {
+            final Blueprint blueprint = getBlueprint(pack, file);
+            if (blueprint != null && blueprintPredicate.test(blueprint))
             {
-                return paths.map(file -> {
-                    if (!Files.isDirectory(file) && file.toString().endsWith("blueprint"))
-                    {
-                        final Blueprint blueprint = getBlueprint(pack, file);
-                        if (blueprintPredicate.test(blueprint))
-                        {
-                            blueprint.setFileName(file.getFileName().toString().replace(".blueprint", ""));
-                            blueprint.setFilePath(file.getParent()).setPackName(pack);
-                            return blueprint;
-                        }
-                    }
-                    else if (Files.isDirectory(file))
-                    {
-                        return findBlueprint(pack, file, blueprintPredicate);
-                    }
-                    return  null;
-                }).filter(Objects::nonNull).findFirst().orElse(null);
+                return blueprint;
             }
         }
-        catch (final IOException e)
+        return null;
+    }
+
+    /**
+     * Find the metadata of a blueprint, the predicate only sees the indexed header data so no blueprint gets decoded.
+     * @param structurePackId the pack to search in.
+     * @param metadataPredicate matches the metadata.
+     * @return the metadata or null.
+     */
+    @Nullable
+    public static BlueprintMetadata findBlueprintMetadata(final String structurePackId, final Predicate<BlueprintMetadata> metadataPredicate)
+    {
+        if (!waitUntilFinishedLoading())
         {
-            Log.getLogger().error("Error loading blueprint: " + pack + ":" + subPath, e);
+            return null;
+        }
+
+        final StructurePackMeta packMeta = getStructurePack(structurePackId);
+        if (packMeta == null || packMeta.getIndex() == null)
+        {
+            return null;
+        }
+
+        return packMeta.getIndex().findByMetadata(packMeta.getPath(), metadataPredicate);
+    }
+
+    /**
+     * Get an indexed folder of a pack.
+     * @param packMeta the pack.
+     * @param subPath the sub-path of the folder.
+     * @return the folder or null if it does not exist.
+     */
+    @Nullable
+    private static StructurePackIndex.Folder getIndexedFolder(final StructurePackMeta packMeta, final String subPath)
+    {
+        if (packMeta.getIndex() == null)
+        {
+            return null;
+        }
+        return packMeta.getIndex().getFolder(packMeta.getPath().resolve(packMeta.getNormalizedSubPath(subPath)));
+    }
+
+    /**
+     * Get the index of the pack containing a path.
+     * @param path the path inside a pack.
+     * @return the index or null if no discovered pack contains it.
+     */
+    @Nullable
+    private static StructurePackIndex getIndexFor(final Path path)
+    {
+        final Path normalized = path.normalize();
+        for (final Map<String, StructurePackMeta> metas : List.of(packMetas, clientPackMetas))
+        {
+            for (final StructurePackMeta meta : metas.values())
+            {
+                if (meta.getIndex() != null && normalized.getFileSystem() == meta.getPath().getFileSystem() && normalized.startsWith(meta.getPath().normalize()))
+                {
+                    return meta.getIndex();
+                }
+            }
         }
         return null;
     }
@@ -416,14 +513,7 @@ public class StructurePacks
     {
         try
         {
-            final CompoundTag nbt = NbtIo.readCompressed(new ByteArrayInputStream(Files.readAllBytes(path)));
-            final Blueprint blueprint = BlueprintUtil.readBlueprintFromNBT(nbt);
-            if (blueprint == null) return null;
-
-            blueprint.setFileName(path.getFileName().toString().replace(".blueprint", ""));
-            blueprint.setFilePath(path.getParent()).setPackName(pack);
-
-            return blueprint;
+            return loadBlueprint(pack, path);
         }
         catch (final IOException e)
         {
@@ -435,6 +525,158 @@ public class StructurePacks
         return null;
     }
 
+    /**
+     * Get the metadata of a blueprint directly (careful IO, might be slow).
+     * Only the header of the file is decoded.
+     * @param structurePackId the structure pack the blueprint is in.
+     * @param subPath the path of the blueprint.
+     * @return the metadata or null.
+     */
+    @Nullable
+    public static BlueprintMetadata getBlueprintMetadata(final String structurePackId, final String subPath)
+    {
+        if (!waitUntilFinishedLoading())
+        {
+            return null;
+        }
+
+        final StructurePackMeta packMeta = getStructurePack(structurePackId);
+        if (packMeta == null)
+        {
+            return null;
+        }
+
+        return getBlueprintMetadata(structurePackId, packMeta.getPath().resolve(packMeta.getNormalizedSubPath(subPath)));
+    }
+
+    /**
+     * Get the metadata of a blueprint directly with a path.
+     * @param pack the pack this belongs to.
+     * @param path the path of the blueprint file.
+     * @return the metadata or null.
+     */
+    @Nullable
+    public static BlueprintMetadata getBlueprintMetadata(final String pack, final Path path)
+    {
+        final StructurePackMeta packMeta = getStructurePack(pack);
+        if (packMeta != null && packMeta.getIndex() != null)
+        {
+            return packMeta.getIndex().getMetadata(path);
+        }
+        return readBlueprintMetadata(pack, path);
+    }
+
+    /**
+     * Read the metadata of a blueprint file, bypassing the pack index.
+     * @param pack the pack this belongs to.
+     * @param path the path of the blueprint file.
+     * @return the metadata or null.
+     */
+    @Nullable
+    static BlueprintMetadata readBlueprintMetadata(final String pack, final Path path)
+    {
+        try
+        {
+            final BlueprintMetadata metadata = BlueprintUtil.readBlueprintMetadata(path);
+            if (metadata == null) return null;
+
+            metadata.setFileName(path.getFileName().toString().replace(".blueprint", ""));
+            metadata.setFilePath(path.getParent()).setPackName(pack);
+            return metadata;
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().error("Error loading blueprint metadata: " + pack + ":" + path, e);
+        }
+        return null;
+    }
+
+    /**
+     * Get the metadata of all blueprints in a folder directly (careful IO, might be slow).
+     * @param structurePackId the structure pack the blueprints are in.
+     * @param subPath the folder containing the blueprints.
+     * @return the list of metadata or empty.
+     */
+    public static List<BlueprintMetadata> getBlueprintsMetadata(final String structurePackId, final String subPath)
+    {
+        if (!waitUntilFinishedLoading())
+        {
+            return Collections.emptyList();
+        }
+
+        final StructurePackMeta packMeta = getStructurePack(structurePackId);
+        if (packMeta == null)
+        {
+            return Collections.emptyList();
+        }
+
+        final StructurePackIndex.Folder folder = getIndexedFolder(packMeta, subPath);
+        if (folder == null)
+        {
+            return Collections.emptyList();
+        }
+
+        final List<BlueprintMetadata> metadata = new ArrayList<>();
+        for (final Path file : folder.getBlueprints())
+        {
+            final BlueprintMetadata entry = packMeta.getIndex().getMetadata(file);
+            if (entry != null)
+            {
+                metadata.add(entry);
+            }
+        }
+
+        metadata.sort(Comparator.comparing(BlueprintMetadata::getFileName));
+        return metadata;
+    }
+
+    /**
+     * Make sure a blueprint is in the {@link BlueprintCache}.
+     * @param pack the pack name.
+     * @param path the blueprint file.
+     * @return the decoded size if it had to be loaded, 0 if it was cached already or could not be loaded.
+     * @throws IOException if reading fails.
+     */
+    static long prefetchBlueprint(final String pack, final Path path) throws IOException
+    {
+        if (BlueprintCache.contains(pack, path, Files.getLastModifiedTime(path).toMillis()))
+        {
+            return 0;
+        }
+        final Blueprint blueprint = loadBlueprint(pack, path);
+        return blueprint == null ? 0 : blueprint.getByteSize();
+    }
+
+    /**
+     * Get a blueprint from the {@link BlueprintCache}, decoding and caching it on a miss.
+     * @param pack the pack this belongs to.
+     * @param path the blueprint file.
+     * @return a blueprint instance owned by the caller or null if the format is not supported.
+     * @throws IOException if reading fails.
+     */
+    @Nullable
+    private static Blueprint loadBlueprint(final String pack, final Path path) throws IOException
+    {
+        final long lastModified = Files.getLastModifiedTime(path).toMillis();
+        final Blueprint cached = BlueprintCache.get(pack, path, lastModified);
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        final Blueprint blueprint = UpgradedBlueprintCache.read(path);
+        if (blueprint == null)
+        {
+            return null;
+        }
+
+        blueprint.setFileName(path.getFileName().toString().replace(".blueprint", ""));
+        blueprint.setFilePath(path.getParent()).setPackName(pack);
+
+        BlueprintCache.put(pack, path, lastModified, blueprint);
+        return blueprint.copy();
+    }
+
     /**
      * Get blueprint data directly (careful IO, might be slow).
      * @param structurePackId the structure pack the blueprint is in.
@@ -488,37 +730,27 @@ public class StructurePacks
 
         //todo, here similarly as in the other places we could query a remote server for this if we don't have it locally.
 
-        final List<Blueprint> blueprints = new ArrayList<>();
+        final StructurePackIndex.Folder folder = getIndexedFolder(packMeta, subPath);
+        if (folder == null)
+        {
+            return Collections.emptyList();
+        }
 
-        try
+        final List<Blueprint> blueprints = new ArrayList<>();
+        for (final Path file : folder.getBlueprints())
         {
-            try (final Stream<Path> paths = Files.list(packMeta.getPath().resolve(packMeta.getNormalizedSubPath(subPath))))
+            try
             {
-                paths.forEach(file -> {
-                    if (!Files.isDirectory(file) && file.toString().endsWith("blueprint"))
-                    {
-                        try
-                        {
-                            final CompoundTag nbt = NbtIo.readCompressed(new ByteArrayInputStream(Files.readAllBytes(file)));
-                            final Blueprint blueprint = BlueprintUtil.readBlueprintFromNBT(nbt);
-                            if (blueprint != null)
-                            {
-                                blueprint.setFileName(file.getFileName().toString().replace(".blueprint", ""));
-                                blueprint.setFilePath(file.getParent()).setPackName(structurePackId);
-                                blueprints.add(blueprint);
-                            }
-                        }
-                        catch (final IOException e)
-                        {
-                            Log.getLogger().error("Error loading individual blueprint: " + file, e);
-                        }
-                    }
-                });
+                final Blueprint blueprint = loadBlueprint(structurePackId, file);
+                if (blueprint != null)
+                {
+                    blueprints.add(blueprint);
+                }
+            }
+            catch (final IOException e)
+            {
+                Log.getLogger().error("Error loading individual blueprint: " + file, e);
             }
-        }
-        catch (final IOException e)
-        {
-            Log.getLogger().error("Error loading blueprints from folder: " + packMeta.getNormalizedSubPath(subPath), e);
         }
 
         blueprints.sort(Comparator.comparing(Blueprint::getFileName));
@@ -527,7 +759,7 @@ public class StructurePacks
 
     /**
      * Get a list of categories of a specific sub-path of a given structure pack.
-     * This has IO, this may be slow.
+     * Served from the pack index, no IO.
      * @param structurePackId the id of the pack.
      * @param subPath the sub-path.
      * @return the list of categories.
@@ -548,52 +780,22 @@ public class StructurePacks
         //todo, here similarly as in the other places we could query a remote server for this if we don't have it locally.
 
         final Path basePath = packMeta.getPath().resolve(packMeta.getNormalizedSubPath(subPath));
-        final List<Category> categories = new ArrayList<>();
-        boolean hasBlueprints = false;
+        final StructurePackIndex.Folder folder = getIndexedFolder(packMeta, subPath);
+        if (folder == null)
+        {
+            return Collections.emptyList();
+        }
 
-        try
+        final List<Category> categories = new ArrayList<>();
+        final boolean hasBlueprints = folder.hasBlueprints();
+        for (final Path file : folder.getFolders())
         {
-            try (final Stream<Path> paths = Files.list(basePath))
+            final StructurePackIndex.Folder subFolder = packMeta.getIndex().getFolder(file);
+            if (subFolder != null)
             {
-                for (final Path file : paths.toList())
-                {
-                    if (Files.isDirectory(file))
-                    {
-                        final Category newCategory = new Category(packMeta, file, false, true, false);
-
-                        try
-                        {
-                            try (final Stream<Path> subPaths = Files.list(file))
-                            {
-                                subPaths.forEach(subFile -> {
-                                    if (subFile.endsWith("icon.png"))
-                                    {
-                                        newCategory.hasIcon = true;
-                                    }
-                                    else if (Files.isDirectory(subFile))
-                                    {
-                                        newCategory.isTerminal = false;
-                                    }
-                                });
-                                categories.add(newCategory);
-                            }
-                        }
-                        catch (final IOException e)
-                        {
-                            Log.getLogger().error("Error loading category: " + file, e);
-                        }
-                    }
-                    else if (file.toString().endsWith(".blueprint"))
-                    {
-                        hasBlueprints = true;
-                    }
-                }
+                categories.add(new Category(packMeta, file, subFolder.hasIcon(), !subFolder.hasFolders(), false));
             }
         }
-        catch (final IOException e)
-        {
-            Log.getLogger().error("Error loading categories from folder: " + packMeta.getNormalizedSubPath(subPath), e);
-        }
 
         if (hasBlueprints && !categories.isEmpty())
         {
@@ -607,25 +809,48 @@ public class StructurePacks
 
     /**
      * Discover a structure pack at a given path.
-     * @param element the path to check for.
+     * @param element the path to check for, a pack folder or a zip file containing one.
      * @param immutable if jar (true), else false.
      * @param modList the list of mods loaded on this instance.
      * @param clientPack if this is a client pac.
      */
-    /*
-    public static void discoverPackAtPath(final Path element, final boolean immutable, final List<String> modList, final boolean clientPack)
+    public static void discoverPackAtPath(final Path element, final boolean immutable, final List<String> modList, final boolean clientPack, final String owner)
     {
-        discoverPackAtPath(element, immutable, modList, clientPack, "unknown");
-    }*/
+        if (!element.getFileName().toString().endsWith(ZIP_EXTENSION) || !Files.isRegularFile(element))
+        {
+            registerPack(element, immutable, modList, clientPack, owner);
+            return;
+        }
+
+        try
+        {
+            final FileSystem fileSystem = FileSystems.newFileSystem(element);
+            final StructurePackMeta pack = registerPack(fileSystem.getPath("/"), immutable, modList, clientPack, owner);
+            if (pack == null)
+            {
+                fileSystem.close();
+            }
+            else
+            {
+                pack.setArchive(element, fileSystem);
+            }
+        }
+        catch (final IOException ex)
+        {
+            Log.getLogger().warn("Error opening pack archive: " + element, ex);
+        }
+    }
 
     /**
-     * Discover a structure pack at a given path.
-     * @param element the path to check for.
+     * Register the structure pack at a given path.
+     * @param element the pack root.
      * @param immutable if jar (true), else false.
      * @param modList the list of mods loaded on this instance.
      * @param clientPack if this is a client pac.
+     * @return the registered pack or null if there is none or it can't be loaded.
      */
-    public static void discoverPackAtPath(final Path element, final boolean immutable, final List<String> modList, final boolean clientPack, final String owner)
+    @Nullable
+    private static StructurePackMeta registerPack(final Path element, final boolean immutable, final List<String> modList, final boolean clientPack, final String owner)
     {
         final Path packJsonPath = element.resolve("pack.json");
         if (Files.exists(packJsonPath))
@@ -643,9 +868,14 @@ public class StructurePacks
                             if (!modList.contains(modId))
                             {
                                 Log.getLogger().warn("Missing Mod: " + modId + " for Pack: " + pack.getName());
-                                return;
+                                return null;
                             }
                         }
+                        final StructurePackIndex index = StructurePackIndex.build(pack);
+                        pack.setIndex(index);
+                        IOPool.execute(IOPool.Lane.BULK, index::populateMetadata);
+                        StructurePackWatcher.watch(pack);
+                        StructurePackPayloadCache.invalidate(pack.getName());
                         if (clientPack)
                         {
                             clientPackMetas.put(pack.getName(), pack);
@@ -655,6 +885,7 @@ public class StructurePacks
                             packMetas.put(pack.getName(), pack);
                         }
                         Log.getLogger().info("Registered structure pack: " + pack.getName());
+                        return pack;
                     }
                     else
                     {
@@ -671,6 +902,7 @@ public class StructurePacks
                 Log.getLogger().warn("Error Reading Json: " + element, ex);
             }
         }
+        return null;
     }
 
     /**
@@ -679,7 +911,7 @@ public class StructurePacks
      * @param compoundTag compound to store.
      * @param path path to store it at.
      */
-    public static Future<Blueprint> storeBlueprint(final String packName, final CompoundTag compoundTag, final Path path)
+    public static CompletableFuture<Blueprint> storeBlueprint(final String packName, final CompoundTag compoundTag, final Path path)
     {
         return IOPool.submit(() ->
         {
@@ -693,6 +925,14 @@ public class StructurePacks
                 Log.getLogger().warn("Exception while trying to scan.", e);
                 return null;
             }
+            // the modification stamp might not have changed if the file was written twice within its resolution
+            BlueprintCache.invalidate(path);
+            StructurePackPayloadCache.invalidate(packName);
+            final StructurePackMeta packMeta = getStructurePack(packName);
+            if (packMeta != null && packMeta.getIndex() != null && path.normalize().startsWith(packMeta.getPath().normalize()))
+            {
+                packMeta.getIndex().addFile(path);
+            }
             return StructurePacks.getBlueprint(packName, path);
         });
     }
@@ -0,0 +1,249 @@
+package com.ldtteam.structurize.storage;
+
+import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.blueprints.v1.Blueprint;
+import com.ldtteam.structurize.blueprints.v1.BlueprintUtil;
+import com.ldtteam.structurize.blueprints.v1.ChunkedBlueprintFile;
+import com.ldtteam.structurize.util.IOPool;
+import net.minecraft.SharedConstants;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static com.ldtteam.structurize.api.util.constant.Constants.BLUEPRINT_FOLDER;
+import static com.ldtteam.structurize.api.util.constant.Constants.CACHE_FOLDER;
+
+/**
+ * On disk cache of blueprints which had to be data fixed on load.
+ * Entries are keyed by the location, size and modification stamp of the source file and the data version they were upgraded to,
+ * so a cache hit is always the same source upgraded by the same game version and the fixers can be skipped entirely.
+ * All entries of one location share a name prefix, writing a new entry replaces the outdated ones of the same source.
+ * Sources are streamed, nothing is buffered or hashed for files which are already at the current data version.
+ * Entries are {@link ChunkedBlueprintFile}s saved with the current data version.
+ */
+public final class UpgradedBlueprintCache
+{
+    /**
+     * The folder of the upgraded blueprints.
+     */
+    private static final Path CACHE_PATH = new File(".").toPath().resolve(BLUEPRINT_FOLDER).resolve(CACHE_FOLDER).resolve("upgraded");
+
+    /**
+     * The file extension of the entries.
+     */
+    private static final String ENTRY_EXTENSION = ".chunked";
+
+    /**
+     * Private constructor to hide implicit one.
+     */
+    private UpgradedBlueprintCache()
+    {
+        /*
+         * Intentionally left empty.
+         */
+    }
+
+    /**
+     * Read a v1 blueprint file, using the upgraded copy if there is one.
+     * If the file had to be data fixed, the upgraded blueprint is written to the cache through the {@link IOPool}.
+     *
+     * @param path the blueprint file.
+     * @return the blueprint or null if the format is not supported.
+     * @throws IOException if reading the source fails.
+     */
+    @Nullable
+    public static Blueprint read(final Path path) throws IOException
+    {
+        final int currentVersion = SharedConstants.getCurrentVersion().getDataVersion().getVersion();
+        final Path cachedPath = getCachePath(path, currentVersion);
+
+        if (Files.exists(cachedPath))
+        {
+            try (final ChunkedBlueprintFile file = ChunkedBlueprintFile.open(cachedPath))
+            {
+                final Blueprint cached = file.readBlueprint();
+                if (cached != null)
+                {
+                    return cached;
+                }
+            }
+            catch (final IOException e)
+            {
+                Log.getLogger().warn("Dropping broken upgraded blueprint cache entry: " + cachedPath, e);
+            }
+            Files.deleteIfExists(cachedPath);
+        }
+
+        final AtomicInteger sourceVersion = new AtomicInteger(currentVersion);
+        final Blueprint blueprint = readSource(path, sourceVersion);
+        if (blueprint != null && sourceVersion.get() != currentVersion)
+        {
+            // snapshot now, the returned blueprint may be rotated by the caller while the write is pending
+            final Blueprint upgraded = blueprint.copy();
+            IOPool.execute(IOPool.Lane.BULK, () -> write(cachedPath, upgraded));
+        }
+        return blueprint;
+    }
+
+    /**
+     * Make sure all old blueprints of a folder are upgraded and cached, blocks the current thread.
+     * Yields between files and stops early when the thread is interrupted, meant for a low priority lane.
+     *
+     * @param root the folder to scan.
+     * @return the amount of blueprints which were checked.
+     */
+    public static int warm(final Path root)
+    {
+        final int currentVersion = SharedConstants.getCurrentVersion().getDataVersion().getVersion();
+        int count = 0;
+        try (final Stream<Path> paths = Files.walk(root))
+        {
+            for (final Path path : (Iterable<Path>) paths.filter(p -> p.toString().endsWith(".blueprint"))::iterator)
+            {
+                if (Thread.currentThread().isInterrupted())
+                {
+                    break;
+                }
+                Thread.yield();
+
+                try
+                {
+                    final Path cachedPath = getCachePath(path, currentVersion);
+                    count++;
+                    if (Files.exists(cachedPath))
+                    {
+                        continue;
+                    }
+
+                    final AtomicInteger sourceVersion = new AtomicInteger(currentVersion);
+                    final Blueprint blueprint = readSource(path, sourceVersion);
+                    if (blueprint != null && sourceVersion.get() != currentVersion)
+                    {
+                        write(cachedPath, blueprint);
+                    }
+                }
+                catch (final IOException e)
+                {
+                    Log.getLogger().warn("Failed to upgrade blueprint: " + path, e);
+                }
+            }
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Failed to scan blueprints in: " + root, e);
+        }
+        return count;
+    }
+
+    /**
+     * Write a cache entry, the entry only becomes visible once it is complete.
+     * Older entries of the same source are deleted afterwards.
+     *
+     * @param cachedPath the entry path.
+     * @param upgraded   the upgraded blueprint.
+     */
+    private static void write(final Path cachedPath, final Blueprint upgraded)
+    {
+        try
+        {
+            Files.createDirectories(cachedPath.getParent());
+            final Path tempPath = Files.createTempFile(cachedPath.getParent(), cachedPath.getFileName().toString(), ".tmp");
+            try
+            {
+                ChunkedBlueprintFile.write(upgraded, tempPath);
+                Files.move(tempPath, cachedPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            finally
+            {
+                Files.deleteIfExists(tempPath);
+            }
+            deleteOutdated(cachedPath);
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Failed to write upgraded blueprint cache entry: " + cachedPath, e);
+        }
+    }
+
+    /**
+     * Delete the entries of the same source as the given entry, they belong to an older stamp or data version of it.
+     *
+     * @param cachedPath the current entry.
+     * @throws IOException if the entry folder can't be listed.
+     */
+    private static void deleteOutdated(final Path cachedPath) throws IOException
+    {
+        final String name = cachedPath.getFileName().toString();
+        final String prefix = name.substring(0, name.indexOf('-') + 1);
+        try (final Stream<Path> files = Files.list(cachedPath.getParent()))
+        {
+            for (final Path file : (Iterable<Path>) files::iterator)
+            {
+                final String fileName = file.getFileName().toString();
+                if (fileName.startsWith(prefix) && fileName.endsWith(ENTRY_EXTENSION) && !fileName.equals(name))
+                {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream a source blueprint file.
+     *
+     * @param path          the source file.
+     * @param sourceVersion receives the data version of the source.
+     * @return the blueprint or null if the format is not supported.
+     * @throws IOException if reading fails.
+     */
+    @Nullable
+    private static Blueprint readSource(final Path path, final AtomicInteger sourceVersion) throws IOException
+    {
+        try (final InputStream input = Files.newInputStream(path))
+        {
+            return BlueprintUtil.readBlueprintFromStream(input, sourceVersion::set);
+        }
+    }
+
+    /**
+     * Calculate the cache entry of a source file, named after its location followed by its size, modification stamp and target version.
+     *
+     * @param path          the source file.
+     * @param targetVersion the data version the source is upgraded to.
+     * @return the entry path.
+     * @throws IOException if the file attributes can't be read.
+     */
+    private static Path getCachePath(final Path path, final int targetVersion) throws IOException
+    {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        final String location = sha256(path.toAbsolutePath().normalize().toUri().toString());
+        final String stamp = sha256(attributes.size() + "|" + attributes.lastModifiedTime().toMillis() + "|" + targetVersion);
+        return CACHE_PATH.resolve(location.substring(0, 2)).resolve(location + "-" + stamp.substring(0, 16) + ENTRY_EXTENSION);
+    }
+
+    /**
+     * Hash a string.
+     *
+     * @param value the string.
+     * @return the hex SHA-256.
+     */
+    private static String sha256(final String value)
+    {
+        try
+        {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        }
+        catch (final NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.ldtteam.structurize.storage.rendering;
+
+import com.ldtteam.structurize.Network;
+import com.ldtteam.structurize.network.messages.SyncPreviewCacheToServer;
+import com.ldtteam.structurize.network.messages.SyncPreviewDeltaToServer;
+import com.ldtteam.structurize.storage.rendering.types.BlueprintPreviewData;
+import com.ldtteam.structurize.storage.rendering.types.PreviewDelta;
+import com.ldtteam.structurize.util.RotationMirror;
+import net.minecraft.core.BlockPos;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Coalesces the preview changes of this client before sharing them with the server.
+ * Changes within {@link #COALESCE_WINDOW_MS} are sent as one update. As long as the pack and path stay the same,
+ * only a {@link PreviewDelta} referencing the last full update is sent instead of the whole preview.
+ */
+public class ClientPreviewSync
+{
+    /**
+     * Time changes are collected before they are sent.
+     */
+    private static final long COALESCE_WINDOW_MS = 100;
+
+    /**
+     * The preview with unsent changes, null if there are none.
+     */
+    @Nullable
+    private static BlueprintPreviewData pending;
+
+    /**
+     * When the pending changes are sent.
+     */
+    private static long flushAt;
+
+    /**
+     * Id of the last fully sent pack and path, bumped for every full update.
+     */
+    private static int blueprintId;
+
+    /**
+     * What the server got last, null pack if the next update has to be a full one.
+     */
+    @Nullable
+    private static String sentPackName;
+    private static String sentBlueprintPath;
+    private static BlockPos sentPos;
+    private static RotationMirror sentRotationMirror;
+
+    /**
+     * Private constructor to hide implicit one.
+     */
+    private ClientPreviewSync()
+    {
+        /*
+         * Intentionally left empty.
+         */
+    }
+
+    /**
+     * Schedule a preview to be synced, a later change of the same or another preview within the window replaces it.
+     * @param previewData the preview.
+     */
+    public static void schedule(final BlueprintPreviewData previewData)
+    {
+        if (pending == null)
+        {
+            flushAt = System.currentTimeMillis() + COALESCE_WINDOW_MS;
+        }
+        pending = previewData;
+    }
+
+    /**
+     * Send the pending changes right away.
+     */
+    public static void flush()
+    {
+        final BlueprintPreviewData previewData = pending;
+        pending = null;
+        if (previewData == null)
+        {
+            return;
+        }
+
+        final String packName = previewData.getSyncPackName();
+        final String blueprintPath = previewData.getSyncBlueprintPath();
+        final BlockPos pos = previewData.getPos() == null ? BlockPos.ZERO : previewData.getPos();
+        final RotationMirror rotationMirror = previewData.getRotationMirror();
+
+        if (packName.isEmpty() || !packName.equals(sentPackName) || !blueprintPath.equals(sentBlueprintPath))
+        {
+            blueprintId++;
+            Network.getNetwork().sendToServer(new SyncPreviewCacheToServer(previewData, blueprintId));
+            sentPackName = packName.isEmpty() ? null : packName;
+            sentBlueprintPath = blueprintPath;
+        }
+        else if (!pos.equals(sentPos) || rotationMirror != sentRotationMirror)
+        {
+            Network.getNetwork().sendToServer(new SyncPreviewDeltaToServer(new PreviewDelta(blueprintId, pos.subtract(sentPos), rotationMirror)));
+        }
+        sentPos = pos;
+        sentRotationMirror = rotationMirror;
+    }
+
+    /**
+     * Forget everything, the next update is a full one.
+     */
+    public static void reset()
+    {
+        pending = null;
+        sentPackName = null;
+        sentBlueprintPath = null;
+        sentPos = null;
+        sentRotationMirror = null;
+    }
+
+    @SubscribeEvent
+    public static void onClientTick(final TickEvent.ClientTickEvent event)
+    {
+        if (event.phase == TickEvent.Phase.END && pending != null && System.currentTimeMillis() >= flushAt)
+        {
+            flush();
+        }
+    }
+}
@@ -1,18 +1,29 @@
 package com.ldtteam.structurize.storage.rendering;
 
 import com.ldtteam.structurize.Network;
+import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.network.messages.SyncPreviewCacheToClient;
-import com.ldtteam.structurize.storage.rendering.types.BlueprintPreviewData;
+import com.ldtteam.structurize.network.messages.SyncPreviewDeltaToClient;
+import com.ldtteam.structurize.storage.rendering.types.PreviewDelta;
+import com.ldtteam.structurize.storage.rendering.types.SharedPreview;
+import com.ldtteam.structurize.util.RotationMirror;
 import it.unimi.dsi.fastutil.objects.Object2BooleanMap;
 import it.unimi.dsi.fastutil.objects.Object2BooleanOpenHashMap;
 import net.minecraft.core.BlockPos;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * Class handling blueprint syncing between players.
+ * Updates of a player are forwarded at most {@code previewUpdatesPerSecond} times per second, the latest one wins.
+ * Receivers which already got the blueprint of a preview only get a {@link PreviewDelta} relative to what they got last.
  */
 public class ServerPreviewDistributor
 {
@@ -21,35 +32,134 @@ public class ServerPreviewDistributor
      */
     private static Object2BooleanMap<UUID> registeredPlayers = new Object2BooleanOpenHashMap<>();
 
+    /**
+     * The shared preview of every player, main thread only.
+     */
+    private static final Map<UUID, Source> sources = new HashMap<>();
+
     @SubscribeEvent
     public static void onLogout(final PlayerEvent.PlayerLoggedOutEvent event)
     {
         if (event.getEntity().level().isClientSide)
         {
             RenderingCache.clear();
+            ClientPreviewSync.reset();
+            return;
+        }
+        final UUID uuid = event.getEntity().getUUID();
+        registeredPlayers.removeBoolean(uuid);
+        sources.remove(uuid);
+        for (final Source source : sources.values())
+        {
+            source.sent.remove(uuid);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(final TickEvent.ServerTickEvent event)
+    {
+        if (event.phase != TickEvent.Phase.END || sources.isEmpty())
+        {
+            return;
+        }
+
+        for (final Map.Entry<UUID, Source> entry : sources.entrySet())
+        {
+            final Source source = entry.getValue();
+            if (source.dirty && isDue(source, event.getServer()))
+            {
+                final ServerPlayer player = event.getServer().getPlayerList().getPlayer(entry.getKey());
+                if (player != null)
+                {
+                    distribute(source, player);
+                }
+            }
+        }
+    }
+
+    /**
+     * Take a full preview update of a player.
+     * @param preview the preview.
+     * @param sourcePlayer the player.
+     */
+    public static void update(final SharedPreview preview, final ServerPlayer sourcePlayer)
+    {
+        final Source source = sources.computeIfAbsent(sourcePlayer.getUUID(), uuid -> new Source());
+        source.preview = preview;
+        source.dirty = true;
+        if (isDue(source, sourcePlayer.getServer()))
+        {
+            distribute(source, sourcePlayer);
+        }
+    }
+
+    /**
+     * Take a preview change of a player, dropped if it does not reference the current blueprint of the player.
+     * @param delta the change.
+     * @param sourcePlayer the player.
+     */
+    public static void update(final PreviewDelta delta, final ServerPlayer sourcePlayer)
+    {
+        final Source source = sources.get(sourcePlayer.getUUID());
+        if (source == null || source.preview == null || source.preview.blueprintId() != delta.blueprintId())
+        {
             return;
         }
-        registeredPlayers.removeBoolean(event.getEntity().getUUID());
+        update(source.preview.apply(delta), sourcePlayer);
     }
 
     /**
-     * Distribute this rendering cache to all that are wanting to listen.
-     * @param renderingCache the cache to distribute.
+     * Distribute the preview of a player to all that are wanting to listen.
+     * @param source the preview of the player.
+     * @param sourcePlayer the player.
      */
-    public static void distribute(final BlueprintPreviewData renderingCache, final ServerPlayer sourcePlayer)
+    private static void distribute(final Source source, final ServerPlayer sourcePlayer)
     {
+        source.dirty = false;
+        source.lastDistributed = sourcePlayer.getServer().getTickCount();
+
+        final SharedPreview preview = source.preview;
         for (final ServerPlayer player : sourcePlayer.getServer().getLevel(sourcePlayer.level().dimension()).players())
         {
-            if ((player.blockPosition().distSqr(renderingCache.getPos()) < 128 * 128 || renderingCache.getPos().equals(BlockPos.ZERO)) && // within sensible distance
+            if ((player.blockPosition().distSqr(preview.pos()) < 128 * 128 || preview.pos().equals(BlockPos.ZERO)) && // within sensible distance
                 !player.getUUID().equals(sourcePlayer.getUUID()) && // dont send to source
                 player.isAlive() && // dont send to dead
                 registeredPlayers.getBoolean(player.getUUID())) // only those who want to see previews
             {
-                Network.getNetwork().sendToPlayer(new SyncPreviewCacheToClient(renderingCache, player.getUUID()), player);
+                final Sent sent = source.sent.get(player.getUUID());
+                if (preview.isEmpty())
+                {
+                    source.sent.remove(player.getUUID());
+                    Network.getNetwork().sendToPlayer(new SyncPreviewCacheToClient(preview, sourcePlayer.getUUID()), player);
+                    continue;
+                }
+
+                if (sent == null || sent.blueprintId() != preview.blueprintId())
+                {
+                    Network.getNetwork().sendToPlayer(new SyncPreviewCacheToClient(preview, sourcePlayer.getUUID()), player);
+                }
+                else if (!sent.pos().equals(preview.pos()) || sent.rotationMirror() != preview.rotationMirror())
+                {
+                    final PreviewDelta delta = new PreviewDelta(preview.blueprintId(), preview.pos().subtract(sent.pos()), preview.rotationMirror());
+                    Network.getNetwork().sendToPlayer(new SyncPreviewDeltaToClient(delta, sourcePlayer.getUUID()), player);
+                }
+                source.sent.put(player.getUUID(), new Sent(preview.blueprintId(), preview.pos(), preview.rotationMirror()));
             }
         }
     }
 
+    /**
+     * Check if the rate limit allows to distribute the preview of a player again.
+     * @param source the preview of the player.
+     * @param server the server.
+     * @return true if so.
+     */
+    private static boolean isDue(final Source source, final MinecraftServer server)
+    {
+        final int interval = Math.max(1, 20 / Structurize.getConfig().getServer().previewUpdatesPerSecond.get());
+        return server.getTickCount() - source.lastDistributed >= interval;
+    }
+
     /**
      * Register a player with their settings.
      * @param player the player.
@@ -58,5 +168,45 @@ public class ServerPreviewDistributor
     public static void register(final ServerPlayer player, final boolean displayShared)
     {
         registeredPlayers.put(player.getUUID(), displayShared);
+
+        // the client may have dropped the shared previews, deltas would not apply anymore
+        for (final Source source : sources.values())
+        {
+            source.sent.remove(player.getUUID());
+        }
     }
+
+    /**
+     * The shared preview of a player.
+     */
+    private static class Source
+    {
+        /**
+         * The latest preview.
+         */
+        private SharedPreview preview;
+
+        /**
+         * True if the latest preview was not distributed yet.
+         */
+        private boolean dirty;
+
+        /**
+         * Server tick of the last distribution.
+         */
+        private long lastDistributed = Long.MIN_VALUE / 2;
+
+        /**
+         * What every receiver got last.
+         */
+        private final Map<UUID, Sent> sent = new HashMap<>();
+    }
+
+    /**
+     * What a receiver got last.
+     * @param blueprintId the blueprint id.
+     * @param pos the position.
+     * @param rotationMirror the rotation/mirror.
+     */
+    private record Sent(int blueprintId, BlockPos pos, RotationMirror rotationMirror) { }
 }
@@ -1,11 +1,10 @@
 package com.ldtteam.structurize.storage.rendering.types;
 
-import com.ldtteam.structurize.Network;
 import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.blueprints.v1.Blueprint;
 import com.ldtteam.structurize.client.RenderingCacheKey;
-import com.ldtteam.structurize.network.messages.SyncPreviewCacheToServer;
 import com.ldtteam.structurize.storage.StructurePacks;
+import com.ldtteam.structurize.storage.rendering.ClientPreviewSync;
 import com.ldtteam.structurize.util.PlacementSettings;
 import com.ldtteam.structurize.util.RotationMirror;
 import net.minecraft.client.Minecraft;
@@ -60,6 +59,11 @@ public class BlueprintPreviewData
     private String blueprintPath = "";
     private String packName = "";
 
+    /**
+     * Id of the pack and path of a shared preview, deltas only apply if they reference it.
+     */
+    private int blueprintId;
+
     /**
      * Used for blueprint renderer
      */
@@ -129,20 +133,29 @@ public class BlueprintPreviewData
     public void writeToBuf(final FriendlyByteBuf byteBuf)
     {
         byteBuf.writeBlockPos(pos == null ? BlockPos.ZERO : pos);
-
-        if (blueprint == null)
-        {
-            byteBuf.writeUtf(packName);
-            byteBuf.writeUtf(blueprintPath);
-        }
-        else
-        {
-            byteBuf.writeUtf(StructurePacks.selectedPack.getName());
-            byteBuf.writeUtf(StructurePacks.selectedPack.getSubPath(blueprint.getFilePath().resolve(blueprint.getFileName() + ".blueprint")));
-        }
+        byteBuf.writeUtf(getSyncPackName());
+        byteBuf.writeUtf(getSyncBlueprintPath());
         byteBuf.writeByte(rotationMirror.ordinal());
     }
 
+    /**
+     * Get the pack name sent when syncing this preview.
+     * @return the pack name.
+     */
+    public String getSyncPackName()
+    {
+        return blueprint == null ? packName : StructurePacks.selectedPack.getName();
+    }
+
+    /**
+     * Get the blueprint path sent when syncing this preview.
+     * @return the path in the pack.
+     */
+    public String getSyncBlueprintPath()
+    {
+        return blueprint == null ? blueprintPath : StructurePacks.selectedPack.getSubPath(blueprint.getFilePath().resolve(blueprint.getFileName() + ".blueprint"));
+    }
+
     /**
      * Set the blueprint future.
      * @param blueprintFuture the future.
@@ -247,13 +260,13 @@ public class BlueprintPreviewData
     }
 
     /**
-     * Sync the changes to the server.
+     * Sync the changes to the server. Changes are coalesced for a moment, so nudging the preview around sends one update.
      */
     public void syncChangesToServer()
     {
         if (serverSyncEnabled && Structurize.getConfig().getClient().sharePreviews.get() && (blueprint == null || blueprint.getName() != null))
         {
-            Network.getNetwork().sendToServer(new SyncPreviewCacheToServer(this));
+            ClientPreviewSync.schedule(this);
         }
     }
 
@@ -386,6 +399,24 @@ public class BlueprintPreviewData
         return renderKey;
     }
 
+    /**
+     * Get the id of the pack and path of a shared preview.
+     * @return the id.
+     */
+    public int getBlueprintId()
+    {
+        return blueprintId;
+    }
+
+    /**
+     * Set the id of the pack and path of a shared preview.
+     * @param blueprintId the id.
+     */
+    public void setBlueprintId(final int blueprintId)
+    {
+        this.blueprintId = blueprintId;
+    }
+
     public boolean isServerSyncEnabled()
     {
         return serverSyncEnabled;
@@ -0,0 +1,56 @@
+package com.ldtteam.structurize.storage.rendering.types;
+
+import com.ldtteam.structurize.util.RotationMirror;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+
+/**
+ * Change of a shared preview which still shows the same blueprint: a position offset and the new rotation/mirror.
+ * Offsets are zigzag varints, so the usual nudge by a block costs one byte per axis.
+ *
+ * @param blueprintId    the id of the blueprint the receiver must still have for the delta to apply.
+ * @param offset         the position offset.
+ * @param rotationMirror the new rotation/mirror.
+ */
+public record PreviewDelta(int blueprintId, BlockPos offset, RotationMirror rotationMirror)
+{
+    /**
+     * Read a delta from a buffer.
+     *
+     * @param buf the buffer.
+     * @return the delta.
+     */
+    public static PreviewDelta read(final FriendlyByteBuf buf)
+    {
+        final int blueprintId = buf.readVarInt();
+        final int x = readZigZag(buf);
+        final int y = readZigZag(buf);
+        final int z = readZigZag(buf);
+        return new PreviewDelta(blueprintId, new BlockPos(x, y, z), RotationMirror.values()[buf.readByte()]);
+    }
+
+    /**
+     * Write the delta to a buffer.
+     *
+     * @param buf the buffer.
+     */
+    public void write(final FriendlyByteBuf buf)
+    {
+        buf.writeVarInt(blueprintId);
+        writeZigZag(buf, offset.getX());
+        writeZigZag(buf, offset.getY());
+        writeZigZag(buf, offset.getZ());
+        buf.writeByte(rotationMirror.ordinal());
+    }
+
+    private static void writeZigZag(final FriendlyByteBuf buf, final int value)
+    {
+        buf.writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    private static int readZigZag(final FriendlyByteBuf buf)
+    {
+        final int value = buf.readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,65 @@
+package com.ldtteam.structurize.storage.rendering.types;
+
+import com.ldtteam.structurize.util.RotationMirror;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+
+/**
+ * Server side state of a shared blueprint preview, without the blueprint itself.
+ * Serialized in the same layout as {@link BlueprintPreviewData#writeToBuf(FriendlyByteBuf)}.
+ *
+ * @param blueprintId    the id the sending client gave to this pack and path, referenced by {@link PreviewDelta}s.
+ * @param packName       the pack name, empty if the preview was cleared.
+ * @param blueprintPath  the blueprint path in the pack.
+ * @param pos            the position.
+ * @param rotationMirror the rotation/mirror.
+ */
+public record SharedPreview(int blueprintId, String packName, String blueprintPath, BlockPos pos, RotationMirror rotationMirror)
+{
+    /**
+     * Read the preview from a buffer, the blueprint id is not part of the layout.
+     *
+     * @param buf         the buffer.
+     * @param blueprintId the blueprint id.
+     * @return the preview.
+     */
+    public static SharedPreview read(final FriendlyByteBuf buf, final int blueprintId)
+    {
+        final BlockPos pos = buf.readBlockPos();
+        final String packName = buf.readUtf(32767);
+        final String blueprintPath = buf.readUtf(32767);
+        return new SharedPreview(blueprintId, packName, blueprintPath, pos, RotationMirror.values()[buf.readByte()]);
+    }
+
+    /**
+     * Write the preview to a buffer, the blueprint id is not part of the layout.
+     *
+     * @param buf the buffer.
+     */
+    public void write(final FriendlyByteBuf buf)
+    {
+        buf.writeBlockPos(pos);
+        buf.writeUtf(packName);
+        buf.writeUtf(blueprintPath);
+        buf.writeByte(rotationMirror.ordinal());
+    }
+
+    /**
+     * @return true if the preview got cleared.
+     */
+    public boolean isEmpty()
+    {
+        return packName.isEmpty();
+    }
+
+    /**
+     * Apply a delta of the same blueprint.
+     *
+     * @param delta the delta.
+     * @return the moved preview.
+     */
+    public SharedPreview apply(final PreviewDelta delta)
+    {
+        return new SharedPreview(blueprintId, packName, blueprintPath, pos.offset(delta.offset()), delta.rotationMirror());
+    }
+}
@@ -1,24 +1,47 @@
 package com.ldtteam.structurize.util;
 
+import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.api.util.Log;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Class handling our IO pool.
+ * Work is split into lanes with their own threads and queue, so long running bulk work (pack transfers, cache warming, background indexing)
+ * never delays the interactive requests of the build tool and other GUIs.
  */
 public final class IOPool
 {
     /**
-     * Hold our IO queue.
+     * The lanes of the pool.
      */
-    private static final BlockingQueue<Runnable> ioQueue = new LinkedBlockingDeque<>();
+    public enum Lane
+    {
+        /**
+         * Requests a player is waiting for, runs on {@code ioThreads} threads.
+         */
+        INTERACTIVE,
+
+        /**
+         * Long running background work, runs on a single thread in submission order.
+         */
+        BULK,
+
+        /**
+         * Speculative work nobody waits for yet, runs on a single low priority thread.
+         */
+        PREFETCH
+    }
 
     /**
-     * Holds the specific executor for the queue.
+     * Holds the executors per lane.
      */
-    private static ThreadPoolExecutor executor;
+    private static final Map<Lane, LaneExecutor> executors = new EnumMap<>(Lane.class);
 
     /**
      * Structurize specific thread factory.
@@ -30,11 +53,42 @@ public final class IOPool
          */
         public static int id;
 
+        /**
+         * The thread name prefix.
+         */
+        private final String name;
+
+        /**
+         * The thread priority.
+         */
+        private final int priority;
+
+        /**
+         * Create a factory for the default workers.
+         */
+        public StructurizeThreadFactory()
+        {
+            this("Structurize IO Worker", Thread.NORM_PRIORITY);
+        }
+
+        /**
+         * Create a factory.
+         *
+         * @param name     the thread name prefix.
+         * @param priority the thread priority.
+         */
+        public StructurizeThreadFactory(final String name, final int priority)
+        {
+            this.name = name;
+            this.priority = priority;
+        }
+
         @Override
         public Thread newThread(@NotNull final Runnable runnable)
         {
-            final Thread thread = new Thread(runnable, "Structurize IO Worker #" + (id++));
+            final Thread thread = new Thread(runnable, name + " #" + (id++));
             thread.setDaemon(true);
+            thread.setPriority(priority);
 
             thread.setUncaughtExceptionHandler((thread1, throwable) -> Log.getLogger().error("Structurize IO Thread errored! ", throwable));
             return thread;
@@ -42,15 +96,47 @@ public final class IOPool
     }
 
     /**
-     * Creates a new thread pool for pathfinding jobs
+     * Get the executor of the interactive lane.
      *
      * @return the threadpool executor.
      */
     public static ThreadPoolExecutor getExecutor()
     {
+        return getExecutor(Lane.INTERACTIVE);
+    }
+
+    /**
+     * Get the executor of a lane, created on first use and resized if the configured thread count changed.
+     *
+     * @param lane the lane.
+     * @return the threadpool executor.
+     */
+    public static synchronized ThreadPoolExecutor getExecutor(final Lane lane)
+    {
+        final int threads = getConfiguredThreads(lane);
+        LaneExecutor executor = executors.get(lane);
         if (executor == null)
         {
-            executor = new ThreadPoolExecutor(1, 2, 10, TimeUnit.SECONDS, ioQueue, new StructurizeThreadFactory());
+            executor = new LaneExecutor(threads, switch (lane)
+            {
+                case INTERACTIVE -> new StructurizeThreadFactory();
+                case BULK -> new StructurizeThreadFactory("Structurize IO Bulk Worker", Thread.NORM_PRIORITY);
+                case PREFETCH -> new StructurizeThreadFactory("Structurize IO Prefetch Worker", Thread.MIN_PRIORITY);
+            });
+            executors.put(lane, executor);
+        }
+        else if (executor.getMaximumPoolSize() != threads)
+        {
+            if (threads > executor.getMaximumPoolSize())
+            {
+                executor.setMaximumPoolSize(threads);
+                executor.setCorePoolSize(threads);
+            }
+            else
+            {
+                executor.setCorePoolSize(threads);
+                executor.setMaximumPoolSize(threads);
+            }
         }
         return executor;
     }
@@ -58,11 +144,13 @@ public final class IOPool
     /**
      * Stops all running threads in this thread pool
      */
-    public static void shutdown()
+    public static synchronized void shutdown()
     {
-        getExecutor().shutdownNow();
-        ioQueue.clear();
-        executor = null;
+        for (final LaneExecutor executor : executors.values())
+        {
+            executor.shutdownNow();
+        }
+        executors.clear();
     }
 
     private IOPool()
@@ -75,11 +163,23 @@ public final class IOPool
      * @param task the task to run.
      * @return the future.
      */
-    public static <T> Future<T> submit(@NotNull final Callable<T> task)
+    public static <T> CompletableFuture<T> submit(@NotNull final Callable<T> task)
     {
-        return getExecutor().submit(task);
+        return submit(Lane.INTERACTIVE, task);
     }
 
+    /**
+     * Submit a task for processing to a lane of the pool.
+     * @param lane the lane.
+     * @param task the task to run.
+     * @return the future, cancelling it drops the task from the queue if it did not start yet.
+     */
+    public static <T> CompletableFuture<T> submit(@NotNull final Lane lane, @NotNull final Callable<T> task)
+    {
+        final LaneTask<T> laneTask = new LaneTask<>(lane, task);
+        getExecutor(lane).execute(laneTask);
+        return laneTask;
+    }
 
     /**
      * Execute a task to be processed in the pool.
@@ -87,6 +187,203 @@ public final class IOPool
      */
     public static void execute(@NotNull final Runnable task)
     {
-        getExecutor().execute(task);
+        execute(Lane.INTERACTIVE, task);
+    }
+
+    /**
+     * Execute a task to be processed in a lane of the pool.
+     * @param lane the lane.
+     * @param task the task to run.
+     */
+    public static void execute(@NotNull final Lane lane, @NotNull final Runnable task)
+    {
+        submit(lane, () ->
+        {
+            try
+            {
+                task.run();
+            }
+            catch (final RuntimeException e)
+            {
+                // nobody looks at the future of an executed task
+                Log.getLogger().error("Structurize IO Thread errored! ", e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Cancel a future which is not needed anymore. A queued task is dropped from its queue, a running task is not interrupted (interrupts close NIO channels).
+     * @param future the future, may be null or already done.
+     */
+    public static void cancel(@Nullable final Future<?> future)
+    {
+        if (future != null && !future.isDone())
+        {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Get the current statistics of a lane.
+     * @param lane the lane.
+     * @return the statistics.
+     */
+    public static LaneStats getStats(final Lane lane)
+    {
+        final LaneExecutor executor = (LaneExecutor) getExecutor(lane);
+        final long started = executor.started.get();
+        return new LaneStats(lane,
+          executor.getQueue().size(),
+          executor.getActiveCount(),
+          started,
+          executor.cancelled.get(),
+          started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(executor.totalWait.get() / started),
+          TimeUnit.NANOSECONDS.toMillis(executor.maxWait.get()));
+    }
+
+    /**
+     * @param lane the lane.
+     * @return the configured thread count, the default if the server config is not loaded.
+     */
+    private static int getConfiguredThreads(final Lane lane)
+    {
+        if (lane != Lane.INTERACTIVE)
+        {
+            return 1;
+        }
+
+        try
+        {
+            return Structurize.getConfig().getServer().ioThreads.get();
+        }
+        catch (final IllegalStateException e)
+        {
+            return Structurize.getConfig().getServer().ioThreads.getDefault();
+        }
+    }
+
+    /**
+     * Statistics of a lane.
+     *
+     * @param lane          the lane.
+     * @param queued        tasks waiting to run.
+     * @param active        tasks running right now.
+     * @param started       tasks started since the lane was created.
+     * @param cancelled     tasks cancelled before they completed.
+     * @param averageWaitMs average time between submission and start.
+     * @param maxWaitMs     longest time between submission and start.
+     */
+    public record LaneStats(Lane lane, int queued, int active, long started, long cancelled, long averageWaitMs, long maxWaitMs) { }
+
+    /**
+     * A task which is its own future and knows its lane and when it got submitted.
+     */
+    private static class LaneTask<T> extends CompletableFuture<T> implements Runnable
+    {
+        /**
+         * The lane.
+         */
+        private final Lane lane;
+
+        /**
+         * The work.
+         */
+        private final Callable<T> callable;
+
+        /**
+         * Submission time in nanos.
+         */
+        private final long submitted = System.nanoTime();
+
+        private LaneTask(final Lane lane, final Callable<T> callable)
+        {
+            this.lane = lane;
+            this.callable = callable;
+        }
+
+        @Override
+        public void run()
+        {
+            if (isDone())
+            {
+                return;
+            }
+
+            try
+            {
+                complete(callable.call());
+            }
+            catch (final Throwable throwable)
+            {
+                completeExceptionally(throwable);
+            }
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning)
+        {
+            // a running task is never interrupted, interrupts close NIO channels
+            final boolean cancelled = super.cancel(false);
+            if (cancelled)
+            {
+                final LaneExecutor executor;
+                synchronized (IOPool.class)
+                {
+                    executor = executors.get(lane);
+                }
+                if (executor != null)
+                {
+                    executor.remove(this);
+                    executor.cancelled.incrementAndGet();
+                }
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * Executor of a lane, measures the queue latency.
+     */
+    private static class LaneExecutor extends ThreadPoolExecutor
+    {
+        /**
+         * Started tasks.
+         */
+        private final AtomicLong started = new AtomicLong();
+
+        /**
+         * Cancelled tasks.
+         */
+        private final AtomicLong cancelled = new AtomicLong();
+
+        /**
+         * Summed up queue wait in nanos.
+         */
+        private final AtomicLong totalWait = new AtomicLong();
+
+        /**
+         * Longest queue wait in nanos.
+         */
+        private final AtomicLong maxWait = new AtomicLong();
+
+        private LaneExecutor(final int threads, final ThreadFactory threadFactory)
+        {
+            super(threads, threads, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+            allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        protected void beforeExecute(final Thread thread, final Runnable runnable)
+        {
+            super.beforeExecute(thread, runnable);
+            if (runnable instanceof LaneTask<?> task)
+            {
+                final long wait = System.nanoTime() - task.submitted;
+                started.incrementAndGet();
+                totalWait.addAndGet(wait);
+                maxWait.accumulateAndGet(wait, Math::max);
+            }
+        }
     }
 }
@@ -0,0 +1,154 @@
+package com.ldtteam.structurize.util;
+
+import com.ldtteam.structurize.api.util.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Executor running continuations of IO work on a game thread.
+ * Tasks are queued from any thread and drained by the owner once per tick, all of them unless the time budget runs out,
+ * in which case the rest waits for the next tick. Tasks never wait on each other, so a slow future can't block the ones behind it.
+ */
+public class MainThreadExecutor implements Executor
+{
+    /**
+     * Tasks ready to run.
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Plain (non completable) futures which still have to be polled.
+     */
+    private final List<PolledFuture<?>> polledFutures = new CopyOnWriteArrayList<>();
+
+    /**
+     * The max time to spend per drain in nanos.
+     */
+    private final long budgetNanos;
+
+    /**
+     * Create a new executor.
+     *
+     * @param budgetMillis the max time to spend per drain.
+     */
+    public MainThreadExecutor(final long budgetMillis)
+    {
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    @Override
+    public void execute(@NotNull final Runnable task)
+    {
+        tasks.add(task);
+    }
+
+    /**
+     * Hand the result of a future to a consumer on the owning thread once it is done. Errors are logged and the consumer is skipped.
+     *
+     * @param future   the future.
+     * @param consumer the consumer.
+     */
+    public <T> void queue(@NotNull final Future<T> future, @NotNull final Consumer<T> consumer)
+    {
+        if (future instanceof CompletableFuture<T> completableFuture)
+        {
+            completableFuture.whenCompleteAsync((result, throwable) -> {
+                if (throwable == null)
+                {
+                    consumer.accept(result);
+                }
+                else if (!(throwable instanceof CancellationException))
+                {
+                    Log.getLogger().error("Structurize IO task failed", throwable);
+                }
+            }, this);
+        }
+        else
+        {
+            polledFutures.add(new PolledFuture<>(future, consumer));
+        }
+    }
+
+    /**
+     * Run ready tasks until the queue is empty or the budget is used up. Must be called from the owning thread.
+     */
+    public void drain()
+    {
+        if (!polledFutures.isEmpty())
+        {
+            for (final PolledFuture<?> polled : polledFutures)
+            {
+                if (polled.future.isDone())
+                {
+                    polledFutures.remove(polled);
+                    tasks.add(polled::complete);
+                }
+            }
+        }
+
+        final long end = System.nanoTime() + budgetNanos;
+        Runnable task;
+        while ((task = tasks.poll()) != null)
+        {
+            try
+            {
+                task.run();
+            }
+            catch (final RuntimeException e)
+            {
+                Log.getLogger().error("Error processing Structurize IO result", e);
+            }
+
+            if (System.nanoTime() >= end)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop everything queued, for example when the world is left.
+     */
+    public void clear()
+    {
+        tasks.clear();
+        polledFutures.clear();
+    }
+
+    /**
+     * @return the amount of tasks waiting for the next drain.
+     */
+    public int size()
+    {
+        return tasks.size() + polledFutures.size();
+    }
+
+    /**
+     * A plain future and its consumer.
+     *
+     * @param future   the future.
+     * @param consumer the consumer.
+     */
+    private record PolledFuture<T>(Future<T> future, Consumer<T> consumer)
+    {
+        private void complete()
+        {
+            try
+            {
+                consumer.accept(future.get());
+            }
+            catch (final InterruptedException | ExecutionException e)
+            {
+                Log.getLogger().error("Structurize IO task failed", e);
+            }
+            catch (final CancellationException e)
+            {
+                // nobody is interested anymore
+            }
+        }
+    }
+}
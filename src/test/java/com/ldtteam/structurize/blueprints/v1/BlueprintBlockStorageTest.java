@@ -0,0 +1,65 @@
+package com.ldtteam.structurize.blueprints.v1;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BlueprintBlockStorageTest
+{
+    @Test
+    public void testSetGetWithResize()
+    {
+        final BlueprintBlockStorage storage = new BlueprintBlockStorage(7, 5, 3, 2);
+        assertEquals(1, storage.getBits());
+
+        for (int i = 0; i < storage.getVolume(); i++)
+        {
+            storage.set(i, i % 2);
+        }
+        storage.set(3, 2, 1, 1000);
+        assertEquals(10, storage.getBits());
+
+        for (int i = 0; i < storage.getVolume(); i++)
+        {
+            assertEquals(i == storage.index(3, 2, 1) ? 1000 : i % 2, storage.get(i));
+        }
+    }
+
+    @Test
+    public void testStructureRoundTrip()
+    {
+        final short[][][] structure = new short[4][3][5];
+        for (int y = 0; y < 4; y++)
+        {
+            for (int z = 0; z < 3; z++)
+            {
+                for (int x = 0; x < 5; x++)
+                {
+                    structure[y][z][x] = (short) ((x * 31 + y * 7 + z) % 40);
+                }
+            }
+        }
+
+        final BlueprintBlockStorage storage = BlueprintBlockStorage.fromStructure(structure, 5, 4, 3, 40);
+        assertEquals(6, storage.getBits());
+        assertArrayEquals(structure, storage.toStructure());
+    }
+
+    @Test
+    public void testReshapeShrinksWidth()
+    {
+        final BlueprintBlockStorage flat = new BlueprintBlockStorage(24, 1, 1, 1 << 16);
+        for (int i = 0; i < 23; i++)
+        {
+            flat.set(i, i % 5);
+        }
+
+        final BlueprintBlockStorage shaped = flat.reshape(23, 1, 1, 5);
+        assertEquals(3, shaped.getBits());
+        for (int i = 0; i < 23; i++)
+        {
+            assertEquals(i % 5, shaped.get(i));
+        }
+    }
+}
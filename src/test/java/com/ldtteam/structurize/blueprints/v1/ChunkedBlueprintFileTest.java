@@ -0,0 +1,126 @@
+package com.ldtteam.structurize.blueprints.v1;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ChunkedBlueprintFileTest
+{
+    @BeforeClass
+    public static void bootstrap()
+    {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    /**
+     * Spans several sections on every axis, with partial sections at the end.
+     */
+    private static Blueprint createBlueprint()
+    {
+        final short sizeX = 20, sizeY = 18, sizeZ = 33;
+        final List<BlockState> palette = List.of(Blocks.AIR.defaultBlockState(), Blocks.STONE.defaultBlockState(), Blocks.CHEST.defaultBlockState());
+        final short[][][] structure = new short[sizeY][sizeZ][sizeX];
+        for (int y = 0; y < sizeY; y++)
+        {
+            for (int z = 0; z < sizeZ; z++)
+            {
+                for (int x = 0; x < sizeX; x++)
+                {
+                    structure[y][z][x] = (short) ((x + y + z) % 3 == 0 ? 1 : 0);
+                }
+            }
+        }
+        structure[17][32][19] = 2;
+
+        final CompoundTag chest = new CompoundTag();
+        chest.putString("id", "minecraft:chest");
+        chest.putShort("x", (short) 19);
+        chest.putShort("y", (short) 17);
+        chest.putShort("z", (short) 32);
+
+        final Blueprint blueprint = new Blueprint(sizeX, sizeY, sizeZ, (short) palette.size(), palette, structure, new CompoundTag[] {chest}, new ArrayList<>());
+        blueprint.setName("test");
+        blueprint.setCachePrimaryOffset(new BlockPos(19, 17, 32));
+        return blueprint;
+    }
+
+    @Test
+    public void testWriteReadRoundTrip() throws IOException
+    {
+        final Blueprint blueprint = createBlueprint();
+        final Path path = Files.createTempFile("blueprint", ".chunked");
+        try
+        {
+            ChunkedBlueprintFile.write(blueprint, path);
+
+            final Blueprint read;
+            try (final ChunkedBlueprintFile file = ChunkedBlueprintFile.open(path))
+            {
+                assertEquals(blueprint.getSizeX(), file.getSizeX());
+                assertEquals(blueprint.getSizeY(), file.getSizeY());
+                assertEquals(blueprint.getSizeZ(), file.getSizeZ());
+                read = file.readBlueprint();
+            }
+
+            assertNotNull(read);
+            assertEquals("test", read.getName());
+            for (int y = 0; y < blueprint.getSizeY(); y++)
+            {
+                for (int z = 0; z < blueprint.getSizeZ(); z++)
+                {
+                    for (int x = 0; x < blueprint.getSizeX(); x++)
+                    {
+                        assertEquals(blueprint.getBlockState(x, y, z), read.getBlockState(x, y, z));
+                    }
+                }
+            }
+            assertEquals(blueprint.getTileEntitiesByPos().keySet(), read.getTileEntitiesByPos().keySet());
+            assertEquals("minecraft:chest", read.getTileEntityData(19, 17, 32).getString("id"));
+            assertNull(read.getTileEntityData(0, 0, 0));
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testMetadataReadsOnlyTheAnchor() throws IOException
+    {
+        final Path path = Files.createTempFile("blueprint", ".chunked");
+        try
+        {
+            ChunkedBlueprintFile.write(createBlueprint(), path);
+            try (final ChunkedBlueprintFile file = ChunkedBlueprintFile.open(path))
+            {
+                final BlueprintMetadata metadata = file.readMetadata();
+                assertNotNull(metadata);
+                assertEquals("test", metadata.getName());
+                assertEquals(new BlockPos(19, 17, 32), metadata.getPrimaryBlockOffset());
+                assertEquals(Blocks.CHEST.defaultBlockState(), metadata.getAnchorState());
+                assertEquals("minecraft:chest", metadata.getAnchorData().getString("id"));
+                assertEquals(1, file.readPaletteIndex(0, 0, 0));
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.ldtteam.structurize.network.messages.splitting;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SplitPacketCompressionTest
+{
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        final byte[] data = new byte[100000];
+        Arrays.fill(data, (byte) 7);
+        final byte[] compressed = SplitPacketCompression.compress(data);
+
+        assertNotNull(compressed);
+        assertTrue(compressed.length < data.length / 10);
+        assertArrayEquals(data, ByteBufUtil.getBytes(SplitPacketCompression.decompress(Unpooled.wrappedBuffer(compressed), data.length)));
+    }
+
+    @Test
+    public void testIncompressibleIsSentRaw()
+    {
+        final byte[] data = new byte[4096];
+        new Random(42).nextBytes(data);
+        assertNull(SplitPacketCompression.compress(data));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOversized() throws IOException
+    {
+        final byte[] data = new byte[100000];
+        SplitPacketCompression.decompress(Unpooled.wrappedBuffer(SplitPacketCompression.compress(data)), 1000);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOverstatedLength() throws IOException
+    {
+        final byte[] data = new byte[100000];
+        final byte[] compressed = SplitPacketCompression.compress(data);
+        final FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+        buffer.writeVarInt(32 * 1024 * 1024);
+        final FriendlyByteBuf original = new FriendlyByteBuf(Unpooled.wrappedBuffer(compressed));
+        original.readVarInt();
+        buffer.writeBytes(original);
+
+        // only what actually inflates is allocated, the claimed length is never reached
+        SplitPacketCompression.decompress(buffer, 32 * 1024 * 1024);
+    }
+}
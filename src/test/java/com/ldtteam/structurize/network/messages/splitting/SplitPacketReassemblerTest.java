@@ -0,0 +1,88 @@
+package com.ldtteam.structurize.network.messages.splitting;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SplitPacketReassemblerTest
+{
+    @Test
+    public void testReassemblesOutOfOrderParts()
+    {
+        final SplitPacketReassembler reassembler = new SplitPacketReassembler(1024, 60);
+        assertNull(reassembler.add(null, 1, 2, true, new byte[] {5}));
+        assertNull(reassembler.add(null, 1, 0, false, new byte[] {1, 2}));
+        final ByteBuf buffer = reassembler.add(null, 1, 1, false, new byte[] {3, 4});
+
+        assertArrayEquals(new byte[] {1, 2, 3, 4, 5}, ByteBufUtil.getBytes(buffer));
+        assertEquals(0, reassembler.size());
+    }
+
+    @Test
+    public void testSendersDoNotMix()
+    {
+        final SplitPacketReassembler reassembler = new SplitPacketReassembler(1024, 60);
+        final UUID first = UUID.randomUUID();
+        final UUID second = UUID.randomUUID();
+        assertNull(reassembler.add(first, 7, 0, false, new byte[] {1}));
+        assertNull(reassembler.add(second, 7, 0, false, new byte[] {2}));
+
+        assertArrayEquals(new byte[] {1, 3}, ByteBufUtil.getBytes(reassembler.add(first, 7, 1, true, new byte[] {3})));
+        assertArrayEquals(new byte[] {2, 4}, ByteBufUtil.getBytes(reassembler.add(second, 7, 1, true, new byte[] {4})));
+    }
+
+    @Test
+    public void testDropsOversizedMessage()
+    {
+        final SplitPacketReassembler reassembler = new SplitPacketReassembler(3, 60);
+        assertNull(reassembler.add(null, 1, 0, false, new byte[] {1, 2}));
+        assertNull(reassembler.add(null, 1, 1, false, new byte[] {3, 4}));
+        assertNull(reassembler.add(null, 1, 2, true, new byte[] {5}));
+        assertEquals(0, reassembler.size());
+    }
+
+    @Test
+    public void testDropsPartBeyondLastIndex()
+    {
+        final SplitPacketReassembler reassembler = new SplitPacketReassembler(1024, 60);
+        assertNull(reassembler.add(null, 1, 1, true, new byte[] {2}));
+        assertNull(reassembler.add(null, 1, 5000, false, new byte[] {3}));
+        assertEquals(0, reassembler.size());
+    }
+
+    @Test
+    public void testLimitsIncompleteMessagesPerSender()
+    {
+        final SplitPacketReassembler reassembler = new SplitPacketReassembler(1024, 60);
+        final UUID sender = UUID.randomUUID();
+        for (int id = 0; id < 10; id++)
+        {
+            assertNull(reassembler.add(sender, id, 0, false, new byte[] {1}));
+        }
+        assertEquals(4, reassembler.size());
+
+        // other senders have their own budget
+        assertNull(reassembler.add(null, 0, 0, false, new byte[] {1}));
+        assertArrayEquals(new byte[] {1, 2}, ByteBufUtil.getBytes(reassembler.add(null, 0, 1, true, new byte[] {2})));
+    }
+
+    @Test
+    public void testLimitsBufferedBytesPerSender()
+    {
+        final SplitPacketReassembler reassembler = new SplitPacketReassembler(3, 60);
+        final UUID sender = UUID.randomUUID();
+        assertNull(reassembler.add(sender, 1, 0, false, new byte[] {1, 2}));
+        assertNull(reassembler.add(sender, 2, 0, false, new byte[] {3, 4}));
+
+        // the first message keeps its bytes, the second one no longer fits the budget of the sender
+        assertNull(reassembler.add(sender, 2, 1, true, new byte[] {5}));
+        assertArrayEquals(new byte[] {1, 2, 6}, ByteBufUtil.getBytes(reassembler.add(sender, 1, 1, true, new byte[] {6})));
+        assertEquals(0, reassembler.size());
+    }
+}
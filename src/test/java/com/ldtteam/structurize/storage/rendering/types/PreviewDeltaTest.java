@@ -0,0 +1,33 @@
+package com.ldtteam.structurize.storage.rendering.types;
+
+import com.ldtteam.structurize.util.RotationMirror;
+import io.netty.buffer.Unpooled;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PreviewDeltaTest
+{
+    @Test
+    public void testRoundTrip()
+    {
+        final PreviewDelta delta = new PreviewDelta(12, new BlockPos(-1, 300, Integer.MIN_VALUE), RotationMirror.MIR_R90);
+        final FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        delta.write(buf);
+
+        assertEquals(delta, PreviewDelta.read(buf));
+        assertEquals(0, buf.readableBytes());
+    }
+
+    @Test
+    public void testNudgeIsCompact()
+    {
+        final FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        new PreviewDelta(1, new BlockPos(-1, 0, 1), RotationMirror.NONE).write(buf);
+
+        // id, three axes and the rotation byte
+        assertEquals(5, buf.readableBytes());
+    }
+}